@@ -0,0 +1,118 @@
+/*
+Description:  This class provides the worlds used by the benchmarks: the real Haunted House and
+large synthetic houses.
+ */
+
+package hauntedhouse.bench;
+
+import hauntedhouse.World;
+import hauntedhouse.WorldLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+
+/**
+ * The {@code BenchmarkWorlds} class creates world definitions for the benchmarks.
+ * The name "house" stands for the real game world, and a number such as "10000" stands for a
+ * synthetic house with that many rooms and one item for every ten rooms.
+ */
+final class BenchmarkWorlds {
+    private static final String HOUSE_RESOURCE = "/resources/world/HauntedHouse.world";
+
+    private BenchmarkWorlds() {
+    }
+
+    /**
+     * Gets the text of a world definition.
+     *
+     * @param name "house" for the game world, or a room count for a synthetic world.
+     * @return The world definition text.
+     */
+    static String definition(String name) {
+        if (name.equals("house")) {
+            try (InputStream in = BenchmarkWorlds.class.getResourceAsStream(HOUSE_RESOURCE)) {
+                if (in == null) throw new IllegalStateException("Missing resource " + HOUSE_RESOURCE);
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int rooms = Integer.parseInt(name);
+        return synthetic(rooms, Math.max(1, rooms / 10), 42);
+    }
+
+    /**
+     * Loads a world by name, see {@link #definition(String)}.
+     *
+     * @param name "house" for the game world, or a room count for a synthetic world.
+     * @return The compiled world.
+     */
+    static World load(String name) {
+        try {
+            return WorldLoader.load(new StringReader(definition(name)), name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a synthetic world definition.  The rooms form a binary tree with exits both ways,
+     * items are scattered over the rooms and every seventh room is locked behind one to three
+     * items.  Room 0 is never locked.
+     *
+     * @param roomCount The number of rooms.
+     * @param itemCount The number of items.
+     * @param seed The random seed, so runs are repeatable.
+     * @return The world definition text.
+     */
+    static String synthetic(int roomCount, int itemCount, long seed) {
+        Random random = new Random(seed);
+        StringBuilder[] roomItems = new StringBuilder[roomCount];
+        for (int item = 0; item < itemCount; item++) {
+            int room = random.nextInt(roomCount);
+            if (roomItems[room] == null) {
+                roomItems[room] = new StringBuilder("Item ").append(item);
+            } else {
+                roomItems[room].append(", Item ").append(item);
+            }
+        }
+
+        StringBuilder text = new StringBuilder(roomCount * 200);
+        for (int room = 0; room < roomCount; room++) {
+            text.append("room Room ").append(room).append('\n');
+            text.append("    image: FrontHall.png\n");
+
+            text.append("    exits:");
+            String separator = " ";
+            if (room > 0) {
+                text.append(separator).append("Room ").append((room - 1) / 2);
+                separator = ", ";
+            }
+            for (int child = 2 * room + 1; child <= 2 * room + 2 && child < roomCount; child++) {
+                text.append(separator).append("Room ").append(child);
+                separator = ", ";
+            }
+            text.append('\n');
+
+            boolean locked = room > 0 && room % 7 == 0;
+            text.append("    locked: ").append(locked).append('\n');
+            text.append("    items: ").append(roomItems[room] == null ? "" : roomItems[room]).append('\n');
+            text.append("    requires:");
+            if (locked) {
+                int required = 1 + random.nextInt(3);
+                for (int i = 0; i < required; i++) {
+                    text.append(i == 0 ? " " : ", ").append("Item ").append(random.nextInt(itemCount));
+                }
+            }
+            text.append('\n');
+            text.append("    initial: \\tYou enter room ").append(room).append(". It looks like every other room.\n");
+            text.append("    look: \\tThe walls of room ").append(room).append(" are covered in faded wallpaper.\n\n");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+Description:  Benchmarks keeping the inventory pane in step with the inventory.
+ */
+
+package hauntedhouse.bench;
+
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.FlowPane;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares the two ways of updating the inventory pane when one item changes: rebuilding every
+ * icon node, as the game used to do, against adding or removing the one node that changed.
+ * The pane is never shown, so no JavaFX toolkit is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class InventoryBenchmark {
+
+    @Param({"8", "1000"})
+    public int inventorySize;
+
+    private FlowPane pane;
+    private ImageView changedIcon;
+
+    @Setup
+    public void setUp() {
+        pane = new FlowPane();
+        for (int i = 0; i < inventorySize; i++) {
+            pane.getChildren().add(createIcon());
+        }
+        changedIcon = createIcon();
+    }
+
+    private static ImageView createIcon() {
+        ImageView icon = new ImageView();
+        icon.setFitWidth(32);
+        icon.setFitHeight(32);
+        return icon;
+    }
+
+    @Benchmark
+    public FlowPane rebuild() {
+        pane.getChildren().clear();
+        for (int i = 0; i < inventorySize; i++) {
+            pane.getChildren().add(createIcon());
+        }
+        return pane;
+    }
+
+    @Benchmark
+    public FlowPane diff() {
+        pane.getChildren().add(changedIcon);
+        pane.getChildren().remove(changedIcon);
+        return pane;
+    }
+}
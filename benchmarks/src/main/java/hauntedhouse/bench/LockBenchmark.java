@@ -0,0 +1,74 @@
+/*
+Description:  Benchmarks checking and unlocking locked rooms.
+ */
+
+package hauntedhouse.bench;
+
+import hauntedhouse.GameEngine;
+import hauntedhouse.ItemSet;
+import hauntedhouse.Room;
+import hauntedhouse.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures lock resolution.  {@code lockedMove} is a player walking into a locked door without
+ * the right items, which also builds the lock message.  {@code unlockCheck} is the mask test
+ * against a full inventory, and {@code unlockAndConsume} also uses up and gives back the items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class LockBenchmark {
+
+    @Param({"house", "10000"})
+    public String world;
+
+    private GameEngine engine;
+    private int lockedRoom;
+    private ItemSet required;
+    private ItemSet fullInventory;
+
+    @Setup
+    public void setUp() {
+        World loaded = BenchmarkWorlds.load(world);
+        engine = new GameEngine(loaded);
+
+        //Pick the locked room with the most required items
+        for (int id = 0; id < loaded.getRoomCount(); id++) {
+            Room room = loaded.getRoom(id);
+            if (room.isInitiallyLocked() && (required == null || room.getRequiredItems().size() > required.size())) {
+                lockedRoom = id;
+                required = room.getRequiredItems();
+            }
+        }
+
+        fullInventory = new ItemSet(loaded.getItemCount());
+        for (int item = 0; item < loaded.getItemCount(); item++) {
+            fullInventory.add(item);
+        }
+    }
+
+    @Benchmark
+    public GameEngine.MoveResult lockedMove() {
+        return engine.move(lockedRoom);
+    }
+
+    @Benchmark
+    public boolean unlockCheck() {
+        return fullInventory.containsAll(required);
+    }
+
+    @Benchmark
+    public boolean unlockAndConsume() {
+        boolean unlocked = fullInventory.containsAll(required);
+        fullInventory.removeAll(required);
+        fullInventory.addAll(required);
+        return unlocked;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+Description:  Benchmarks route questions over the room graph.
+ */
+
+package hauntedhouse.bench;
+
+import hauntedhouse.ItemSet;
+import hauntedhouse.RouteIndex;
+import hauntedhouse.World;
+import hauntedhouse.WorldState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures the {@link RouteIndex}.  {@code search} is a full breadth-first search, which is what
+ * the first question from a room or the first question after a lock change costs.
+ * {@code cachedDistance} and {@code cachedRoute} ask from a room whose search is kept, and
+ * {@code travelTargets} fills the travel menu from a world where every room has been visited.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class RouteBenchmark {
+
+    @Param({"house", "10000"})
+    public String world;
+
+    private World loaded;
+    private WorldState state;
+    private RouteIndex routes;
+    private ItemSet visited;
+    private int[] targets;
+    private int from;
+    private int to;
+
+    @Setup
+    public void setUp() {
+        loaded = BenchmarkWorlds.load(world);
+        state = new WorldState(loaded);
+        routes = new RouteIndex(state);
+        visited = new ItemSet(loaded.getRoomCount());
+        for (int id = 0; id < loaded.getRoomCount(); id++) {
+            visited.add(id);
+        }
+        targets = new int[20];
+
+        //Ask from the start room to the farthest room it can reach
+        from = loaded.getStartRoom();
+        for (int id = 0; id < loaded.getRoomCount(); id++) {
+            if (routes.getDistance(from, id) > routes.getDistance(from, to)) {
+                to = id;
+            }
+        }
+    }
+
+    @Benchmark
+    public int search() {
+        //A fresh index has nothing cached
+        return new RouteIndex(state).getDistance(from, to);
+    }
+
+    @Benchmark
+    public int cachedDistance() {
+        return routes.getDistance(from, to);
+    }
+
+    @Benchmark
+    public int[] cachedRoute() {
+        return routes.getRoute(from, to);
+    }
+
+    @Benchmark
+    public int travelTargets() {
+        return routes.getReachable(from, visited, targets);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+Description:  Benchmarks searching a room and discovering its items.
+ */
+
+package hauntedhouse.bench;
+
+import hauntedhouse.GameEngine;
+import hauntedhouse.GameListener;
+import hauntedhouse.ItemSet;
+import hauntedhouse.World;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures {@link GameEngine#search()}.  Before every search the starting room is filled again
+ * with {@code items} items, so each call finds and collects the same items.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class SearchBenchmark {
+
+    @Param({"house", "10000"})
+    public String world;
+
+    @Param({"2", "100"})
+    public int items;
+
+    private GameEngine engine;
+    private int room;
+    private ItemSet stock;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        World loaded = BenchmarkWorlds.load(world);
+        engine = new GameEngine(loaded);
+        engine.addListener(new GameListener() {
+            @Override
+            public void onMessage(String text) {
+                blackhole.consume(text);
+            }
+        });
+        engine.enterRoom(loaded.getStartRoom());
+
+        room = loaded.getStartRoom();
+        stock = new ItemSet(loaded.getItemCount());
+        for (int item = 0; item < Math.min(items, loaded.getItemCount()); item++) {
+            stock.add(item);
+        }
+    }
+
+    @Benchmark
+    public void search() {
+        engine.getState().setItems(room, stock);
+        engine.search();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+Description:  Benchmarks how long it takes to read and compile a world definition.
+ */
+
+package hauntedhouse.bench;
+
+import hauntedhouse.World;
+import hauntedhouse.WorldLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures {@link WorldLoader} on the real house and on a synthetic 10,000 room house.
+ * The definition text is kept in memory so only parsing and compiling are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class WorldLoadBenchmark {
+
+    @Param({"house", "10000"})
+    public String world;
+
+    private String definition;
+
+    @Setup
+    public void setUp() {
+        definition = BenchmarkWorlds.definition(world);
+    }
+
+    @Benchmark
+    public World loadWorld() throws IOException {
+        return WorldLoader.load(new StringReader(definition), world);
+    }
+}
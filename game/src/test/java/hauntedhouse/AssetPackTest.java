@@ -0,0 +1,130 @@
+/*
+Description:  This class tests that an asset pack gives back the files it was written from and
+that a damaged pack is refused when it is opened.
+ */
+
+package hauntedhouse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests {@link AssetPack} on a few generated files of odd sizes, so the entries need padding.
+ */
+class AssetPackTest {
+    private static final List<String> PATHS = List.of("image/Attic.png", "image/icons/Key.png",
+            "image/Basement.png", "image/empty.png");
+
+    @TempDir
+    Path folder;
+
+    private Path pack;
+
+    @BeforeEach
+    void writePack() throws IOException {
+        Random random = new Random(5);
+        for (String path : PATHS) {
+            Path file = folder.resolve("resources").resolve(path);
+            Files.createDirectories(file.getParent());
+            byte[] bytes = new byte[path.equals("image/empty.png") ? 0 : 1 + random.nextInt(5000)];
+            random.nextBytes(bytes);
+            Files.write(file, bytes);
+        }
+        pack = folder.resolve("assets.pack");
+        assertEquals(PATHS.size(), AssetPack.write(folder.resolve("resources"), "image", pack));
+    }
+
+    @Test
+    void readsBackEveryFile() throws IOException {
+        AssetPack opened = AssetPack.open(pack);
+        List<String> sorted = PATHS.stream().sorted().collect(Collectors.toList());
+        assertEquals(sorted, opened.getNames());
+
+        for (String path : PATHS) {
+            assertTrue(opened.contains(path));
+            ByteBuffer entry = opened.get(path);
+            byte[] bytes = new byte[entry.remaining()];
+            entry.get(bytes);
+            assertArrayEquals(Files.readAllBytes(folder.resolve("resources").resolve(path)), bytes, path);
+            assertTrue(entry.isReadOnly());
+        }
+        assertFalse(opened.contains("image/Missing.png"));
+        assertNull(opened.get("image/Missing.png"));
+    }
+
+    @Test
+    void refusesTruncatedPacks() throws IOException {
+        byte[] bytes = Files.readAllBytes(pack);
+        Path truncated = folder.resolve("truncated.pack");
+        for (int length = 0; length < bytes.length; length += 13) {
+            Files.write(truncated, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> AssetPack.open(truncated), "length " + length);
+        }
+    }
+
+    @Test
+    void refusesDamagedRecords() throws IOException {
+        //The header is 16 bytes and each record 16 more: an 8 byte offset, a length and a name offset
+        int record = 16 + 16;
+        assertRefused(record, Long.MAX_VALUE - 4);  // Entry offset
+        assertRefused(record, -8L);
+        assertRefused(record + 8, Integer.MAX_VALUE); // Entry length
+        assertRefused(record + 8, -1);
+        assertRefused(record + 12, 1 << 20);       // Name offset
+        assertRefused(record + 12, -2);
+        assertRefused(8, Integer.MAX_VALUE);        // Entry count
+        assertRefused(12, -1);                      // Name table size
+        assertRefused(record + 12, 0);              // Two records with the same name
+    }
+
+    @Test
+    void installedPackOpensUrlsMadeFromTheirText() throws IOException {
+        //The build packs the pictures next to the compiled classes
+        AssetPack installed = AssetPack.getInstalled();
+        assertNotNull(installed, "the build should pack the pictures");
+        assertTrue(installed.contains("image/FrontYard.png"));
+
+        //JavaFX makes the URL again from its text, which finds the handler through the service
+        URL url = new URL(AssetManager.resolve("image/FrontYard.png").toExternalForm());
+        assertEquals(AssetPack.PROTOCOL, url.getProtocol());
+        ByteBuffer entry = installed.get("image/FrontYard.png");
+        byte[] expected = new byte[entry.remaining()];
+        entry.get(expected);
+        try (InputStream in = url.openStream()) {
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+    }
+
+    private void assertRefused(int at, long value) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(pack));
+        if (at % 16 == 0) {
+            bytes.putLong(at, value);
+        } else {
+            bytes.putInt(at, (int) value);
+        }
+        Path damaged = folder.resolve("damaged.pack");
+        Files.write(damaged, bytes.array());
+        assertThrows(IOException.class, () -> AssetPack.open(damaged), "value " + value + " at " + at);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+Description:  This class tests that the audio engine mixes effects and ambient tracks, keeps its
+effect cache within its memory and crossfades tracks to their volumes, without an audio line.
+ */
+
+package hauntedhouse;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+
+/**
+ * Tests {@link AudioEngine} through {@link AudioEngine#mixBlock(byte[])} on generated sounds that
+ * hold the same sample throughout, so the mixed blocks show which sounds play and how loud.
+ * Sounds are loaded by the engine's own thread, so the tests wait for a sound to be heard before
+ * they count on what was loaded before it.
+ */
+class AudioEngineTest {
+    //Every effect in these tests lasts about three blocks, 12,000 bytes once decoded
+    private static final int EFFECT_FRAMES = 3000;
+    private static final int EFFECT_BYTES = EFFECT_FRAMES * 4;
+    private static final int AMBIENT_LEVEL = (int) (1000 * AudioEngine.AMBIENT_VOLUME);
+
+    @TempDir
+    Path folder;
+
+    private final Map<String, Integer> lookups = new ConcurrentHashMap<>();
+    private final byte[] block = new byte[AudioEngine.BLOCK_FRAMES * 4];
+    private AudioEngine engine;
+
+    @AfterEach
+    void close() {
+        if (engine != null) engine.close();
+    }
+
+    /**
+     * Creates an engine without an audio line that finds sounds in the test's folder, counting
+     * how often each is looked up.
+     */
+    private void createEngine(long effectMemory) {
+        engine = new AudioEngine(path -> {
+            lookups.merge(path, 1, Integer::sum);
+            Path file = folder.resolve(path);
+            try {
+                return Files.exists(file) ? file.toUri().toURL() : null;
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }, effectMemory, false);
+    }
+
+    /**
+     * Writes a sound that holds one sample value.  A WAV file is mono, so the engine converts
+     * it, and an AU file is written without its length, as a stream would be.
+     */
+    private void writeSound(String name, int sample, int frames) throws IOException {
+        boolean wav = name.endsWith(".wav");
+        AudioFormat format = new AudioFormat(44100f, 16, wav ? 1 : 2, true, !wav);
+        byte[] bytes = new byte[frames * format.getFrameSize()];
+        for (int i = 0; i < bytes.length; i += 2) {
+            bytes[i + (wav ? 0 : 1)] = (byte) sample;
+            bytes[i + (wav ? 1 : 0)] = (byte) (sample >> 8);
+        }
+        AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(bytes), format,
+                wav ? frames : AudioSystem.NOT_SPECIFIED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AudioSystem.write(in, wav ? AudioFileFormat.Type.WAVE : AudioFileFormat.Type.AU, out);
+        Files.write(folder.resolve(name), out.toByteArray());
+    }
+
+    /**
+     * Mixes blocks until one does not end in silence, giving the loader thread time.
+     *
+     * @return The last sample of that block, left channel.
+     */
+    private int awaitSound() {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            int level = mix(1);
+            if (level != 0) return level;
+            Thread.yield();
+        }
+        return fail("no sound was mixed");
+    }
+
+    /**
+     * Mixes blocks until the level changes from what it was.
+     *
+     * @return The last sample of the first block that changed, left channel.
+     */
+    private int awaitChange(int level) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            int next = mix(1);
+            if (next != level) return next;
+            Thread.yield();
+        }
+        return fail("the level stayed at " + level);
+    }
+
+    /**
+     * Mixes a number of blocks.
+     *
+     * @return The last sample of the last block, left channel.
+     */
+    private int mix(int blocks) {
+        for (int i = 0; i < blocks; i++) {
+            engine.mixBlock(block);
+        }
+        assertEquals(sample(block.length - 4), sample(block.length - 2), "both channels are the same");
+        return sample(block.length - 4);
+    }
+
+    private int sample(int offset) {
+        return (short) ((block[offset] & 0xFF) | (block[offset + 1] << 8));
+    }
+
+    @Test
+    void mixesEffectsUntilTheyEnd() throws IOException {
+        writeSound("low.wav", 500, EFFECT_FRAMES);
+        writeSound("high.wav", 1500, EFFECT_FRAMES);
+        writeSound("last.wav", 700, EFFECT_FRAMES);
+        createEngine(AudioEngine.DEFAULT_EFFECT_MEMORY);
+
+        //The high effect is decoded before the low one is heard
+        engine.preload("high.wav");
+        engine.play("low.wav");
+        assertEquals(500, awaitSound());
+        assertEquals(0, mix(3), "the effect ends");
+
+        //Both are in memory now, so they start in the same block and are added together
+        engine.play("low.wav");
+        engine.play("high.wav");
+        assertEquals(2000, mix(1));
+        assertEquals(0, mix(3));
+
+        //Effects load in order, so the missing one has been looked up once the last one is heard
+        engine.play("missing.wav");
+        engine.play("last.wav");
+        assertEquals(700, awaitSound());
+        assertEquals(0, mix(3));
+        engine.play("missing.wav");
+        engine.play("low.wav");
+        assertEquals(500, mix(1));
+        assertEquals(1, lookups.get("missing.wav"));
+        assertEquals(1, lookups.get("low.wav"));
+    }
+
+    @Test
+    void evictsTheEffectsPlayedLongestAgo() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            writeSound("effect" + i + ".wav", 100 * (i + 1), EFFECT_FRAMES);
+        }
+        writeSound("marker.wav", 1000, EFFECT_FRAMES);
+        createEngine(4 * EFFECT_BYTES);
+        for (int i = 0; i < 5; i++) {
+            engine.preload("effect" + i + ".wav");
+        }
+        engine.play("marker.wav");
+        assertEquals(1000, awaitSound());
+        mix(3);
+
+        //Only four effects fit, so the two loaded first made way for the fifth and the marker
+        engine.play("effect0.wav");
+        assertEquals(100, awaitSound());
+        assertEquals(2, lookups.get("effect0.wav"));
+        mix(3);
+
+        engine.play("effect4.wav");
+        assertEquals(500, mix(1));
+        assertEquals(1, lookups.get("effect4.wav"));
+    }
+
+    @Test
+    void refusesEffectsTooLongToKeep() throws IOException {
+        //A quarter of the memory is two effects, and the long AU file does not say how long it is
+        writeSound("long.au", 300, 3 * EFFECT_FRAMES);
+        writeSound("long.wav", 700, 3 * EFFECT_FRAMES);
+        writeSound("short.au", 500, EFFECT_FRAMES);
+        createEngine(8 * EFFECT_BYTES);
+
+        engine.play("long.au");
+        engine.play("long.wav");
+        engine.play("short.au");
+        //Effects load in order, so only the short one plays once anything does
+        assertEquals(500, awaitSound());
+    }
+
+    @Test
+    void crossfadesAmbientTracksToTheirVolume() throws IOException {
+        writeSound("first.au", 1000, 5000);
+        writeSound("second.au", 2000, 5000);
+        createEngine(AudioEngine.DEFAULT_EFFECT_MEMORY);
+        double twoBlocks = 2.0 * AudioEngine.BLOCK_FRAMES / AudioEngine.FORMAT.getFrameRate();
+
+        engine.crossfadeTo("first.au", twoBlocks);
+        int level = awaitSound();
+        assertTrue(level > 0 && level < AMBIENT_LEVEL, "the track fades in: " + level);
+        //The track loops, at its volume once the fade is over
+        assertEquals(AMBIENT_LEVEL, mix(10));
+
+        engine.crossfadeTo("second.au", twoBlocks);
+        level = awaitChange(AMBIENT_LEVEL);
+        assertTrue(level > AMBIENT_LEVEL && level < 2 * AMBIENT_LEVEL, "both tracks play while they cross: " + level);
+        assertEquals(2 * AMBIENT_LEVEL, mix(10));
+
+        engine.crossfadeTo(null, twoBlocks);
+        awaitChange(2 * AMBIENT_LEVEL);
+        assertEquals(0, mix(10));
+    }
+}
@@ -0,0 +1,368 @@
+/*
+Description:  This class tests that a command journal rebuilds any point of a game, goes back for
+undo and keeps the game going when its file cannot be written.
+ */
+
+package hauntedhouse;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+
+/**
+ * Tests {@link CommandJournal} on a generated house, with games long enough to take several snapshots.
+ */
+class CommandJournalTest {
+    private static World world;
+
+    @TempDir
+    Path folder;
+
+    @BeforeAll
+    static void loadWorld() throws IOException {
+        world = WorldLoader.load(new WorldGenerator(300, 60, 7).openReader(), "generated");
+    }
+
+    /**
+     * Gives a game a number of steps, each a search followed by a move through the first exit
+     * that opens, preferring rooms that have not been visited.
+     */
+    private static void play(GameEngine engine, int steps) {
+        for (int step = 0; step < steps; step++) {
+            engine.search();
+            int next = -1;
+            for (int exit : world.getExits(engine.getCurrentRoom().getId())) {
+                if (engine.move(exit) == GameEngine.MoveResult.LOCKED) continue;
+                if (next < 0 || !engine.getVisitedRooms().contains(exit)) next = exit;
+                if (!engine.getVisitedRooms().contains(exit)) break;
+            }
+            if (next < 0) return;
+            engine.enterRoom(next);
+        }
+    }
+
+    private static GameEngine startGame() {
+        GameEngine engine = new GameEngine(world);
+        engine.enterRoom(world.getStartRoom());
+        return engine;
+    }
+
+    @Test
+    void replaysEveryPoint() throws IOException {
+        GameEngine engine = startGame();
+        CommandJournal journal = new CommandJournal(engine, folder.resolve("game.journal"));
+
+        //The state after each step, to compare the replays with
+        byte[][] expected = new byte[60][];
+        int[] positions = new int[expected.length];
+        for (int step = 0; step < expected.length; step++) {
+            play(engine, 1);
+            expected[step] = GameSnapshot.capture(engine);
+            positions[step] = journal.size();
+        }
+        assertTrue(journal.size() > 3 * CommandJournal.SNAPSHOT_INTERVAL, "the game should pass several snapshots");
+
+        for (int step = 0; step < expected.length; step++) {
+            GameEngine replayed = new GameEngine(world);
+            journal.replay(replayed, positions[step]);
+            assertArrayEquals(expected[step], GameSnapshot.capture(replayed), "step " + step);
+        }
+        assertThrows(IllegalArgumentException.class, () -> journal.replay(new GameEngine(world), journal.size() + 1));
+        journal.close();
+    }
+
+    @Test
+    void readsTheFileBack() throws IOException {
+        Path file = folder.resolve("game.journal");
+        GameEngine engine = startGame();
+        CommandJournal journal = new CommandJournal(engine, file);
+        play(engine, 80);
+        byte[] expected = GameSnapshot.capture(engine);
+        int size = journal.size();
+        journal.close();
+
+        CommandJournal read = CommandJournal.read(file, world);
+        assertEquals(size, read.size());
+        GameEngine replayed = new GameEngine(world);
+        read.replay(replayed, read.size());
+        assertArrayEquals(expected, GameSnapshot.capture(replayed));
+
+        //A file cut short by a crash is read up to its last complete record
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertTrue(CommandJournal.read(file, world).size() < size);
+
+        World other = WorldLoader.load(new WorldGenerator(300, 60, 8).openReader(), "other");
+        assertThrows(IOException.class, () -> CommandJournal.read(file, other));
+    }
+
+    @Test
+    void refusesCommandsOutsideTheWorld() throws IOException {
+        Path file = folder.resolve("game.journal");
+        GameEngine engine = startGame();
+        CommandJournal journal = new CommandJournal(engine, file);
+        engine.enterRoom(world.getStartRoom());
+        journal.close();
+        byte[] bytes = Files.readAllBytes(file);
+        assertEquals(1, CommandJournal.read(file, world).size());
+
+        //The ENTER record is the last five bytes of the file: the record byte and the room id
+        for (int room : new int[] {world.getRoomCount(), -1}) {
+            ByteBuffer.wrap(bytes).putInt(bytes.length - 4, room);
+            Files.write(file, bytes);
+            assertThrows(IOException.class, () -> CommandJournal.read(file, world), "room " + room);
+        }
+    }
+
+    @Test
+    void keepsOnlyTheRecentCommandsInMemory() throws IOException {
+        Path file = folder.resolve("game.journal");
+        GameEngine engine = startGame();
+        CommandJournal journal = new CommandJournal(engine, file);
+        engine.enterRoom(world.getStartRoom());
+        while (journal.size() < (CommandJournal.UNDO_SNAPSHOTS + 4) * CommandJournal.SNAPSHOT_INTERVAL) {
+            play(engine, 1);
+        }
+        int size = journal.size();
+        byte[] expected = GameSnapshot.capture(engine);
+
+        int firstKept = journal.getFirstKept();
+        assertTrue(firstKept > 0, "the oldest commands should be dropped");
+        assertTrue(size - firstKept <= (CommandJournal.UNDO_SNAPSHOTS + 1) * CommandJournal.SNAPSHOT_INTERVAL);
+        assertThrows(IllegalArgumentException.class, () -> journal.replay(new GameEngine(world), firstKept - 1));
+        GameEngine replayed = new GameEngine(world);
+        journal.replay(replayed, size);
+        assertArrayEquals(expected, GameSnapshot.capture(replayed));
+        assertTrue(journal.getUndoPoint() >= firstKept);
+
+        //The file still holds the whole game
+        journal.close();
+        CommandJournal read = CommandJournal.read(file, world);
+        assertEquals(0, read.getFirstKept());
+        assertEquals(size, read.size());
+        replayed = new GameEngine(world);
+        read.replay(replayed, size);
+        assertArrayEquals(expected, GameSnapshot.capture(replayed));
+    }
+
+    @Test
+    void undoGoesBackBeforeTheLastMoveOrSearch() throws IOException {
+        GameEngine engine = startGame();
+        CommandJournal journal = new CommandJournal(engine, folder.resolve("game.journal"));
+        assertEquals(-1, journal.getUndoPoint(), "the first room is never undone");
+
+        engine.enterRoom(world.getStartRoom());
+        byte[] beforeSearch = GameSnapshot.capture(engine);
+        engine.search();
+        engine.look();
+        int undoPoint = journal.getUndoPoint();
+        assertEquals(CommandJournal.Command.SEARCH, journal.getCommand(undoPoint));
+
+        journal.rewind(undoPoint);
+        assertEquals(undoPoint, journal.size());
+        assertArrayEquals(beforeSearch, GameSnapshot.capture(engine));
+
+        //The game goes on from the point it went back to
+        play(engine, 20);
+        byte[] expected = GameSnapshot.capture(engine);
+        GameEngine replayed = new GameEngine(world);
+        journal.replay(replayed, journal.size());
+        assertArrayEquals(expected, GameSnapshot.capture(replayed));
+        journal.close();
+    }
+
+    @Test
+    void undoTakesBackTravelAndPassesOverRefusedMoves() throws IOException {
+        GameEngine engine = startGame();
+        CommandJournal journal = new CommandJournal(engine, folder.resolve("game.journal"));
+        engine.enterRoom(world.getStartRoom());
+        int locked = -1;
+        for (int step = 0; step < 100 && locked < 0; step++) {
+            play(engine, 1);
+            locked = lockedExit(engine);
+        }
+        assertTrue(locked >= 0, "the game should come to a door it cannot open");
+
+        ItemSet visited = engine.getVisitedRooms();
+        int travelTo = -1;
+        for (int id = visited.nextItem(0); id >= 0 && travelTo < 0; id = visited.nextItem(id + 1)) {
+            if (engine.canTravel(id)) travelTo = id;
+        }
+        assertTrue(travelTo >= 0, "the player should be able to travel back");
+
+        //Bumping into a locked door or asking for a room that is not an exit changes nothing
+        int undoPoint = journal.getUndoPoint();
+        assertEquals(GameEngine.MoveResult.LOCKED, engine.move(locked));
+        assertEquals(GameEngine.MoveResult.NO_EXIT, engine.move(notAnExit(engine, travelTo)));
+        assertEquals(undoPoint, journal.getUndoPoint());
+
+        //Travelling only records entering the room, which is what undo takes back
+        byte[] beforeTravel = GameSnapshot.capture(engine);
+        engine.enterRoom(travelTo);
+
+        undoPoint = journal.getUndoPoint();
+        assertEquals(CommandJournal.Command.ENTER, journal.getCommand(undoPoint));
+        journal.rewind(undoPoint);
+        assertArrayEquals(beforeTravel, GameSnapshot.capture(engine));
+        journal.close();
+    }
+
+    @Test
+    void undoAgainGoesFurtherBack() throws IOException {
+        GameEngine engine = startGame();
+        CommandJournal journal = new CommandJournal(engine, folder.resolve("game.journal"));
+        engine.enterRoom(world.getStartRoom());
+        play(engine, 5);
+
+        byte[] beforeSearch = GameSnapshot.capture(engine);
+        engine.search();
+        byte[] beforeMove = GameSnapshot.capture(engine);
+        boolean moved = false;
+        for (int exit : world.getExits(engine.getCurrentRoom().getId())) {
+            GameEngine.MoveResult result = engine.move(exit);
+            if (result == GameEngine.MoveResult.OPEN || result == GameEngine.MoveResult.UNLOCKED) {
+                moved = engine.enterRoom(exit);
+                break;
+            }
+        }
+        assertTrue(moved, "the player should be able to leave the room");
+
+        //The window shows the room it went back to after every undo
+        journal.rewind(journal.getUndoPoint());
+        engine.showCurrentRoom();
+        assertArrayEquals(beforeMove, GameSnapshot.capture(engine));
+        int size = journal.size();
+
+        journal.rewind(journal.getUndoPoint());
+        engine.showCurrentRoom();
+        assertTrue(journal.size() < size, "the second undo should go further back");
+        assertArrayEquals(beforeSearch, GameSnapshot.capture(engine));
+        journal.close();
+    }
+
+    @Test
+    void undoDoesNotRunEnterRulesAgain() throws IOException {
+        World small = WorldLoader.load(new StringReader(String.join("\n",
+                "room Hall",
+                "    image: Hall.png",
+                "    exits: Cellar",
+                "    locked: false",
+                "",
+                "room Cellar",
+                "    image: Cellar.png",
+                "    exits: Hall",
+                "    locked: false",
+                "    items: Key",
+                "",
+                "rule enter Cellar",
+                "    has: Key",
+                "    give: Coin",
+                "")), "enter rules");
+        int hall = small.getRoomId("Hall");
+        int cellar = small.getRoomId("Cellar");
+        GameEngine engine = new GameEngine(small);
+        engine.enterRoom(hall);
+        CommandJournal journal = new CommandJournal(engine, folder.resolve("game.journal"));
+        engine.enterRoom(hall);
+        engine.move(cellar);
+        engine.enterRoom(cellar);
+        engine.search();
+
+        //In the cellar with the key but without the coin, which entering the cellar again would give
+        byte[] beforeLeaving = GameSnapshot.capture(engine);
+        engine.move(hall);
+        engine.enterRoom(hall);
+        journal.rewind(journal.getUndoPoint());
+        engine.showCurrentRoom();
+
+        assertEquals(cellar, engine.getCurrentRoom().getId());
+        assertFalse(engine.getInventory().contains(small.getItemId("Coin")));
+        assertArrayEquals(beforeLeaving, GameSnapshot.capture(engine));
+        journal.close();
+    }
+
+    /**
+     * Finds an exit of the current room that is locked and that the player cannot open.
+     */
+    private static int lockedExit(GameEngine engine) {
+        for (int exit : world.getExits(engine.getCurrentRoom().getId())) {
+            if (engine.getState().isLocked(exit)
+                    && !engine.getInventory().containsAll(world.getRoom(exit).getRequiredItems())) {
+                return exit;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds a room that is not an exit of the current room, other than the one given.  A refused
+     * move into the room the player then travels to would look like walking into it.
+     */
+    private static int notAnExit(GameEngine engine, int other) {
+        int current = engine.getCurrentRoom().getId();
+        for (int id = 0; ; id++) {
+            boolean exit = id == current || id == other;
+            for (int neighbour : world.getExits(current)) {
+                exit |= neighbour == id;
+            }
+            if (!exit) return id;
+        }
+    }
+
+    @Test
+    void rewindForgetsLaterRestores() throws IOException {
+        GameEngine engine = startGame();
+        CommandJournal journal = new CommandJournal(engine, folder.resolve("game.journal"));
+        play(engine, 5);
+        byte[] first = GameSnapshot.capture(engine);
+        play(engine, 5);
+        int beforeRestore = journal.size();
+
+        GameSnapshot.restore(engine, first);
+        journal.recordRestore(first);
+        journal.rewind(beforeRestore);
+
+        play(engine, 5);
+        byte[] second = GameSnapshot.capture(engine);
+        GameSnapshot.restore(engine, second);
+        journal.recordRestore(second);
+        GameEngine replayed = new GameEngine(world);
+        journal.replay(replayed, journal.size());
+        assertArrayEquals(second, GameSnapshot.capture(replayed));
+        journal.close();
+    }
+
+    @Test
+    void keepsPlayingWhenTheFileCannotBeWritten() throws IOException {
+        Path full = Paths.get("/dev/full");
+        assumeTrue(Files.isWritable(full), "needs a device that is always full");
+
+        GameEngine engine = startGame();
+        CommandJournal journal = new CommandJournal(engine, full);
+        play(engine, 100);
+        assertNotNull(journal.getFailure());
+
+        //Undo still works from the commands kept in memory
+        int undoPoint = journal.getUndoPoint();
+        journal.rewind(undoPoint);
+        assertEquals(undoPoint, journal.size());
+        assertThrows(IOException.class, journal::close);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+Description:  This class tests that saved games restore the game they were taken from and that
+damaged or foreign snapshots are refused.
+ */
+
+package hauntedhouse;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests {@link GameSnapshot} on a generated house, after a game has unlocked rooms and moved items.
+ */
+class GameSnapshotTest {
+    private static World world;
+
+    @BeforeAll
+    static void loadWorld() throws IOException {
+        world = WorldLoader.load(new WorldGenerator(300, 60, 7).openReader(), "generated");
+    }
+
+    /**
+     * Plays a game for a number of steps, searching every room and taking the first exit that
+     * opens, preferring rooms that have not been visited.
+     */
+    private static GameEngine play(int steps) {
+        GameEngine engine = new GameEngine(world);
+        engine.enterRoom(world.getStartRoom());
+        for (int step = 0; step < steps; step++) {
+            engine.search();
+            int next = -1;
+            for (int exit : world.getExits(engine.getCurrentRoom().getId())) {
+                GameEngine.MoveResult result = engine.move(exit);
+                if (result == GameEngine.MoveResult.LOCKED) continue;
+                if (next < 0 || !engine.getVisitedRooms().contains(exit)) next = exit;
+                if (!engine.getVisitedRooms().contains(exit)) break;
+            }
+            if (next < 0) break;
+            engine.enterRoom(next);
+        }
+        return engine;
+    }
+
+    private static void assertSameGame(GameEngine expected, GameEngine actual) {
+        assertEquals(expected.getCurrentRoom().getId(), actual.getCurrentRoom().getId());
+        assertEquals(expected.getInventory(), actual.getInventory());
+        assertEquals(expected.getFoundItems(), actual.getFoundItems());
+        assertEquals(expected.getVisitedRooms(), actual.getVisitedRooms());
+        for (int roomId = 0; roomId < world.getRoomCount(); roomId++) {
+            assertEquals(expected.getState().isLocked(roomId), actual.getState().isLocked(roomId), "lock of " + roomId);
+            assertEquals(expected.getState().getItems(roomId), actual.getState().getItems(roomId), "items of " + roomId);
+        }
+    }
+
+    @Test
+    void restoresTheSavedGame() throws IOException {
+        GameEngine played = play(200);
+        assertTrue(played.getState().getLockChanges().length > 0, "the game should have unlocked a room");
+        assertTrue(played.getState().getItemChanges().length > 0, "the game should have taken an item");
+
+        byte[] snapshot = GameSnapshot.capture(played);
+        GameEngine restored = new GameEngine(world);
+        GameSnapshot.restore(restored, snapshot);
+        assertSameGame(played, restored);
+        assertArrayEquals(snapshot, GameSnapshot.capture(restored));
+    }
+
+    @Test
+    void restoreReplacesAnEarlierGame() throws IOException {
+        byte[] early = GameSnapshot.capture(play(3));
+        GameEngine restored = play(200);
+        GameSnapshot.restore(restored, early);
+        assertArrayEquals(early, GameSnapshot.capture(restored));
+    }
+
+    @Test
+    void refusesDamagedSnapshots() {
+        GameEngine played = play(50);
+        byte[] snapshot = GameSnapshot.capture(played);
+        byte[] before = GameSnapshot.capture(played);
+
+        byte[] badMagic = snapshot.clone();
+        badMagic[0] ^= 1;
+        assertThrows(IOException.class, () -> GameSnapshot.restore(played, badMagic));
+
+        byte[] badVersion = snapshot.clone();
+        badVersion[4] = (byte) (GameSnapshot.VERSION + 1);
+        assertThrows(IOException.class, () -> GameSnapshot.restore(played, badVersion));
+
+        for (int length = 0; length < snapshot.length; length += 7) {
+            byte[] truncated = Arrays.copyOf(snapshot, length);
+            assertThrows(IOException.class, () -> GameSnapshot.restore(played, truncated), "length " + length);
+        }
+
+        //A refused snapshot leaves the game as it was
+        assertArrayEquals(before, GameSnapshot.capture(played));
+    }
+
+    @Test
+    void refusesSnapshotsOfAnotherWorld() throws IOException {
+        World other = WorldLoader.load(new WorldGenerator(300, 60, 8).openReader(), "other");
+        byte[] snapshot = GameSnapshot.capture(play(10));
+        assertThrows(IOException.class, () -> GameSnapshot.restore(new GameEngine(other), snapshot));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+Description:  This class tests the word operations of the ItemSet class.
+ */
+
+package hauntedhouse;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests the word operations of {@link ItemSet}, around the 64 item boundaries of its words.
+ */
+class ItemSetTest {
+
+    private static ItemSet of(int capacity, int... itemIds) {
+        ItemSet set = new ItemSet(capacity);
+        for (int id : itemIds) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Test
+    void addsAndRemovesAcrossWords() {
+        ItemSet set = of(10, 0, 63, 64, 200);
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(63));
+        assertTrue(set.contains(64));
+        assertTrue(set.contains(200));
+        assertFalse(set.contains(1));
+        assertFalse(set.contains(1000));
+        assertEquals(4, set.size());
+
+        set.remove(63);
+        set.remove(1000);
+        assertFalse(set.contains(63));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    void containsAllAndAnyWithDifferentLengths() {
+        ItemSet small = of(64, 3, 40);
+        ItemSet large = of(256, 3, 40, 130);
+
+        assertTrue(large.containsAll(small));
+        assertFalse(small.containsAll(large));
+        assertTrue(small.containsAny(large));
+        assertFalse(small.containsAny(of(256, 130)));
+        assertTrue(small.containsAll(new ItemSet(512)));
+    }
+
+    @Test
+    void addAllAndRemoveAllWithDifferentLengths() {
+        ItemSet set = of(64, 1);
+        set.addAll(of(256, 2, 150));
+        assertEquals(of(256, 1, 2, 150), set);
+
+        set.removeAll(of(64, 1));
+        set.removeAll(of(512, 150, 400));
+        assertEquals(of(64, 2), set);
+
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    void nextItemVisitsItemsInOrder() {
+        ItemSet set = of(256, 5, 63, 64, 191);
+        StringBuilder visited = new StringBuilder();
+        for (int id = set.nextItem(0); id >= 0; id = set.nextItem(id + 1)) {
+            visited.append(id).append(' ');
+        }
+        assertEquals("5 63 64 191 ", visited.toString());
+        assertEquals(64, set.nextItem(64));
+        assertEquals(-1, set.nextItem(192));
+        assertEquals(-1, set.nextItem(10_000));
+        assertEquals("{5, 63, 64, 191}", set.toString());
+    }
+
+    @Test
+    void equalSetsOfDifferentCapacityHashTheSame() {
+        ItemSet small = of(64, 7);
+        ItemSet large = of(1024, 7);
+        assertEquals(small, large);
+        assertEquals(small.hashCode(), large.hashCode());
+        assertNotEquals(small, of(64, 8));
+    }
+
+    @Test
+    void wordsRoundTrip() {
+        ItemSet set = of(128, 0, 65, 127);
+        long[] words = set.toWords();
+        assertArrayEquals(new long[] {1L, 2L | 1L << 63}, words);
+        assertEquals(set, ItemSet.fromWords(words));
+        assertTrue(ItemSet.fromWords(new long[0]).isEmpty());
+
+        words[0] = 0;
+        assertTrue(set.contains(0), "toWords must return a copy");
+        ItemSet copy = set.copy();
+        copy.add(3);
+        assertFalse(set.contains(3), "copy must be independent");
+    }
+}
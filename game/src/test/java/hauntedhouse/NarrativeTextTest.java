@@ -0,0 +1,94 @@
+/*
+Description:  This class tests that narrative text is looked up by room and item, that missing
+messages fall back to generic ones and that a bad text file is reported when it is first used.
+ */
+
+package hauntedhouse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests {@link NarrativeText} on a small world and texts read from strings.
+ */
+class NarrativeTextTest {
+    private static World world;
+
+    @BeforeAll
+    static void loadWorld() throws IOException {
+        world = WorldLoader.load(new StringReader(String.join("\n",
+                "room Hall",
+                "    image: Hall.png",
+                "    exits: Vault, Study",
+                "    locked: false",
+                "    items: Key, Lamp",
+                "",
+                "room Vault",
+                "    image: Vault.png",
+                "    exits: Hall",
+                "    locked: true",
+                "    requires: Key",
+                "",
+                "room Study",
+                "    image: Study.png",
+                "    exits: Hall",
+                "    locked: true",
+                "    requires: Lamp",
+                "")), "narrative");
+    }
+
+    private static NarrativeText text(String... lines) {
+        byte[] bytes = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return new NarrativeText(world, "test text", () -> new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    void looksUpMessagesAndFallsBackToGenericOnes() {
+        NarrativeText text = text(
+                "room Vault",
+                "    locked: The vault will not move.",
+                "    unlocked: The vault swings open.",
+                "    locked: The vault is sealed shut.",
+                "",
+                "item Lamp",
+                "    inspect: An old \\tlamp.");
+        Room vault = world.getRoom(world.getRoomId("Vault"));
+        Room study = world.getRoom(world.getRoomId("Study"));
+
+        //A message given twice keeps the later one
+        assertEquals("The vault is sealed shut.", text.getLockedMessage(vault));
+        assertEquals("The vault swings open.", text.getUnlockMessage(vault, vault.getRequiredItems()));
+        assertEquals("An old \tlamp.", text.getItemDescription(world.getItemId("Lamp")));
+
+        assertTrue(text.getLockedMessage(study).startsWith("The door to Study is locked."), text.getLockedMessage(study));
+        assertTrue(text.getUnlockMessage(study, study.getRequiredItems()).contains("You used Lamp to unlock the Study!"));
+        assertTrue(text.getItemDescription(world.getItemId("Key")).startsWith("A mysterious item."));
+    }
+
+    @Test
+    void withoutASourceEveryMessageIsGeneric() {
+        NarrativeText text = new NarrativeText(world, "generic text", null);
+        Room vault = world.getRoom(world.getRoomId("Vault"));
+        assertTrue(text.getLockedMessage(vault).startsWith("The door to Vault is locked."));
+        assertTrue(text.getItemDescription(world.getItemId("Lamp")).startsWith("A mysterious item."));
+    }
+
+    @Test
+    void reportsABadTextWhenFirstUsed() {
+        NarrativeText text = text("room Cellar", "    locked: There is no cellar.");
+        Room vault = world.getRoom(world.getRoomId("Vault"));
+        UncheckedIOException error = assertThrows(UncheckedIOException.class, () -> text.getLockedMessage(vault));
+        assertTrue(error.getCause().getCause().getMessage().startsWith("test text:1: "), error.getCause().getCause().getMessage());
+    }
+}
@@ -0,0 +1,183 @@
+/*
+Description:  This class tests that room regions stay within their memory budget and make dropped
+rooms again exactly as they were.
+ */
+
+package hauntedhouse;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests {@link RoomRegions} on a corridor of rooms, each leading to the next, and on a generated house.
+ */
+class RoomRegionsTest {
+    private static final int ROOMS = 100;
+    private static final int REGION_SIZE = 10;
+
+    /**
+     * Makes the regions of a corridor, where each room's text is its own description.
+     */
+    private static RoomRegions corridor(long budget) {
+        int[][] exits = new int[ROOMS][];
+        for (int room = 0; room < ROOMS; room++) {
+            exits[room] = room + 1 < ROOMS ? new int[] {room + 1} : new int[0];
+        }
+        return new RoomRegions(exits, 0, REGION_SIZE, budget, room -> "Room " + room + " is cold.",
+                (id, text) -> new Room(id, "Room " + id, text, text, null, null, null, new String[0], false,
+                        new ItemSet(1), new ItemSet(1)));
+    }
+
+    @Test
+    void splitsNeighbouringRoomsIntoRegions() {
+        RoomRegions regions = corridor(Long.MAX_VALUE);
+        assertEquals(ROOMS / REGION_SIZE, regions.getRegionCount());
+        for (int room = 0; room < ROOMS; room++) {
+            assertEquals(room / REGION_SIZE, regions.getRegion(room), "region of room " + room);
+        }
+        assertEquals(0, regions.getRoomsMade(), "no room is made before it is asked for");
+
+        Room room = regions.getRoom(15);
+        assertEquals("Room 15 is cold.", room.getInitialDescription());
+        assertEquals(REGION_SIZE, regions.getRoomsMade(), "the whole region is made at once");
+        assertSame(room, regions.getRoom(15));
+        regions.getRoom(19);
+        assertEquals(REGION_SIZE, regions.getRoomsMade());
+    }
+
+    @Test
+    void dropsTheLeastRecentlyUsedRegionsOverBudget() {
+        //Room for about three regions
+        RoomRegions probe = corridor(Long.MAX_VALUE);
+        probe.getRoom(0);
+        long regionBytes = probe.getLoadedBytes();
+        RoomRegions regions = corridor(regionBytes * 3 + regionBytes / 2);
+
+        regions.getRoom(0);
+        regions.getRoom(10);
+        regions.getRoom(20);
+        assertEquals(3, regions.getLoadedRegionCount());
+
+        regions.getRoom(5); // Region 0 is now used more recently than region 1
+        regions.getRoom(30);
+        assertEquals(3, regions.getLoadedRegionCount());
+        assertTrue(regions.getLoadedBytes() <= regionBytes * 3 + regionBytes / 2);
+
+        int made = regions.getRoomsMade();
+        regions.getRoom(0);
+        regions.getRoom(20);
+        regions.getRoom(30);
+        assertEquals(made, regions.getRoomsMade(), "regions 0, 2 and 3 are still in memory");
+        regions.getRoom(10);
+        assertEquals(made + REGION_SIZE, regions.getRoomsMade(), "region 1 was dropped and is made again");
+    }
+
+    @Test
+    void keepsTheRegionJustLoadedUnderATinyBudget() {
+        RoomRegions regions = corridor(0);
+        for (int room = 0; room < ROOMS; room++) {
+            assertEquals(room, regions.getRoom(room).getId());
+            assertEquals(1, regions.getLoadedRegionCount());
+        }
+    }
+
+    @Test
+    void makesDroppedRoomsOfAHouseAgainEqualToTheFirst() throws IOException {
+        World world;
+        String before = System.getProperty(RoomRegions.BUDGET_PROPERTY);
+        try {
+            System.setProperty(RoomRegions.BUDGET_PROPERTY, "64K");
+            world = WorldLoader.load(new WorldGenerator(2_000, 100, 11).openReader(), "generated");
+        } finally {
+            restore(before);
+        }
+        RoomRegions regions = world.getRegions();
+        Room first = regions.getRoom(1_234);
+
+        for (int room = 0; room < world.getRoomCount(); room++) {
+            regions.getRoom(room);
+        }
+        assertTrue(regions.getLoadedRegionCount() < regions.getRegionCount(), "walking the house drops regions");
+        assertTrue(regions.getLoadedBytes() <= 64 << 10 || regions.getLoadedRegionCount() == 1);
+
+        Room again = regions.getRoom(1_234);
+        assertNotSame(first, again);
+        assertEquals(first.getName(), again.getName());
+        assertEquals(first.getInitialDescription(), again.getInitialDescription());
+        assertEquals(first.getImagePath(), again.getImagePath());
+        assertEquals(String.join(",", first.getExits()), String.join(",", again.getExits()));
+        assertEquals(first.getRequiredItems(), again.getRequiredItems());
+    }
+
+    @Test
+    void makesDroppedRoomsAgainInACorridor() {
+        RoomRegions regions = corridor(0);
+        Room first = regions.getRoom(42);
+        regions.getRoom(0);
+        Room again = regions.getRoom(42);
+        assertNotSame(first, again);
+        assertEquals(first.getId(), again.getId());
+        assertEquals(first.getInitialDescription(), again.getInitialDescription());
+    }
+
+    @Test
+    void compressesARegionWhenItIsFirstDropped() throws InterruptedException {
+        RoomRegions regions = corridor(0);
+        assertEquals(0, regions.getCompressedBytes(), "nothing is compressed before it is needed");
+        Room first = regions.getRoom(42);
+        assertEquals(0, regions.getCompressedBytes());
+        regions.getRoom(0);
+        assertTrue(regions.getCompressedBytes() > 0, "the dropped region is compressed");
+
+        RoomRegions background = corridor(Long.MAX_VALUE);
+        background.compressInBackground();
+        for (int tries = 0; background.getUncompressedCount() > 0 && tries < 500; tries++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, background.getUncompressedCount());
+        Room again = background.getRoom(42);
+        assertEquals(first.getInitialDescription(), again.getInitialDescription());
+        assertEquals(first.getLookDescription(), again.getLookDescription());
+    }
+
+    @Test
+    void parsesBudgets() {
+        assertEquals(1024, RoomRegions.parseBudget("1024"));
+        assertEquals(64L << 10, RoomRegions.parseBudget(" 64k "));
+        assertEquals(64L << 20, RoomRegions.parseBudget("64M"));
+        assertEquals(2L << 30, RoomRegions.parseBudget("2G"));
+        assertEquals(-1, RoomRegions.parseBudget("lots"));
+        assertEquals(-1, RoomRegions.parseBudget("M"));
+        assertEquals(-1, RoomRegions.parseBudget("-5M"));
+        assertEquals(-1, RoomRegions.parseBudget("99999999999999G"));
+        assertEquals(-1, RoomRegions.parseBudget("99999999999999999999"));
+    }
+
+    @Test
+    void fallsBackToTheDefaultBudget() {
+        String before = System.getProperty(RoomRegions.BUDGET_PROPERTY);
+        try {
+            System.setProperty(RoomRegions.BUDGET_PROPERTY, "a lot");
+            assertEquals(RoomRegions.DEFAULT_BUDGET, RoomRegions.configuredBudget());
+            System.setProperty(RoomRegions.BUDGET_PROPERTY, "8M");
+            assertEquals(8L << 20, RoomRegions.configuredBudget());
+        } finally {
+            restore(before);
+        }
+    }
+
+    private static void restore(String budget) {
+        if (budget == null) {
+            System.clearProperty(RoomRegions.BUDGET_PROPERTY);
+        } else {
+            System.setProperty(RoomRegions.BUDGET_PROPERTY, budget);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+Description:  This class tests that routes follow the locks of a game, also after its rooms are
+locked or unlocked.
+ */
+
+package hauntedhouse;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests {@link RouteIndex} on a generated house against a plain breadth-first search.
+ */
+class RouteIndexTest {
+    private static World world;
+
+    @BeforeAll
+    static void loadWorld() throws IOException {
+        world = WorldLoader.load(new WorldGenerator(300, 60, 7).openReader(), "generated");
+    }
+
+    /**
+     * The distances from a room through the unlocked rooms, worked out without the index.
+     */
+    private static int[] distances(WorldState state, int from) {
+        int[] distances = new int[world.getRoomCount()];
+        Arrays.fill(distances, -1);
+        distances[from] = 0;
+        int[] queue = new int[world.getRoomCount()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        while (head < tail) {
+            int room = queue[head++];
+            for (int exit : world.getExits(room)) {
+                if (distances[exit] < 0 && !state.isLocked(exit)) {
+                    distances[exit] = distances[room] + 1;
+                    queue[tail++] = exit;
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static void assertRoutes(WorldState state, int from) {
+        RouteIndex routes = state.getRoutes();
+        int[] expected = distances(state, from);
+        for (int to = 0; to < world.getRoomCount(); to++) {
+            assertEquals(expected[to], routes.getDistance(from, to), "distance from " + from + " to " + to);
+            int[] route = routes.getRoute(from, to);
+            if (expected[to] < 0) {
+                assertNull(route);
+                continue;
+            }
+            assertEquals(expected[to], route.length);
+            int room = from;
+            for (int next : route) {
+                assertTrue(Arrays.stream(world.getExits(room)).anyMatch(exit -> exit == next),
+                        next + " is not an exit of " + room);
+                room = next;
+            }
+        }
+    }
+
+    /**
+     * Finds a locked room next to a room that can be reached from the start.
+     */
+    private static int lockedNeighbour(WorldState state) {
+        int[] reachable = distances(state, world.getStartRoom());
+        for (int room = 0; room < world.getRoomCount(); room++) {
+            if (reachable[room] < 0) continue;
+            for (int exit : world.getExits(room)) {
+                if (state.isLocked(exit)) return exit;
+            }
+        }
+        throw new AssertionError("The generated house has no locked room");
+    }
+
+    @Test
+    void matchesABreadthFirstSearch() {
+        WorldState state = new WorldState(world);
+        for (int from = 0; from < world.getRoomCount(); from += 17) {
+            assertRoutes(state, from);
+        }
+    }
+
+    @Test
+    void followsUnlockingAndLocking() {
+        WorldState state = new WorldState(world);
+        int start = world.getStartRoom();
+        int locked = lockedNeighbour(state);
+        RouteIndex routes = state.getRoutes();
+        assertEquals(-1, routes.getDistance(start, locked));
+
+        long version = state.getLockVersion();
+        state.setLocked(locked, false);
+        assertNotEquals(version, state.getLockVersion());
+        assertTrue(routes.getDistance(start, locked) > 0, "the unlocked room should be reachable");
+        assertRoutes(state, start);
+
+        state.setLocked(locked, true);
+        assertEquals(-1, routes.getDistance(start, locked));
+        assertRoutes(state, start);
+
+        state.setLocked(locked, false);
+        state.reset();
+        assertEquals(-1, routes.getDistance(start, locked), "reset locks the room again");
+    }
+
+    @Test
+    void copiesFollowTheirOwnLocks() {
+        WorldState state = new WorldState(world);
+        int start = world.getStartRoom();
+        int locked = lockedNeighbour(state);
+        state.getRoutes().getDistance(start, locked);
+
+        WorldState copy = state.copy();
+        copy.setLocked(locked, false);
+        assertTrue(copy.getRoutes().getDistance(start, locked) > 0);
+        assertEquals(-1, state.getRoutes().getDistance(start, locked));
+    }
+
+    @Test
+    void keepsAnswersWhenSearchesAreDropped() {
+        WorldState state = new WorldState(world);
+        RouteIndex routes = state.getRoutes();
+        int[] rooms = new int[RouteIndex.CACHED_SEARCHES * 2];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = i * 31 % world.getRoomCount();
+        }
+        //Ask from more rooms than are kept, twice, so every search is dropped and done again
+        for (int round = 0; round < 2; round++) {
+            for (int from : rooms) {
+                assertArrayEquals(distances(state, from), distancesFrom(routes, from), "from " + from);
+            }
+        }
+    }
+
+    private static int[] distancesFrom(RouteIndex routes, int from) {
+        int[] distances = new int[world.getRoomCount()];
+        for (int to = 0; to < distances.length; to++) {
+            distances[to] = routes.getDistance(from, to);
+        }
+        return distances;
+    }
+}
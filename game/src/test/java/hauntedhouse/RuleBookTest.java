@@ -0,0 +1,242 @@
+/*
+Description:  This class tests that the rules of a world are read, matched and carried out, and
+that unlock rules decide which items are used up and what the player is told.
+ */
+
+package hauntedhouse;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests the rules of a small world read from a string: unlock rules that take only some of the
+ * required items or refuse to open a room, rules that give items and lock rooms, and the
+ * enter, search and look triggers.
+ */
+class RuleBookTest {
+    private static final String WORLD = String.join("\n",
+            "room Hall",
+            "    image: Hall.png",
+            "    exits: Vault, Library, Cellar",
+            "    locked: false",
+            "    items: Key, Gem",
+            "",
+            "room Vault",
+            "    image: Vault.png",
+            "    exits: Hall",
+            "    locked: true",
+            "    requires: Key, Gem",
+            "",
+            "room Library",
+            "    image: Library.png",
+            "    exits: Hall, Study",
+            "    locked: false",
+            "    items: Map",
+            "",
+            "room Study",
+            "    image: Study.png",
+            "    exits: Library",
+            "    locked: true",
+            "    requires: Map",
+            "",
+            "room Cellar",
+            "    image: Cellar.png",
+            "    exits: Hall",
+            "    locked: true",
+            "    requires: Lamp",
+            "",
+            "rule unlock Vault",
+            "    take: Key",
+            "",
+            "rule unlock Study",
+            "    has: Lamp",
+            "    take: Map",
+            "    message: The lamp shows a hidden latch.",
+            "",
+            "rule search Library",
+            "    give: Lamp",
+            "    lock: Vault",
+            "    message: A lamp rolls out from under a shelf.",
+            "",
+            "rule look Hall",
+            "    visited: Library",
+            "    message: You remember the smell of old books.",
+            "",
+            "rule enter Cellar",
+            "    lacks: Coin",
+            "    give: Coin",
+            "    message: A coin glints on the floor.",
+            "");
+
+    private static World world;
+
+    @BeforeAll
+    static void loadWorld() throws IOException {
+        world = WorldLoader.load(new StringReader(WORLD), "rules");
+    }
+
+    /**
+     * A game in the hall with everything it says kept, to check the messages against.
+     */
+    private static class Game {
+        final GameEngine engine = new GameEngine(world);
+        final List<String> messages = new ArrayList<>();
+
+        Game() {
+            engine.addListener(new GameListener() {
+                @Override
+                public void onMessage(String text) {
+                    messages.add(text);
+                }
+            });
+            engine.enterRoom(world.getStartRoom());
+        }
+
+        void go(String room) {
+            int roomId = world.getRoomId(room);
+            GameEngine.MoveResult result = engine.move(roomId);
+            assertTrue(result == GameEngine.MoveResult.OPEN || result == GameEngine.MoveResult.UNLOCKED,
+                    room + " is " + result);
+            engine.enterRoom(roomId);
+        }
+
+        boolean carries(String item) {
+            return engine.getInventory().contains(world.getItemId(item));
+        }
+
+        String lastMessage() {
+            return messages.get(messages.size() - 1);
+        }
+    }
+
+    @Test
+    void compilesTheRulesByRoomAndTrigger() {
+        RuleBook rules = world.getRules();
+        assertEquals(5, rules.size());
+        int vault = world.getRoomId("Vault");
+        assertEquals(1, rules.end(vault, RuleBook.Trigger.UNLOCK) - rules.start(vault, RuleBook.Trigger.UNLOCK));
+        assertEquals(0, rules.end(vault, RuleBook.Trigger.ENTER) - rules.start(vault, RuleBook.Trigger.ENTER));
+        //Items only a rule mentions are items of the world too
+        assertTrue(world.getItemId("Lamp") >= 0);
+        assertTrue(world.getItemId("Coin") >= 0);
+    }
+
+    @Test
+    void unlockRuleTakesOnlyItsItems() {
+        Game game = new Game();
+        game.engine.search();
+
+        assertEquals(GameEngine.MoveResult.UNLOCKED, game.engine.move(world.getRoomId("Vault")));
+        assertFalse(game.carries("Key"));
+        assertTrue(game.carries("Gem"), "the rule does not take the gem");
+        assertTrue(game.lastMessage().contains("You used Key to unlock the Vault!"), game.lastMessage());
+        assertFalse(game.lastMessage().contains("Gem"), game.lastMessage());
+    }
+
+    @Test
+    void unlockIsRefusedWhenNoRuleMatches() {
+        Game game = new Game();
+        game.go("Library");
+        //Carry the map without the lamp the library's search rule hands out
+        game.engine.restore(world.getRoomId("Library"), itemSet("Map"), itemSet("Map"), game.engine.getVisitedRooms());
+
+        assertEquals(GameEngine.MoveResult.LOCKED, game.engine.move(world.getRoomId("Study")));
+        assertTrue(game.engine.getState().isLocked(world.getRoomId("Study")));
+        assertTrue(game.carries("Map"), "a refused unlock takes nothing");
+        assertTrue(game.lastMessage().startsWith("The door to Study is locked."), game.lastMessage());
+    }
+
+    @Test
+    void ruleMessageReplacesTheUnlockMessage() {
+        Game game = new Game();
+        game.go("Library");
+        game.engine.search();
+
+        int before = game.messages.size();
+        assertEquals(GameEngine.MoveResult.UNLOCKED, game.engine.move(world.getRoomId("Study")));
+        assertEquals(List.of("The lamp shows a hidden latch."), game.messages.subList(before, game.messages.size()));
+        assertFalse(game.carries("Map"));
+        assertTrue(game.carries("Lamp"));
+    }
+
+    @Test
+    void searchRuleGivesItemsAndLocksRooms() {
+        Game game = new Game();
+        game.engine.search();
+        game.go("Vault");
+        game.go("Hall");
+        game.go("Library");
+        game.engine.search();
+
+        assertTrue(game.carries("Lamp"));
+        assertTrue(game.engine.getFoundItems().contains(world.getItemId("Lamp")));
+        assertTrue(game.engine.getState().isLocked(world.getRoomId("Vault")), "the rule locks the vault again");
+        assertEquals("A lamp rolls out from under a shelf.", game.lastMessage());
+
+        //A room without unlock rules still uses up every required item
+        game.go("Hall");
+        assertEquals(GameEngine.MoveResult.UNLOCKED, game.engine.move(world.getRoomId("Cellar")));
+        assertFalse(game.carries("Lamp"));
+        assertTrue(game.lastMessage().contains("You used Lamp to unlock the Cellar!"), game.lastMessage());
+    }
+
+    @Test
+    void enterAndLookRulesCheckTheirConditions() {
+        Game game = new Game();
+        game.engine.look();
+        assertFalse(game.messages.contains("You remember the smell of old books."));
+        game.go("Library");
+        game.go("Hall");
+        game.engine.look();
+        assertEquals("You remember the smell of old books.", game.lastMessage());
+
+        game.go("Library");
+        game.engine.search();
+        game.go("Hall");
+        game.go("Cellar");
+        assertTrue(game.carries("Coin"));
+        assertEquals("A coin glints on the floor.", game.lastMessage());
+
+        //The player carries the coin now, so the rule does not match again
+        game.go("Hall");
+        game.go("Cellar");
+        assertEquals(1, game.messages.stream().filter("A coin glints on the floor."::equals).count());
+    }
+
+    @Test
+    void refusesBadRules() {
+        assertParseError("rule dance Hall\n", 1);
+        assertParseError("rule look Hall\n    shout: loudly\n", 2);
+        assertParseError("rule look Nowhere\n    message: Nothing.\n", 1);
+        assertParseError("rule look Hall\n    unlock: Nowhere\n", 1);
+    }
+
+    /**
+     * Checks that a world with a rule block added at its end is refused, naming the right line.
+     */
+    private static void assertParseError(String rule, int line) {
+        int firstLine = (int) WORLD.chars().filter(c -> c == '\n').count() + 1;
+        IOException error = assertThrows(IOException.class,
+                () -> WorldLoader.load(new StringReader(WORLD + rule), "rules"));
+        assertTrue(error.getMessage().startsWith("rules:" + (firstLine + line - 1) + ": "), error.getMessage());
+    }
+
+    private static ItemSet itemSet(String... items) {
+        ItemSet set = new ItemSet(world.getItemCount());
+        for (String item : items) {
+            set.add(world.getItemId(item));
+        }
+        return set;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+Description:  This class tests that the startup report is made from the marks and that a bad
+startup budget is ignored instead of failing the first frame.
+ */
+
+package hauntedhouse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests {@link StartupProfile} and the parsing of its budget.
+ */
+class StartupProfileTest {
+    private final String before = System.getProperty(StartupProfile.BUDGET_PROPERTY);
+
+    @AfterEach
+    void restoreBudget() {
+        if (before == null) {
+            System.clearProperty(StartupProfile.BUDGET_PROPERTY);
+        } else {
+            System.setProperty(StartupProfile.BUDGET_PROPERTY, before);
+        }
+    }
+
+    @Test
+    void parsesBudgets() {
+        assertEquals(1500, StartupProfile.parseBudget("1500"));
+        assertEquals(0, StartupProfile.parseBudget(" 0 "));
+        assertEquals(-1, StartupProfile.parseBudget("1.5s"));
+        assertEquals(-1, StartupProfile.parseBudget("-20"));
+        assertEquals(-1, StartupProfile.parseBudget("99999999999999999999"));
+    }
+
+    @Test
+    void reportsEveryPhaseWithABadBudget() {
+        System.setProperty(StartupProfile.BUDGET_PROPERTY, "fast");
+        assertEquals(-1, StartupProfile.configuredBudget());
+
+        StartupProfile.begin();
+        StartupProfile.mark("First phase");
+        StartupProfile.mark("Second phase");
+        String report = StartupProfile.finish();
+        assertFalse(StartupProfile.isRecording());
+        assertTrue(report.contains("First phase") && report.contains("Second phase"), report);
+    }
+}
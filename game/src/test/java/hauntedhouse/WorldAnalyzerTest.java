@@ -0,0 +1,95 @@
+/*
+Description:  This class tests that the steps the world analyzer reports can be played in the game.
+ */
+
+package hauntedhouse;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests {@link WorldAnalyzer} on generated houses, which can always be won, and on small houses
+ * with traps, in both the exact and the reduced game.
+ */
+class WorldAnalyzerTest {
+
+    @ParameterizedTest
+    @CsvSource({"20, 4, 5", "40, 8, 3", "300, 60, 7", "1000, 100, 9"})
+    void reportedStepsReplayInTheGame(int rooms, int items, long seed) throws IOException {
+        World world = WorldLoader.load(new WorldGenerator(rooms, items, seed).openReader(), "generated");
+        WorldAnalyzer analyzer = new WorldAnalyzer(world, WorldAnalyzer.findEndRooms(world));
+
+        for (WorldAnalyzer.Report report : new WorldAnalyzer.Report[] {
+                analyzer.explore(false, 100_000), analyzer.explore(true, 100_000)}) {
+            if (!report.isComplete()) continue;
+            assertTrue(report.isSolvable(), report.toString());
+            assertNull(report.getReplayProblem(), report.toString());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"20, 4, 5", "30, 6, 1", "40, 8, 3"})
+    void reducedGameAgreesWithTheExactGameOnGeneratedHouses(int rooms, int items, long seed) throws IOException {
+        World world = WorldLoader.load(new WorldGenerator(rooms, items, seed).openReader(), "generated");
+        compareGames(world);
+    }
+
+    @Test
+    void reducedGameFindsASoftLockOfTheExactGame() throws IOException {
+        //Using the key on the vault leaves the gate locked for good
+        World world = house(
+                "room Hall", "    image: Hall.png", "    exits: Vault, Gate", "    locked: false", "    items: Key", "",
+                "room Vault", "    image: Vault.png", "    exits: Hall", "    locked: true", "    requires: Key", "",
+                "room Gate", "    image: Gate.png", "    locked: true", "    requires: Key");
+        WorldAnalyzer.Report reduced = compareGames(world);
+        assertTrue(reduced.isSolvable());
+        assertTrue(reduced.getSoftLockCount() > 0, reduced.toString());
+    }
+
+    @Test
+    void reducedGameFindsAnUnwinnableHouse() throws IOException {
+        //The key is behind the door it opens
+        World world = house(
+                "room Hall", "    image: Hall.png", "    exits: Vault", "    locked: false", "",
+                "room Vault", "    image: Vault.png", "    exits: Gate", "    locked: true", "    requires: Key",
+                "    items: Key", "",
+                "room Gate", "    image: Gate.png", "    locked: false");
+        WorldAnalyzer.Report reduced = compareGames(world);
+        assertTrue(reduced.isUnwinnable(), reduced.toString());
+    }
+
+    private static World house(String... lines) throws IOException {
+        return WorldLoader.load(new StringReader(String.join("\n", lines) + "\n"), "house");
+    }
+
+    /**
+     * Analyzes a world completely in both games and checks that they agree where the reduced game
+     * promises to.
+     *
+     * @return The report of the reduced game.
+     */
+    private static WorldAnalyzer.Report compareGames(World world) {
+        WorldAnalyzer analyzer = new WorldAnalyzer(world, WorldAnalyzer.findEndRooms(world));
+        WorldAnalyzer.Report exact = analyzer.explore(false, 100_000);
+        WorldAnalyzer.Report reduced = analyzer.explore(true, 100_000);
+        assertTrue(exact.isComplete() && reduced.isComplete(), exact + "\n" + reduced);
+
+        assertEquals(exact.isSolvable(), reduced.isSolvable(), exact + "\n" + reduced);
+        assertEquals(exact.isUnwinnable(), reduced.isUnwinnable(), exact + "\n" + reduced);
+        if (reduced.getSoftLockCount() > 0) {
+            assertTrue(exact.getSoftLockCount() > 0, "a soft-lock of the reduced game is one of the exact game");
+        }
+        assertNull(exact.getReplayProblem(), exact.toString());
+        assertNull(reduced.getReplayProblem(), reduced.toString());
+        return reduced;
+    }
+}
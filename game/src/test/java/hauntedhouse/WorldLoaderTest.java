@@ -0,0 +1,54 @@
+/*
+Description:  This class tests that world definitions the game cannot be played in are refused
+when they are loaded.
+ */
+
+package hauntedhouse;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests {@link WorldLoader} on small worlds read from strings.
+ */
+class WorldLoaderTest {
+
+    private static String world(boolean startLocked, String requires) {
+        return String.join("\n",
+                "room Porch",
+                "    image: Porch.png",
+                "    exits: Hall",
+                "    locked: " + startLocked,
+                "    requires: " + requires,
+                "",
+                "room Hall",
+                "    image: Hall.png",
+                "    exits: Porch",
+                "    locked: false",
+                "    items: Key",
+                "");
+    }
+
+    @Test
+    void loadsAnOpenStartRoom() throws IOException {
+        World loaded = WorldLoader.load(new StringReader(world(false, "")), "porch");
+        assertEquals(0, loaded.getStartRoom());
+        assertEquals("Porch", loaded.getRoom(loaded.getStartRoom()).getName());
+    }
+
+    @Test
+    void refusesALockedStartRoom() {
+        for (String requires : new String[] {"", "Key"}) {
+            IOException error = assertThrows(IOException.class,
+                    () -> WorldLoader.load(new StringReader(world(true, requires)), "porch"));
+            assertTrue(error.getMessage().startsWith("porch:1: "), error.getMessage());
+        }
+    }
+}
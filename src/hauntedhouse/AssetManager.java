@@ -0,0 +1,291 @@
+/*
+Description:  This class finds the game's pictures and data on the classpath and loads them in the
+background, so the game works from a packaged JAR and the window never freezes while loading.
+ */
+
+package hauntedhouse;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.scene.image.Image;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+
+/**
+ * The {@code AssetManager} class loads the game's assets.
+ * Assets are named by their path below the {@code resources} folder, for example
+ * {@code image/FrontYard.png}, and are looked up on the classpath instead of the file system.
+ * If an {@link AssetPack} has been built, the pictures in it are read from the pack instead.
+ * <p>
+ * There are two ways to load an image.  {@link #loadImage(String)} decodes it completely on a
+ * background executor and returns a future, which is used for the assets needed before the game
+ * can start.  {@link #image(String)} creates an image in JavaFX's background-loading mode, which
+ * returns at once; {@link #whenLoaded(Image, Runnable)} then runs code once it is ready.
+ * The {@link #progressProperty()} tracks every load started through {@link #loadImage(String)}
+ * and {@link #submit(Callable)}, and drives the loading screen.
+ */
+public class AssetManager {
+    public static final String RESOURCE_ROOT = "/resources/";
+
+    private final ExecutorService executor;
+    private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(this, "progress", 1.0);
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+
+    /**
+     * Constructs a new {@code AssetManager} with its own background threads.
+     */
+    public AssetManager() {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "asset-loader");
+            thread.setDaemon(true); // Loading threads must never keep the game from closing
+            return thread;
+        });
+    }
+
+    /**
+     * Finds an asset in the asset pack or on the classpath.
+     *
+     * @param path The asset path below the resources folder, such as {@code image/Attic.png}.
+     * @return The URL of the asset, or {@code null} if it does not exist.
+     */
+    public static URL resolve(String path) {
+        AssetPack pack = AssetPack.getInstalled();
+        if (pack != null && pack.contains(path)) {
+            return pack.url(path);
+        }
+        return AssetManager.class.getResource(RESOURCE_ROOT + path);
+    }
+
+    /**
+     * Lists the assets in a folder, from the {@link AssetPack} and from the classpath, which is
+     * much quicker than looking each one up when most of the names asked about do not exist.
+     *
+     * @param folder The asset path of the folder, ending with a slash, such as {@code image/icons/}.
+     * @return The asset paths of the files directly in the folder, or {@code null} if the folder
+     *         is somewhere that cannot be listed, in which case {@link #resolve(String)} still works.
+     */
+    public static Set<String> list(String folder) {
+        Set<String> paths = new HashSet<>();
+        AssetPack pack = AssetPack.getInstalled();
+        if (pack != null) {
+            for (String name : pack.getNames()) {
+                if (name.startsWith(folder) && name.indexOf('/', folder.length()) < 0) paths.add(name);
+            }
+        }
+
+        URL url = AssetManager.class.getResource(RESOURCE_ROOT + folder);
+        if (url == null) return paths;
+        try {
+            if (url.getProtocol().equals("file")) {
+                try (Stream<Path> files = Files.list(Paths.get(url.toURI()))) {
+                    files.filter(Files::isRegularFile).forEach(file -> paths.add(folder + file.getFileName()));
+                }
+                return paths;
+            }
+            if (url.getProtocol().equals("jar")) {
+                JarURLConnection connection = (JarURLConnection) url.openConnection();
+                connection.setUseCaches(false); // An own copy of the JAR, the shared one must stay open
+                String prefix = connection.getEntryName();
+                prefix = prefix.endsWith("/") ? prefix : prefix + "/";
+                try (JarFile jar = connection.getJarFile()) {
+                    for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                        String name = entries.nextElement().getName();
+                        if (name.startsWith(prefix) && name.length() > prefix.length()
+                                && name.indexOf('/', prefix.length()) < 0) {
+                            paths.add(folder + name.substring(prefix.length()));
+                        }
+                    }
+                }
+                return paths;
+            }
+        } catch (IOException | URISyntaxException e) {
+            System.err.println("Could not list the assets in " + folder + ": " + e);
+        }
+        return null;
+    }
+
+    /**
+     * Creates an image that loads in JavaFX's background-loading mode.  The image is returned
+     * at once and fills in when it has been decoded, or reports an error if the asset is missing.
+     * Must be called on the JavaFX application thread.
+     *
+     * @param path The asset path of the image.
+     * @return The image, which may still be loading.
+     */
+    public Image image(String path) {
+        return image(path, 0, 0);
+    }
+
+    /**
+     * Creates an image that loads in JavaFX's background-loading mode and is scaled while it is
+     * decoded to fit in the given size, keeping its aspect ratio.  Only the scaled pixels are
+     * ever kept in memory.
+     * Must be called on the JavaFX application thread.
+     *
+     * @param path The asset path of the image.
+     * @param width The width to fit the image in, or 0 for its own width.
+     * @param height The height to fit the image in, or 0 for its own height.
+     * @return The image, which may still be loading.
+     */
+    public Image image(String path, double width, double height) {
+        URL url = resolve(path);
+        //A missing asset still gets an Image, in its error state, so callers have one code path
+        return load(url != null ? url.toExternalForm() : RESOURCE_ROOT + path, path, width, height);
+    }
+
+    /**
+     * Creates an image from a URL in JavaFX's background-loading mode and measures how long it
+     * takes to load.  Must be called on the JavaFX application thread.
+     *
+     * @param url The URL of the image, which may also be a file outside the classpath.
+     * @param name The name the load is measured under.
+     * @param width The width to fit the image in, or 0 for its own width.
+     * @param height The height to fit the image in, or 0 for its own height.
+     * @return The image, which may still be loading.
+     */
+    Image load(String url, String name, double width, double height) {
+        Metrics.ImageLoadEvent measurement = new Metrics.ImageLoadEvent(name);
+        Image image = new Image(url, width, height, true, true, true);
+        whenLoaded(image, () -> measurement.finish(image.isError()));
+        return image;
+    }
+
+    /**
+     * Loads and fully decodes an image on the background executor.
+     *
+     * @param path The asset path of the image.
+     * @return A future that completes with the decoded image, or fails if it cannot be loaded.
+     */
+    public CompletableFuture<Image> loadImage(String path) {
+        return loadImage(path, 0, 0);
+    }
+
+    /**
+     * Loads and fully decodes an image on the background executor, scaled while it is decoded to
+     * fit in the given size, keeping its aspect ratio.
+     *
+     * @param path The asset path of the image.
+     * @param width The width to fit the image in, or 0 for its own width.
+     * @param height The height to fit the image in, or 0 for its own height.
+     * @return A future that completes with the decoded image, or fails if it cannot be loaded.
+     */
+    public CompletableFuture<Image> loadImage(String path, double width, double height) {
+        return submit(() -> {
+            Metrics.ImageLoadEvent measurement = new Metrics.ImageLoadEvent(path);
+            boolean failed = true;
+            try {
+                URL url = resolve(path);
+                if (url == null) {
+                    throw new FileNotFoundException("Missing asset: " + path);
+                }
+                Image image = new Image(url.toExternalForm(), width, height, true, true);
+                if (image.isError()) {
+                    throw new IllegalStateException("Could not decode " + path, image.getException());
+                }
+                failed = false;
+                return image;
+            } finally {
+                measurement.finish(failed);
+            }
+        });
+    }
+
+    /**
+     * Runs a loading task on the background executor and counts it in the progress.
+     *
+     * @param task The task to run.
+     * @param <T> The type of the task's result.
+     * @return A future that completes with the result of the task.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        started.incrementAndGet();
+        updateProgress();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                finished.incrementAndGet();
+                updateProgress();
+            }
+        }, executor);
+    }
+
+    /**
+     * Gets the share of started loads that have finished, from 0 to 1.
+     * The property only changes on the JavaFX application thread.
+     *
+     * @return The loading progress property.
+     */
+    public ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    private void updateProgress() {
+        Platform.runLater(() -> {
+            int total = started.get();
+            progress.set(total == 0 ? 1.0 : (double) finished.get() / total);
+        });
+    }
+
+    /**
+     * Runs an action on the JavaFX application thread once an image has finished loading,
+     * or right away if it already has.  The action also runs if loading failed.
+     * Must be called on the JavaFX application thread.
+     *
+     * @param image The image to wait for.
+     * @param action The action to run.
+     */
+    public static void whenLoaded(Image image, Runnable action) {
+        if (image.getProgress() >= 1.0 || image.isError()) {
+            action.run();
+            return;
+        }
+
+        InvalidationListener listener = new InvalidationListener() {
+            @Override
+            public void invalidated(Observable observable) {
+                if (image.getProgress() >= 1.0 || image.isError()) {
+                    image.progressProperty().removeListener(this);
+                    image.errorProperty().removeListener(this);
+                    action.run();
+                }
+            }
+        };
+        image.progressProperty().addListener(listener);
+        image.errorProperty().addListener(listener);
+    }
+
+    /**
+     * Stops the background threads.  Loads that have not started yet are dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
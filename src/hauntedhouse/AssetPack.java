@@ -0,0 +1,418 @@
+/*
+Description:  This class packs the game's pictures into one file and reads them back through a
+memory map, so the game opens one file at startup instead of one per picture.
+ */
+
+package hauntedhouse;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.net.spi.URLStreamHandlerProvider;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * The {@code AssetPack} class is a read-only archive of assets that is mapped into memory.
+ * <p>
+ * A pack starts with a 16 byte header: the magic {@code HHPK}, the format version, the number of
+ * entries and the size of the name table.  An index of fixed-size 16 byte records follows, one
+ * per entry in name order, each holding the offset and length of the entry's bytes and where its
+ * name starts in the name table.  The name table holds every name as a 2 byte length and its
+ * UTF-8 bytes, and the entries' bytes follow, each starting on an 8 byte boundary.
+ * <p>
+ * The whole file is mapped once, and only the names are read when it is opened.  Getting an
+ * entry is a binary search over the names and a {@link ByteBuffer} view of the mapped file, so
+ * no bytes are copied until the entry is decoded.  Entries are also available as
+ * {@code hhpack:} URLs, which is how JavaFX loads images from the pack; see
+ * {@link AssetManager#resolve(String)}.  JavaFX opens an image URL from its text, so the JDK
+ * finds the protocol through {@link HandlerProvider}, named in
+ * {@code META-INF/services/java.net.spi.URLStreamHandlerProvider}, instead of the JVM's only
+ * URL handler factory.
+ * <p>
+ * Maven builds the pack into {@code game/target/classes/resources} when it compiles the game,
+ * by running {@link #main(String[])}.  Without a pack the game loads the loose files.
+ */
+public final class AssetPack {
+    public static final String PROTOCOL = "hhpack";
+    //The pack is looked for next to the loose assets on the classpath
+    public static final String PACK_PATH = "assets.pack";
+    //Set to the path of a pack to use it from anywhere, such as beside a packaged JAR
+    public static final String PACK_PROPERTY = "hauntedhouse.assets";
+
+    private static final int MAGIC = 0x4848504B; // "HHPK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 16;
+    private static final int ALIGNMENT = 8;
+
+    private static final URLStreamHandler HANDLER = new Handler();
+    private static final Object INSTALL_LOCK = new Object();
+    private static volatile boolean installTried;
+    private static volatile AssetPack installed;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final String[] names; // Sorted, in the order of the index
+    private final long lastModified;
+
+    private AssetPack(Path file, MappedByteBuffer buffer, String[] names, long lastModified) {
+        this.file = file;
+        this.buffer = buffer;
+        this.names = names;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Maps a pack file into memory and reads its index.
+     *
+     * @param file The pack file.
+     * @return The opened {@code AssetPack}.
+     * @throws IOException If the file cannot be read or is not a pack.
+     */
+    public static AssetPack open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            //The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not an asset pack");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException(file + " has unsupported asset pack version " + buffer.getInt(4));
+        }
+
+        int count = buffer.getInt(8);
+        int nameTableSize = buffer.getInt(12);
+        long namesStart = HEADER_SIZE + (long) count * RECORD_SIZE;
+        if (count < 0 || nameTableSize < 0 || namesStart + nameTableSize > buffer.limit()) {
+            throw new IOException(file + " has a damaged index");
+        }
+
+        //Every record is checked once here, so getting an entry never reads outside the file
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            long offset = buffer.getLong(record);
+            int length = buffer.getInt(record + 8);
+            int nameOffset = buffer.getInt(record + 12);
+            if (offset < 0 || length < 0 || offset > buffer.limit() - length
+                    || nameOffset < 0 || nameOffset > nameTableSize - 2) {
+                throw new IOException(file + " has a damaged index");
+            }
+            int at = (int) namesStart + nameOffset;
+            byte[] name = new byte[buffer.getShort(at) & 0xFFFF];
+            if (nameOffset + 2 + name.length > nameTableSize) {
+                throw new IOException(file + " has a damaged index");
+            }
+            buffer.get(at + 2, name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            //The binary search of get needs the names in increasing order
+            if (i > 0 && names[i - 1].compareTo(names[i]) >= 0) {
+                throw new IOException(file + " has a damaged index");
+            }
+        }
+        return new AssetPack(file, buffer, names, Files.getLastModifiedTime(file).toMillis());
+    }
+
+    /**
+     * Gets the pack the game's assets are loaded from, opening it the first time.  The pack is
+     * {@value #PACK_PATH} next to the loose assets, or the file named by the
+     * {@value #PACK_PROPERTY} system property.
+     *
+     * @return The pack, or {@code null} if there is none or it cannot be used.
+     */
+    public static AssetPack getInstalled() {
+        if (installTried) return installed;
+
+        synchronized (INSTALL_LOCK) {
+            if (installTried) return installed;
+            installTried = true;
+
+            Path file = null;
+            String property = System.getProperty(PACK_PROPERTY);
+            URL resource = AssetManager.class.getResource(AssetManager.RESOURCE_ROOT + PACK_PATH);
+            try {
+                if (property != null) {
+                    file = Paths.get(property);
+                } else if (resource != null && resource.getProtocol().equals("file")) {
+                    file = Paths.get(resource.toURI());
+                }
+                if (file == null) return null; // No pack, or one inside a JAR, which cannot be mapped
+
+                installed = open(file);
+            } catch (IOException | URISyntaxException e) {
+                System.err.println("Could not open the asset pack " + file + ", using the loose assets: " + e);
+            }
+            return installed;
+        }
+    }
+
+    /**
+     * Gets the file the pack was opened from.
+     *
+     * @return The path of the pack.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the names of the entries.
+     *
+     * @return The asset paths, in increasing order.
+     */
+    public List<String> getNames() {
+        return List.of(names);
+    }
+
+    /**
+     * Checks whether the pack has an entry.
+     *
+     * @param path The asset path, such as {@code image/Attic.png}.
+     * @return {@code true} if the pack holds the asset.
+     */
+    public boolean contains(String path) {
+        return Arrays.binarySearch(names, path) >= 0;
+    }
+
+    /**
+     * Gets the bytes of an entry without copying them.
+     *
+     * @param path The asset path.
+     * @return A read-only buffer over the entry's bytes in the mapped file, or {@code null} if
+     *         the pack does not hold the asset.
+     */
+    public ByteBuffer get(String path) {
+        int index = Arrays.binarySearch(names, path);
+        if (index < 0) return null;
+
+        int record = HEADER_SIZE + index * RECORD_SIZE;
+        return buffer.slice(Math.toIntExact(buffer.getLong(record)), buffer.getInt(record + 8)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the URL of an entry, which JavaFX can load images from.
+     *
+     * @param path The asset path.
+     * @return The {@code hhpack:} URL of the asset.
+     */
+    public URL url(String path) {
+        try {
+            return new URL(null, PROTOCOL + ":/" + path, HANDLER);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Not an asset path: " + path, e);
+        }
+    }
+
+    /**
+     * Packs every file below a folder into a new pack file.  The pack is written to a temporary
+     * file first, so a game that is running never sees half a pack.
+     *
+     * @param root The folder the asset paths are relative to, such as {@code src/resources}.
+     * @param folder The folder below {@code root} to pack, such as {@code image}.
+     * @param file The pack file to write.
+     * @return The number of entries packed.
+     * @throws IOException If a file cannot be read or the pack cannot be written.
+     */
+    public static int write(Path root, String folder, Path file) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root.resolve(folder))) {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        List<String> sorted = new ArrayList<>(files.size());
+        for (Path path : files) {
+            sorted.add(root.relativize(path).toString().replace('\\', '/'));
+        }
+        sorted.sort(null); // The same order as String.compareTo, which the binary search uses
+
+        //The name table, then the offset of every entry
+        int count = sorted.size();
+        ByteBuffer nameTable = ByteBuffer.allocate(count * 2 + sorted.stream().mapToInt(n -> n.getBytes(StandardCharsets.UTF_8).length).sum());
+        int[] nameOffsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            byte[] name = sorted.get(i).getBytes(StandardCharsets.UTF_8);
+            nameOffsets[i] = nameTable.position();
+            nameTable.putShort((short) name.length).put(name);
+        }
+        long[] offsets = new long[count];
+        long[] lengths = new long[count];
+        long position = align(HEADER_SIZE + (long) count * RECORD_SIZE + nameTable.capacity());
+        for (int i = 0; i < count; i++) {
+            offsets[i] = position;
+            lengths[i] = Files.size(root.resolve(sorted.get(i)));
+            position = align(position + lengths[i]);
+        }
+
+        ByteBuffer index = ByteBuffer.allocate(HEADER_SIZE + count * RECORD_SIZE);
+        index.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(nameTable.capacity());
+        for (int i = 0; i < count; i++) {
+            index.putLong(offsets[i]).putInt(Math.toIntExact(lengths[i])).putInt(nameOffsets[i]);
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            out.write(index.array());
+            out.write(nameTable.array());
+            long written = index.capacity() + nameTable.capacity();
+            for (int i = 0; i < count; i++) {
+                out.write(new byte[(int) (offsets[i] - written)]);
+                Files.copy(root.resolve(sorted.get(i)), out);
+                written = offsets[i] + lengths[i];
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * Packs the game's pictures, the room pictures and item icons, and lists what was packed.
+     *
+     * @param args The resources folder ({@code src/resources} by default) and the pack file
+     *             ({@code game/target/classes/resources/assets.pack} by default, where the game
+     *             finds it when run from the build).
+     * @throws IOException If the pack cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = Paths.get(args.length > 0 ? args[0] : "src/resources");
+        Path file = Paths.get(args.length > 1 ? args[1] : "game/target/classes/resources/" + PACK_PATH);
+
+        int count = write(root, "image", file);
+        AssetPack pack = open(file);
+        for (String name : pack.getNames()) {
+            System.out.printf("%10d  %s%n", pack.get(name).remaining(), name);
+        }
+        System.out.println(count + " assets packed into " + file + " (" + Files.size(file) + " bytes)");
+    }
+
+    /**
+     * Gives the JDK the handler of {@code hhpack:} URLs, when a URL is made from its text.
+     */
+    public static final class HandlerProvider extends URLStreamHandlerProvider {
+        @Override
+        public URLStreamHandler createURLStreamHandler(String protocol) {
+            return protocol.equals(PROTOCOL) ? HANDLER : null;
+        }
+    }
+
+    /**
+     * Opens {@code hhpack:} URLs on the installed pack.
+     */
+    private static class Handler extends URLStreamHandler {
+        @Override
+        protected URLConnection openConnection(URL url) {
+            return new PackConnection(url);
+        }
+    }
+
+    /**
+     * A connection to one entry of the installed pack.
+     */
+    private static class PackConnection extends URLConnection {
+        private ByteBuffer entry;
+
+        PackConnection(URL url) {
+            super(url);
+        }
+
+        @Override
+        public void connect() throws IOException {
+            if (connected) return;
+
+            AssetPack pack = installed;
+            String path = url.getPath().startsWith("/") ? url.getPath().substring(1) : url.getPath();
+            entry = pack == null ? null : pack.get(path);
+            if (entry == null) {
+                throw new FileNotFoundException("Not in the asset pack: " + path);
+            }
+            connected = true;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            connect();
+            return new BufferInputStream(entry.duplicate());
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            try {
+                connect();
+                return entry.remaining();
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public long getLastModified() {
+            AssetPack pack = installed;
+            return pack == null ? 0 : pack.lastModified;
+        }
+    }
+
+    /**
+     * Reads a buffer as a stream, straight from the mapped file.
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
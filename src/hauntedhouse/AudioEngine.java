@@ -0,0 +1,455 @@
+/*
+Description:  This class plays the game's sounds: short effects kept in memory and long ambient
+tracks for the rooms, streamed and crossfaded as the player moves between rooms.
+ */
+
+package hauntedhouse;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+
+/**
+ * The {@code AudioEngine} class mixes the game's sounds in software and plays them through one
+ * audio line, using the JDK's {@code javax.sound.sampled}.
+ * <p>
+ * Short effects, such as unlocking a door, are decoded once into memory so they start within one
+ * mixing block (about 23 ms) of being played.  The decoded effects are kept in a cache with a
+ * fixed size in bytes that drops the least recently played first.  Ambient tracks are never
+ * decoded as a whole: they are read a block at a time while they play, and loop.  Only two of
+ * them are ever open, the one fading in and the one fading out, so the memory used is the same
+ * however many rooms have their own track.
+ * <p>
+ * Nothing is decoded on the calling thread.  Sounds are opened and decoded by a loader thread
+ * and mixed by a mixer thread, which owns the voices; the caller only queues commands for them,
+ * so calls from the JavaFX application thread return at once.  Sounds that are missing or in a
+ * format the JDK cannot read are skipped silently, as is everything when the machine has no
+ * audio output.  The JDK reads WAV, AIFF and AU files.
+ */
+public class AudioEngine {
+    public static final String UNLOCK_SOUND = "audio/unlock.wav";
+    public static final String SEARCH_SOUND = "audio/search.wav";
+    public static final long DEFAULT_EFFECT_MEMORY = 8L << 20;
+    public static final double AMBIENT_VOLUME = 0.6;
+
+    //Everything is converted to this format and mixed in it
+    static final AudioFormat FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+    static final int BLOCK_FRAMES = 1024;
+    private static final int FRAME_SIZE = 4;
+    private static final int MAX_EFFECT_VOICES = 8;
+
+    private final Function<String, URL> resolver;
+    private final long effectMemory;
+    private final boolean output;
+    private final ExecutorService loader;
+    private final Map<String, byte[]> effects = new LinkedHashMap<>(16, 0.75f, true); // Guarded by itself
+    private long effectBytes;
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private String ambientPath; // The track last asked for, on the calling thread
+    private volatile boolean closed;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    //Owned by the mixer thread
+    private AmbientVoice ambient;
+    private AmbientVoice fading;
+    private final List<EffectVoice> voices = new ArrayList<>();
+    private final int[] mix = new int[BLOCK_FRAMES * 2];
+
+    /**
+     * Constructs a new {@code AudioEngine} that plays the game's assets.  The audio line is only
+     * opened when the first sound is played.
+     */
+    public AudioEngine() {
+        this(AssetManager::resolve, DEFAULT_EFFECT_MEMORY, true);
+    }
+
+    /**
+     * Constructs a new {@code AudioEngine}.
+     *
+     * @param resolver Finds the URL of a sound from its asset path, or returns {@code null}.
+     * @param effectMemory The most bytes the decoded effects may take.
+     * @param output {@code false} to not open an audio line, so blocks are only mixed by
+     *               {@link #mixBlock(byte[])}.
+     */
+    AudioEngine(Function<String, URL> resolver, long effectMemory, boolean output) {
+        this.resolver = resolver;
+        this.effectMemory = effectMemory;
+        this.output = output;
+        loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audio-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Decodes an effect into memory in the background, so it plays at once later.
+     *
+     * @param path The asset path of the effect.
+     */
+    public void preload(String path) {
+        if (path == null || closed) return;
+        loader.execute(() -> loadEffect(path));
+    }
+
+    /**
+     * Plays an effect once, on top of whatever else is playing.
+     *
+     * @param path The asset path of the effect.
+     */
+    public void play(String path) {
+        if (path == null || closed || missing.contains(path)) return;
+
+        byte[] samples;
+        synchronized (effects) {
+            samples = effects.get(path);
+        }
+        if (samples != null) {
+            startEffect(samples);
+        } else {
+            loader.execute(() -> {
+                byte[] loaded = loadEffect(path);
+                if (loaded != null) {
+                    startEffect(loaded);
+                }
+            });
+        }
+    }
+
+    /**
+     * Fades from the ambient track that is playing to another one.
+     *
+     * @param path The asset path of the new track, or {@code null} to fade to silence.
+     * @param seconds How long the old track takes to fade out and the new one to fade in.
+     */
+    public void crossfadeTo(String path, double seconds) {
+        if (closed || (path == null ? ambientPath == null : path.equals(ambientPath))) return;
+        ambientPath = path;
+
+        int frames = Math.max(1, (int) (seconds * FORMAT.getFrameRate()));
+        loader.execute(() -> {
+            AmbientVoice voice = null;
+            if (path != null && !missing.contains(path)) {
+                URL url = resolver.apply(path);
+                try {
+                    voice = url == null ? null : new AmbientVoice(url);
+                } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+                    System.err.println("Could not play " + path + ": " + e);
+                }
+                if (voice == null) {
+                    missing.add(path);
+                }
+            }
+            AmbientVoice next = voice;
+            post(() -> startCrossfade(next, frames));
+        });
+    }
+
+    /**
+     * Stops every sound and closes the audio line.
+     */
+    public void close() {
+        closed = true;
+        loader.shutdownNow();
+    }
+
+    private void startEffect(byte[] samples) {
+        post(() -> {
+            if (voices.size() == MAX_EFFECT_VOICES) {
+                voices.remove(0); // The oldest effect makes way
+            }
+            voices.add(new EffectVoice(samples));
+        });
+    }
+
+    /**
+     * Queues a command for the mixer thread, starting it first if it is not running.
+     */
+    private void post(Runnable command) {
+        commands.add(command);
+        if (output && started.compareAndSet(false, true)) {
+            startMixer();
+        }
+    }
+
+    /**
+     * Decodes an effect, or gets it from the cache.  Called on the loader thread.
+     *
+     * @return The samples in {@link #FORMAT}, or {@code null} if the effect cannot be played.
+     */
+    private byte[] loadEffect(String path) {
+        synchronized (effects) {
+            byte[] cached = effects.get(path);
+            if (cached != null) return cached;
+        }
+        if (missing.contains(path)) return null;
+
+        URL url = resolver.apply(path);
+        byte[] samples = null;
+        if (url != null) {
+            try (AudioInputStream in = open(url)) {
+                //A long sound would push every other effect out, it should be an ambient track.
+                //A stream that does not know its length is read one frame past the limit and no
+                //further, in whole frames as the stream reads nothing when asked for less
+                long limit = effectMemory / 4;
+                long frames = in.getFrameLength();
+                if (frames == AudioSystem.NOT_SPECIFIED || frames * FRAME_SIZE <= limit) {
+                    long past = Math.min(limit / FRAME_SIZE + 1, Integer.MAX_VALUE / 8) * FRAME_SIZE;
+                    samples = in.readNBytes((int) past);
+                }
+                if (samples == null || samples.length > limit) {
+                    System.err.println("The effect " + path + " is too long to keep in memory");
+                    samples = null;
+                }
+            } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+                System.err.println("Could not load " + path + ": " + e);
+            }
+        }
+        if (samples == null) {
+            missing.add(path);
+            return null;
+        }
+
+        synchronized (effects) {
+            effects.put(path, samples);
+            effectBytes += samples.length;
+            Iterator<byte[]> eldest = effects.values().iterator();
+            while (effectBytes > effectMemory && eldest.hasNext()) {
+                effectBytes -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Opens a sound converted to the mixing format.
+     */
+    private static AudioInputStream open(URL url) throws IOException, UnsupportedAudioFileException {
+        AudioInputStream source = AudioSystem.getAudioInputStream(url);
+        if (source.getFormat().matches(FORMAT)) return source;
+        try {
+            return AudioSystem.getAudioInputStream(FORMAT, source);
+        } catch (IllegalArgumentException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts the thread that mixes the voices and writes them to the audio line.
+     */
+    private void startMixer() {
+        Thread mixer = new Thread(() -> {
+            SourceDataLine line;
+            try {
+                line = AudioSystem.getSourceDataLine(FORMAT);
+                line.open(FORMAT, BLOCK_FRAMES * FRAME_SIZE * 4);
+            } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+                System.err.println("No audio output, the game is silent: " + e.getMessage());
+                closed = true;
+                return;
+            }
+            line.start();
+            byte[] block = new byte[BLOCK_FRAMES * FRAME_SIZE];
+            try {
+                //The line is kept running, so a new effect waits for one block at most
+                while (!closed) {
+                    mixBlock(block);
+                    line.write(block, 0, block.length);
+                }
+            } finally {
+                line.stop();
+                line.close();
+                closeVoices();
+            }
+        }, "audio-mixer");
+        mixer.setDaemon(true);
+        mixer.setPriority(Thread.MAX_PRIORITY); // A late block is heard as a click
+        mixer.start();
+    }
+
+    /**
+     * Carries out the queued commands and mixes the next block of every voice.
+     * Called on the mixer thread, or by a caller that has no audio line.
+     *
+     * @param block Where the block is written, {@link #BLOCK_FRAMES} frames in {@link #FORMAT}.
+     */
+    void mixBlock(byte[] block) {
+        Runnable command;
+        while ((command = commands.poll()) != null) {
+            command.run();
+        }
+
+        Arrays.fill(mix, 0);
+        if (ambient != null && !ambient.mixInto(mix)) {
+            ambient.close();
+            ambient = null;
+        }
+        if (fading != null && (!fading.mixInto(mix) || fading.isSilent())) {
+            fading.close();
+            fading = null;
+        }
+        voices.removeIf(voice -> !voice.mixInto(mix));
+
+        for (int i = 0, out = 0; i < mix.length; i++, out += 2) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+            block[out] = (byte) sample;
+            block[out + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    /**
+     * Starts fading the current track out and a new one in.  Called on the mixer thread.
+     */
+    private void startCrossfade(AmbientVoice next, int frames) {
+        //Only two tracks are ever open, so the quieter of the two going out is stopped at once
+        if (fading != null && (ambient == null || fading.getGain() > ambient.getGain())) {
+            if (ambient != null) {
+                ambient.close();
+            }
+        } else {
+            if (fading != null) {
+                fading.close();
+            }
+            fading = ambient;
+        }
+        if (fading != null) {
+            fading.fadeTo(0, frames);
+        }
+        ambient = next;
+        if (ambient != null) {
+            ambient.fadeTo(AMBIENT_VOLUME, frames);
+        }
+    }
+
+    private void closeVoices() {
+        if (ambient != null) ambient.close();
+        if (fading != null) fading.close();
+        ambient = null;
+        fading = null;
+        voices.clear();
+    }
+
+    private static int sample(byte[] bytes, int offset) {
+        return (short) ((bytes[offset] & 0xFF) | (bytes[offset + 1] << 8));
+    }
+
+    /**
+     * An effect playing from memory.
+     */
+    private static class EffectVoice {
+        private final byte[] samples;
+        private int position;
+
+        EffectVoice(byte[] samples) {
+            this.samples = samples;
+        }
+
+        /**
+         * @return {@code false} once the effect has ended.
+         */
+        boolean mixInto(int[] mix) {
+            int end = Math.min(samples.length, position + mix.length * 2);
+            for (int i = 0; position < end; i++, position += 2) {
+                mix[i] += sample(samples, position);
+            }
+            return position < samples.length;
+        }
+    }
+
+    /**
+     * An ambient track streamed a block at a time, looping, with a volume that can fade.
+     */
+    private static class AmbientVoice {
+        private final URL url;
+        private final byte[] buffer = new byte[BLOCK_FRAMES * FRAME_SIZE];
+        private AudioInputStream stream;
+        private double gain;
+        private double target;
+        private double step;
+
+        AmbientVoice(URL url) throws IOException, UnsupportedAudioFileException {
+            this.url = url;
+            stream = open(url);
+        }
+
+        void fadeTo(double volume, int frames) {
+            target = volume;
+            step = (volume - gain) / frames;
+        }
+
+        double getGain() {
+            return gain;
+        }
+
+        boolean isSilent() {
+            return gain <= 0 && target <= 0;
+        }
+
+        /**
+         * @return {@code false} if the track can no longer be read.
+         */
+        boolean mixInto(int[] mix) {
+            int length = 0;
+            boolean looped = false;
+            try {
+                while (length < buffer.length) {
+                    int count = stream.read(buffer, length, buffer.length - length);
+                    if (count < 0) {
+                        if (looped) return false; // The track is empty
+                        //Loop back to the start
+                        stream.close();
+                        stream = open(url);
+                        looped = true;
+                        continue;
+                    }
+                    length += count;
+                    looped = false;
+                }
+            } catch (IOException | UnsupportedAudioFileException e) {
+                return false;
+            }
+
+            for (int i = 0, in = 0; in < length; i += 2, in += FRAME_SIZE) {
+                if (gain != target) {
+                    gain += step;
+                    if ((step > 0 && gain > target) || (step < 0 && gain < target)) {
+                        gain = target;
+                    }
+                }
+                mix[i] += (int) (sample(buffer, in) * gain);
+                mix[i + 1] += (int) (sample(buffer, in + 2) * gain);
+            }
+            return true;
+        }
+
+        void close() {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                //Nothing more to read from it anyway
+            }
+        }
+    }
+}
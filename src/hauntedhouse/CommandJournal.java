@@ -0,0 +1,523 @@
+/*
+Description:  This class keeps a journal of every command the player gives, so any moment of a
+game can be rebuilt for undoing a move or for reproducing a bug from a player's journal file.
+ */
+
+package hauntedhouse;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+
+/**
+ * The {@code CommandJournal} class records the commands given to a {@link GameEngine} in an
+ * append-only file and can rebuild the game as it was after any number of them.
+ * <p>
+ * Every {@link #SNAPSHOT_INTERVAL} commands a {@link GameSnapshot} is taken, so going back to
+ * any point only replays the few commands after the nearest snapshot instead of the whole game.
+ * Going back with {@link #rewind(int)} is itself written to the file, so the file always tells
+ * the full story of the session.
+ * <p>
+ * While recording, only the commands since the oldest of the last {@value #UNDO_SNAPSHOTS}
+ * snapshots are kept in memory, about a thousand, so a long or scripted session does not grow
+ * without limit.  Undo and {@link #replay(GameEngine, int)} reach that far back; the file still
+ * holds every command, and a journal read back with {@link #read(Path, World)} keeps them all.
+ * <p>
+ * Records are gathered in memory and handed to a writer, such as the background thread of the
+ * {@link SaveManager}, at every snapshot and on {@link #flush()}, so recording a command never
+ * waits for the disk.  If the file cannot be written, the error is reported once and nothing more
+ * is written, while the commands are still kept in memory so the game can go back as before.
+ * <p>
+ * File format (version 1), all numbers big-endian:
+ * <pre>
+ * int    magic "HHJL"
+ * byte   version
+ * long   world fingerprint, see {@link World#getFingerprint()}
+ * then records, each a command byte followed by:
+ *   MOVE, ENTER, INSPECT   int room or item id
+ *   LOOK, SEARCH           nothing
+ *   RESTORE, SNAPSHOT      int length, then the snapshot bytes
+ *   REWIND                 int number of commands that are kept
+ * </pre>
+ * The first record is always the snapshot of the game when the journal was started.  A file
+ * cut short by a crash is read up to its last complete record.
+ */
+public class CommandJournal implements Closeable {
+    public static final int MAGIC = 0x48484A4C; // "HHJL"
+    public static final int VERSION = 1;
+    public static final int SNAPSHOT_INTERVAL = 64;
+    //A recording journal keeps this many snapshots, and the commands after the oldest of them
+    public static final int UNDO_SNAPSHOTS = 16;
+
+    /**
+     * The kinds of records in a journal.  The order must not change, it is the record byte.
+     */
+    public enum Command {
+        /** {@link GameEngine#move(int)} */
+        MOVE,
+        /** {@link GameEngine#enterRoom(int)} */
+        ENTER,
+        /** {@link GameEngine#look()} */
+        LOOK,
+        /** {@link GameEngine#search()} */
+        SEARCH,
+        /** {@link GameEngine#inspect(String)} */
+        INSPECT,
+        /** A saved game was loaded. */
+        RESTORE,
+        /** A snapshot of the game, not a command. */
+        SNAPSHOT,
+        /** The game went back to an earlier point, not a command. */
+        REWIND;
+
+        private static final Command[] VALUES = values();
+    }
+
+    private final GameEngine engine;
+    private final ByteArrayOutputStream pending; // Records not yet handed to the writer
+    private final DataOutputStream out; // Writes into pending
+    private final OutputStream file; // Only used by the writer
+    private final Executor writer;
+    private volatile IOException failure; // The first error writing the file, after which nothing is written
+    private byte[] commands = new byte[256];
+    private int[] arguments = new int[256]; // Room or item ids
+    private int first; // The position of the first command kept, at commands[0]
+    private int size;
+    private final TreeMap<Integer, byte[]> payloads = new TreeMap<>(); // Snapshots loaded by the RESTORE at that position
+    private final TreeMap<Integer, byte[]> snapshots = new TreeMap<>(); // Game state after that many commands
+    private boolean replaying;
+
+    /**
+     * Constructs a new {@code CommandJournal} that records the commands given to a game into a file,
+     * writing the file on the thread that gives the commands.
+     * The journal starts from the current state of the game.
+     *
+     * @param engine The {@link GameEngine} whose commands are recorded.
+     * @param file The journal file to create.
+     * @throws IOException If the file cannot be created.
+     */
+    public CommandJournal(GameEngine engine, Path file) throws IOException {
+        this(engine, file, Runnable::run);
+    }
+
+    /**
+     * Constructs a new {@code CommandJournal} that records the commands given to a game into a file.
+     * The journal starts from the current state of the game.
+     *
+     * @param engine The {@link GameEngine} whose commands are recorded.
+     * @param file The journal file to create.
+     * @param writer Writes the file, one task at a time in the order they are given, such as
+     *               {@link SaveManager#getWriter()}.
+     * @throws IOException If the file cannot be created.
+     */
+    public CommandJournal(GameEngine engine, Path file, Executor writer) throws IOException {
+        this.engine = engine;
+        this.writer = writer;
+        Path folder = file.toAbsolutePath().getParent();
+        if (folder != null) {
+            Files.createDirectories(folder);
+        }
+        this.file = Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        //A command costs a few bytes of memory, and the disk is only written now and then
+        pending = new ByteArrayOutputStream(1 << 12);
+        out = new DataOutputStream(pending);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(engine.getWorld().getFingerprint());
+        takeSnapshot();
+        engine.setJournal(this);
+    }
+
+    private CommandJournal() {
+        engine = null;
+        pending = null;
+        out = null;
+        file = null;
+        writer = null;
+    }
+
+    /**
+     * Reads a journal file, for example one sent in by a player, so it can be replayed with
+     * {@link #replay(GameEngine, int)}.  The journal that is read records nothing new.
+     *
+     * @param file The journal file.
+     * @param world The {@link World} the journal was recorded in.
+     * @return The journal.
+     * @throws IOException If the file cannot be read or belongs to another world.
+     */
+    public static CommandJournal read(Path file, World world) throws IOException {
+        CommandJournal journal = new CommandJournal();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + ": not a journal");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException(file + ": unsupported journal version " + version);
+            }
+            if (in.readLong() != world.getFingerprint()) {
+                throw new IOException(file + ": the journal belongs to a different world");
+            }
+
+            while (true) {
+                int code = in.read();
+                if (code < 0) break;
+                if (code >= Command.VALUES.length) {
+                    throw new IOException(file + ": unknown record " + code + " after command " + journal.size);
+                }
+                Command command = Command.VALUES[code];
+                switch (command) {
+                    case LOOK:
+                    case SEARCH:
+                        journal.append(command, 0);
+                        break;
+                    case RESTORE:
+                        journal.payloads.put(journal.size, readBytes(in));
+                        journal.append(command, 0);
+                        break;
+                    case SNAPSHOT:
+                        journal.snapshots.put(journal.size, readBytes(in));
+                        break;
+                    case REWIND:
+                        journal.truncate(in.readInt());
+                        break;
+                    default:
+                        //A room or item that is not in the world would only fail once it is replayed
+                        int argument = in.readInt();
+                        int count = command == Command.INSPECT ? world.getItemCount() : world.getRoomCount();
+                        if (argument < 0 || argument >= count) {
+                            throw new IOException(file + ": " + command + " of unknown "
+                                    + (command == Command.INSPECT ? "item " : "room ") + argument
+                                    + " after command " + journal.size);
+                        }
+                        journal.append(command, argument);
+                        break;
+                }
+            }
+        } catch (EOFException e) {
+            //The game stopped in the middle of a record, everything before it is still good
+        }
+        if (!journal.snapshots.containsKey(0)) {
+            throw new IOException(file + ": the journal has no starting snapshot");
+        }
+        return journal;
+    }
+
+    /**
+     * Records a command.  Called by the {@link GameEngine} before it carries the command out.
+     *
+     * @param command The command.
+     * @param argument The room or item id of the command, or 0 if it has none.
+     */
+    void record(Command command, int argument) {
+        if (replaying || out == null) return;
+
+        //The previous command has finished by now, so this is the moment to snapshot the game
+        if (size > 0 && size % SNAPSHOT_INTERVAL == 0 && !snapshots.containsKey(size)) {
+            takeSnapshot();
+        }
+        append(command, argument);
+        if (failure != null) return;
+        try {
+            out.writeByte(command.ordinal());
+            if (command != Command.LOOK && command != Command.SEARCH) {
+                out.writeInt(argument);
+            }
+        } catch (IOException e) {
+            //Writing into memory never fails
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records that a saved game was loaded into the game.
+     *
+     * @param snapshot The snapshot that was loaded.
+     */
+    public void recordRestore(byte[] snapshot) {
+        if (out == null) return;
+
+        payloads.put(size, snapshot);
+        append(Command.RESTORE, 0);
+        if (failure != null) return;
+        try {
+            out.writeByte(Command.RESTORE.ordinal());
+            writeBytes(snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the number of commands in the journal.
+     *
+     * @return The number of commands.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the position of the first command still kept in memory, which is as far back as the
+     * journal can go.
+     *
+     * @return The position, 0 unless older commands have been dropped.
+     */
+    public int getFirstKept() {
+        return first;
+    }
+
+    /**
+     * Gets the kind of a command in the journal.
+     *
+     * @param index The position of the command, from {@link #getFirstKept()}.
+     * @return The command.
+     */
+    public Command getCommand(int index) {
+        if (index < first || index >= size) {
+            throw new IllegalArgumentException("Command " + index + " is not kept (" + first + "-" + (size - 1) + ")");
+        }
+        return Command.VALUES[commands[index - first]];
+    }
+
+    /**
+     * Finds the point to go back to when the player asks to undo: just before the last search or
+     * room the player entered, by walking or by travelling.  A move into the entered room right
+     * before it is undone too, as it may have unlocked the room, while a move that was not
+     * followed into its room was refused and changed nothing, so it is passed over.  The first
+     * room the player entered is never undone, and undo goes no further back than the commands
+     * kept in memory.
+     *
+     * @return The number of commands to keep, or -1 if there is nothing to undo.
+     */
+    public int getUndoPoint() {
+        //Once older commands are dropped, the first room was entered before the ones kept
+        int firstEnter = first > 0 ? first - 1 : -1;
+        for (int i = first; i < size && firstEnter < 0; i++) {
+            if (commands[i - first] == Command.ENTER.ordinal()) firstEnter = i;
+        }
+        for (int i = size - 1; i > firstEnter && firstEnter >= 0; i--) {
+            int at = i - first;
+            if (commands[at] == Command.SEARCH.ordinal()) {
+                return i;
+            }
+            if (commands[at] == Command.ENTER.ordinal()) {
+                boolean moved = i > first && commands[at - 1] == Command.MOVE.ordinal() && arguments[at - 1] == arguments[at];
+                return moved ? i - 1 : i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Puts a game in the state it was in after a number of the journal's commands.
+     * The game's listeners are not told about the replayed commands, only about how the inventory
+     * changed in the end, and the player is not shown the room, call {@link GameEngine#showCurrentRoom()}.
+     *
+     * @param target The {@link GameEngine} to replay into, which plays the same world.
+     * @param position The number of commands to replay, from {@link #getFirstKept()} to {@link #size()}.
+     * @throws IOException If a snapshot in the journal is damaged.
+     */
+    public void replay(GameEngine target, int position) throws IOException {
+        if (position < first || position > size) {
+            throw new IllegalArgumentException("Position " + position + " is outside the journal ("
+                    + first + "-" + size + ")");
+        }
+
+        Map.Entry<Integer, byte[]> start = snapshots.floorEntry(position);
+        ItemSet shownInventory = target.getInventory().copy();
+        replaying = true;
+        target.setMuted(true);
+        try {
+            GameSnapshot.restore(target, start.getValue());
+            for (int i = start.getKey(); i < position; i++) {
+                apply(target, i);
+            }
+        } finally {
+            target.setMuted(false);
+            replaying = false;
+        }
+        target.fireInventoryChanges(shownInventory);
+    }
+
+    /**
+     * Takes the recorded game back to the state after a number of commands and forgets the
+     * commands after it, so the game can go on from there.
+     *
+     * @param position The number of commands to keep.
+     * @throws IOException If a snapshot in the journal is damaged.
+     */
+    public void rewind(int position) throws IOException {
+        if (out == null) {
+            throw new IllegalStateException("A journal that was read from a file cannot be rewound");
+        }
+        replay(engine, position);
+        truncate(position);
+        if (failure != null) return;
+        out.writeByte(Command.REWIND.ordinal());
+        out.writeInt(position);
+    }
+
+    /**
+     * Hands the records gathered so far to the writer, without waiting for them to be written.
+     */
+    public void flush() {
+        if (out == null || pending.size() == 0 || failure != null) return;
+
+        byte[] records = pending.toByteArray();
+        pending.reset();
+        writer.execute(() -> write(records));
+    }
+
+    /**
+     * Gets the error that stopped the file from being written.
+     *
+     * @return The error, or {@code null} if the file is being written.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Stops recording, and closes the file once every record has been written.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (out == null) return;
+        if (engine != null) engine.setJournal(null);
+        flush();
+        try {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, writer).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Writes records to the file, on the writer.
+     */
+    private void write(byte[] records) {
+        if (failure != null) return;
+        try {
+            file.write(records);
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("The command journal could not be written, it is only kept in memory: " + e);
+        }
+    }
+
+    private void apply(GameEngine target, int index) throws IOException {
+        int argument = arguments[index - first];
+        switch (getCommand(index)) {
+            case MOVE:
+                target.move(argument);
+                break;
+            case ENTER:
+                target.enterRoom(argument);
+                break;
+            case LOOK:
+                target.look();
+                break;
+            case SEARCH:
+                target.search();
+                break;
+            case INSPECT:
+                target.inspect(target.getWorld().getItemName(argument));
+                break;
+            case RESTORE:
+                GameSnapshot.restore(target, payloads.get(index));
+                break;
+            default:
+                throw new IllegalStateException("Not a command: " + getCommand(index));
+        }
+    }
+
+    private void append(Command command, int argument) {
+        int at = size - first;
+        if (at == commands.length) {
+            commands = Arrays.copyOf(commands, at * 2);
+            arguments = Arrays.copyOf(arguments, at * 2);
+        }
+        commands[at] = (byte) command.ordinal();
+        arguments[at] = argument;
+        size++;
+    }
+
+    private void truncate(int position) {
+        size = Math.min(size, Math.max(first, position));
+        snapshots.tailMap(size, false).clear();
+        payloads.tailMap(size, true).clear();
+    }
+
+    /**
+     * Drops the oldest snapshots and the commands before the oldest one left, once there are
+     * more than {@value #UNDO_SNAPSHOTS}.  The arrays keep their size and are reused.
+     */
+    private void dropOldest() {
+        if (snapshots.size() <= UNDO_SNAPSHOTS) return;
+        while (snapshots.size() > UNDO_SNAPSHOTS) {
+            snapshots.pollFirstEntry();
+        }
+        int dropped = snapshots.firstKey() - first;
+        System.arraycopy(commands, dropped, commands, 0, size - snapshots.firstKey());
+        System.arraycopy(arguments, dropped, arguments, 0, size - snapshots.firstKey());
+        first = snapshots.firstKey();
+        payloads.headMap(first).clear();
+    }
+
+    private void takeSnapshot() {
+        byte[] snapshot = GameSnapshot.capture(engine);
+        snapshots.put(size, snapshot);
+        dropOldest();
+        if (failure != null) return;
+        try {
+            out.writeByte(Command.SNAPSHOT.ordinal());
+            writeBytes(snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        //A snapshot is a good moment to send the journal so far to the disk
+        flush();
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 1 << 24) {
+            throw new IOException("Invalid record length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
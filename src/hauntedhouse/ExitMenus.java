@@ -0,0 +1,158 @@
+/*
+Description:  This class fills the exits menu and the right-click menu with the exits of the
+current room, and the travel menu with the rooms the player can go back to, reusing the same
+menu items for every room.
+ */
+
+package hauntedhouse;
+
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Menu;
+import javafx.scene.control.MenuItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+
+/**
+ * The {@code ExitMenus} class keeps the exit items of the "Exits" menu and of the right-click menu,
+ * and the destinations of the "Travel" menu.
+ * <p>
+ * Menu items are never removed.  There are as many as the room with the most exits needs, and
+ * moving to a room only changes their text and hides the ones it does not need, so moving
+ * creates no new menu items or handlers and no menu list has to be searched or rebuilt.  Only the
+ * right-click menu's "Go to ..." labels are made for each room, a few short strings per move,
+ * so nothing is kept for the rooms the player has left.
+ * Every exit item shares one handler, which finds its exit by the item's position, and so do
+ * the travel items.
+ * All methods must be called on the JavaFX application thread.
+ */
+public class ExitMenus {
+    private final World world;
+    private final Menu exitsMenu;
+    private final Menu travelMenu;
+    private final ContextMenu contextMenu;
+    private final List<MenuItem> actionItems; // The right-click menu's own actions, such as "Look Around"
+    private final List<MenuItem> menuExitItems = new ArrayList<>();
+    private final List<MenuItem> contextExitItems = new ArrayList<>();
+    private final List<MenuItem> travelItems = new ArrayList<>();
+    private final EventHandler<ActionEvent> exitHandler;
+    private final EventHandler<ActionEvent> travelHandler;
+    private int[] exitIds = new int[0];
+    private int[] travelIds = new int[0];
+
+    /**
+     * Constructs a new {@code ExitMenus}.  The items already in the right-click menu are its
+     * actions, which are shown and hidden with {@link #showActions()} and {@link #hideContextMenu()}.
+     *
+     * @param world The {@link World} the rooms belong to.
+     * @param exitsMenu The "Exits" menu of the menu bar.
+     * @param travelMenu The "Travel" menu of the menu bar.
+     * @param contextMenu The right-click menu.
+     * @param onExit Called with the room id of the exit the player chose.
+     * @param onTravel Called with the room id of the destination the player chose.
+     */
+    public ExitMenus(World world, Menu exitsMenu, Menu travelMenu, ContextMenu contextMenu,
+                     IntConsumer onExit, IntConsumer onTravel) {
+        this.world = world;
+        this.exitsMenu = exitsMenu;
+        this.travelMenu = travelMenu;
+        this.contextMenu = contextMenu;
+        this.actionItems = new ArrayList<>(contextMenu.getItems());
+        this.exitHandler = e -> {
+            int index = (Integer) ((MenuItem) e.getSource()).getUserData();
+            if (index < exitIds.length) {
+                onExit.accept(exitIds[index]);
+            }
+        };
+        this.travelHandler = e -> {
+            int index = (Integer) ((MenuItem) e.getSource()).getUserData();
+            onTravel.accept(travelIds[index]);
+        };
+    }
+
+    /**
+     * Shows the exits of a room in both menus.
+     *
+     * @param room The {@link Room} the player is in.
+     */
+    public void showExits(Room room) {
+        String[] exitNames = room.getExits();
+        exitIds = world.getExits(room.getId());
+
+        while (menuExitItems.size() < exitIds.length) {
+            menuExitItems.add(createItem(exitsMenu.getItems(), menuExitItems.size(), exitHandler));
+            contextExitItems.add(createItem(contextMenu.getItems(), contextExitItems.size(), exitHandler));
+        }
+
+        for (int i = 0; i < menuExitItems.size(); i++) {
+            boolean used = i < exitIds.length;
+            MenuItem menuItem = menuExitItems.get(i);
+            MenuItem contextItem = contextExitItems.get(i);
+            if (used) {
+                menuItem.setText(exitNames[i]);
+                contextItem.setText("Go to " + exitNames[i]);
+            }
+            menuItem.setVisible(used);
+            contextItem.setVisible(used);
+        }
+    }
+
+    /**
+     * Shows the rooms the player can travel to in the travel menu.
+     *
+     * @param roomIds The ids of the rooms, nearest first.  The array is copied.
+     * @param count The number of rooms in {@code roomIds} to show.
+     */
+    public void showDestinations(int[] roomIds, int count) {
+        if (travelIds.length < count) {
+            travelIds = new int[count];
+        }
+        System.arraycopy(roomIds, 0, travelIds, 0, count);
+
+        while (travelItems.size() < count) {
+            travelItems.add(createItem(travelMenu.getItems(), travelItems.size(), travelHandler));
+        }
+        for (int i = 0; i < travelItems.size(); i++) {
+            MenuItem item = travelItems.get(i);
+            if (i < count) {
+                item.setText(world.getRoomName(travelIds[i]));
+            }
+            item.setVisible(i < count);
+        }
+        travelMenu.setDisable(count == 0);
+    }
+
+    /**
+     * Shows the right-click menu's actions again after {@link #hideContextMenu()}.
+     */
+    public void showActions() {
+        for (MenuItem item : actionItems) {
+            item.setVisible(true);
+        }
+    }
+
+    /**
+     * Hides everything in the right-click menu, which is done while moving between rooms.
+     * The exits come back with {@link #showExits(Room)} and the actions with {@link #showActions()}.
+     */
+    public void hideContextMenu() {
+        for (MenuItem item : actionItems) {
+            item.setVisible(false);
+        }
+        for (MenuItem item : contextExitItems) {
+            item.setVisible(false);
+        }
+    }
+
+    private MenuItem createItem(List<MenuItem> menu, int index, EventHandler<ActionEvent> handler) {
+        MenuItem item = new MenuItem();
+        item.setUserData(index);
+        item.setOnAction(handler);
+        menu.add(item);
+        return item;
+    }
+}
@@ -0,0 +1,479 @@
+/*
+Description:  This class contains the rules of the game.  It does not use JavaFX, so the game can
+be played by the game window or by a program that simulates a player.
+ */
+
+package hauntedhouse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The {@code GameEngine} class holds the state of one game and carries out the player's commands.
+ * It keeps track of the current room, the inventory and the items that have been found, and
+ * reports everything that happens to its {@link GameListener}s.
+ * <p>
+ * Moving into a room is done in two steps.  {@link #move(int)} checks the lock of the room and
+ * unlocks it if the player carries the required items, then {@link #enterRoom(int)} actually
+ * puts the player in the room.  This lets the game window show the unlock message and play its
+ * transition in between, while a simulated player can simply call both methods in a row.
+ * <p>
+ * After the built-in effect of entering, searching or looking around a room, the world's
+ * {@link Rule}s for that room and action are checked in the order they were defined, each one
+ * seeing what the ones before it did.  Unlock rules are checked before the room opens instead;
+ * see {@link RuleBook.Trigger#UNLOCK}.
+ */
+public class GameEngine {
+
+    /**
+     * The result of trying to move into a room.
+     */
+    public enum MoveResult {
+        /** The room is locked and the player does not carry the required items. */
+        LOCKED,
+        /** The room was locked and has just been unlocked with the required items. */
+        UNLOCKED,
+        /** The room is not locked. */
+        OPEN,
+        /** The room is not an exit of the player's current room. */
+        NO_EXIT
+    }
+
+    private final World world;
+    private final WorldState state;
+    private final List<GameListener> listeners = new ArrayList<>();
+    private Room currentRoom;
+    private final ItemSet inventory;
+    private final ItemSet foundItems; // Tracks items already found
+    private final ItemSet visitedRooms; // Room ids, in the same kind of set as items
+    private CommandJournal journal;
+    private boolean muted; // True while a journal replays commands
+
+    /**
+     * Constructs a new {@code GameEngine} for the given world, with every room as it was defined.
+     * The player is not in any room until {@link #enterRoom(int)} is called.
+     *
+     * @param world The {@link World} the game is played in.  It is not changed, so several
+     *              games may share it.
+     */
+    public GameEngine(World world) {
+        this(new WorldState(world));
+    }
+
+    /**
+     * Constructs a new {@code GameEngine} that starts from a given state of the rooms.
+     * The player is not in any room until {@link #enterRoom(int)} is called.
+     *
+     * @param state The {@link WorldState} of the game, which the engine changes as it is played.
+     */
+    public GameEngine(WorldState state) {
+        World world = state.getWorld();
+        this.world = world;
+        this.state = state;
+        this.inventory = new ItemSet(world.getItemCount());
+        this.foundItems = new ItemSet(world.getItemCount());
+        this.visitedRooms = new ItemSet(world.getRoomCount());
+    }
+
+    /**
+     * Registers a listener that will receive the events of this game.
+     *
+     * @param listener The {@link GameListener} to add.
+     */
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Sets the journal that records every command given to this game.
+     *
+     * @param journal The {@link CommandJournal} to record into, or {@code null} to stop recording.
+     */
+    public void setJournal(CommandJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Turns the events of this game off or on.  While muted, commands change the state of the
+     * game without telling the listeners, which lets a journal replay many commands at once.
+     *
+     * @param muted {@code true} to stop sending events.
+     */
+    void setMuted(boolean muted) {
+        this.muted = muted;
+    }
+
+    /**
+     * Tries to move the player into a room.  If the room is locked and the player carries
+     * the required items, the items are used up and the room is unlocked.  If the room has unlock
+     * rules, one of them must match as well, and the matching rules decide which items are used up.
+     * The room must be an exit of the current room, unless the player is not in a room yet.
+     * The player is not moved, call {@link #enterRoom(int)} if the result is
+     * {@link MoveResult#UNLOCKED} or {@link MoveResult#OPEN}.
+     *
+     * @param roomId The id of the room the player wants to go to.
+     * @return Whether the room is locked, was just unlocked, is open or is not an exit.
+     */
+    public MoveResult move(int roomId) {
+        record(CommandJournal.Command.MOVE, roomId);
+        if (!isExit(roomId)) {
+            return MoveResult.NO_EXIT;
+        }
+        if (!state.isLocked(roomId)) {
+            return MoveResult.OPEN;
+        }
+
+        Room room = world.getRoom(roomId);
+        ItemSet requiredItems = room.getRequiredItems();
+        if (!inventory.containsAll(requiredItems)) {
+            sendMessage(world.getNarrative().getLockedMessage(room));
+            return MoveResult.LOCKED;
+        }
+
+        //The unlock rules are all checked before any of them changes the game
+        RuleBook rules = world.getRules();
+        int start = rules.start(roomId, RuleBook.Trigger.UNLOCK);
+        int end = rules.end(roomId, RuleBook.Trigger.UNLOCK);
+        List<Rule> matching = null;
+        if (start < end) {
+            matching = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                if (rules.getRule(i).matches(this)) {
+                    matching.add(rules.getRule(i));
+                }
+            }
+            if (matching.isEmpty()) {
+                sendMessage(world.getNarrative().getLockedMessage(room));
+                return MoveResult.LOCKED;
+            }
+            //The message names only the items the rules took, and a rule's own message replaces it
+            ItemSet carried = inventory.copy();
+            state.setLocked(roomId, false);
+            boolean ruleMessage = false;
+            for (Rule rule : matching) {
+                apply(rule);
+                ruleMessage |= rule.getMessage() != null;
+            }
+            if (!ruleMessage) {
+                carried.removeAll(inventory);
+                sendMessage(world.getNarrative().getUnlockMessage(room, carried));
+            }
+        } else {
+            //The required items are used up when the room is unlocked
+            takeItems(requiredItems);
+            state.setLocked(roomId, false);
+            sendMessage(world.getNarrative().getUnlockMessage(room, requiredItems));
+        }
+
+        for (GameListener listener : listeners()) {
+            listener.onRoomUnlocked(room);
+        }
+        return MoveResult.UNLOCKED;
+    }
+
+    private boolean isExit(int roomId) {
+        if (currentRoom == null || currentRoom.getId() == roomId) return true;
+        for (int exit : world.getExits(currentRoom.getId())) {
+            if (exit == roomId) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Puts the player in a room and shows its initial description.
+     *
+     * @param roomId The id of the room to enter.
+     * @return {@code true} if the player entered the room, {@code false} if it is still locked.
+     */
+    public boolean enterRoom(int roomId) {
+        record(CommandJournal.Command.ENTER, roomId);
+        if (state.isLocked(roomId)) return false;
+
+        Room room = world.getRoom(roomId);
+        currentRoom = room;
+        visitedRooms.add(roomId);
+        for (GameListener listener : listeners()) {
+            listener.onRoomEntered(room);
+        }
+        sendMessage(room.getInitialDescription());
+        applyRules(RuleBook.Trigger.ENTER, roomId);
+        return true;
+    }
+
+    /**
+     * Shows the room the player is in again, as after an undo or a loaded game, without entering
+     * it: the listeners are told about the room and its initial description, but nothing is
+     * recorded and the room's enter rules do not run, so the game stays as it was.
+     */
+    public void showCurrentRoom() {
+        if (currentRoom == null) return;
+        for (GameListener listener : listeners()) {
+            listener.onRoomEntered(currentRoom);
+        }
+        sendMessage(currentRoom.getInitialDescription());
+    }
+
+    /**
+     * Checks whether the player can travel straight to a room.  That is possible for a room the
+     * player has been in before and can walk back to through unlocked rooms.  The player is not
+     * moved, call {@link #enterRoom(int)} to travel.
+     *
+     * @param roomId The id of the room the player wants to travel to.
+     * @return {@code true} if the player can travel to the room.
+     */
+    public boolean canTravel(int roomId) {
+        if (currentRoom == null || roomId == currentRoom.getId() || !visitedRooms.contains(roomId)) {
+            return false;
+        }
+        return state.getRoutes().getDistance(currentRoom.getId(), roomId) > 0;
+    }
+
+    /**
+     * Shows the description of the current room when the player chooses to "Look Around".
+     */
+    public void look() {
+        record(CommandJournal.Command.LOOK, 0);
+        if (currentRoom != null) {
+            sendMessage(currentRoom.getLookDescription());
+            applyRules(RuleBook.Trigger.LOOK, currentRoom.getId());
+        }
+    }
+
+    /**
+     * Searches the current room for items.
+     * If items are found, they are added to the player's inventory.
+     */
+    public void search() {
+        record(CommandJournal.Command.SEARCH, 0);
+        if (currentRoom == null) return;
+
+        ItemSet items = state.getItems(currentRoom.getId());
+        if (items.isEmpty()) {
+            sendMessage("\tYou search the room diligently but find nothing of importance seems " +
+                    "to be here.");
+            //Search rules can add custom messages for rooms that do not contain items.
+            applyRules(RuleBook.Trigger.SEARCH, currentRoom.getId());
+            return;
+        }
+
+        StringBuilder foundItemsDescription = new StringBuilder();
+        for (int itemId = items.nextItem(0); itemId >= 0; itemId = items.nextItem(itemId + 1)) {
+            String item = world.getItemName(itemId);
+            if (!foundItems.contains(itemId)) { // Only show discovery text once
+                foundItems.add(itemId);
+                //Custom discovery messages or a default message are called here and assigned to a variable.
+                String discoveryMessage = world.getDiscoveryDescription(itemId);
+                if (discoveryMessage == null) {
+                    discoveryMessage = "You found " + item + "!";
+                }
+                foundItemsDescription.append(discoveryMessage).append("\n");
+            }
+            inventory.add(itemId);
+            for (GameListener listener : listeners()) {
+                listener.onItemAdded(item);
+            }
+        }
+
+        state.clearItems(currentRoom.getId());
+        //Display the discovery message, (which can be a combination of more than one.)
+        sendMessage(foundItemsDescription.toString().trim());
+        applyRules(RuleBook.Trigger.SEARCH, currentRoom.getId());
+    }
+
+    /**
+     * Shows the description of an item the player is carrying.
+     *
+     * @param item The name of the item to inspect.
+     */
+    public void inspect(String item) {
+        int itemId = world.getItemId(item);
+        if (itemId >= 0) {
+            record(CommandJournal.Command.INSPECT, itemId);
+        }
+        if (itemId >= 0 && inventory.contains(itemId)) {
+            sendMessage(world.getNarrative().getItemDescription(itemId));
+        }
+    }
+
+    /**
+     * Replaces the state of the game with a saved state, such as one read by {@link GameSnapshot}.
+     * Listeners are told about every item that leaves or joins the inventory.  The player is
+     * placed in the saved room without entering it, call {@link #showCurrentRoom()} to show it.
+     * The rooms' locks and items are restored by the caller.
+     *
+     * @param roomId The id of the room the player is in, or -1 if the player is in no room yet.
+     * @param savedInventory The ids of the items the player is carrying.
+     * @param savedFoundItems The ids of the items that have been found.
+     * @param savedVisitedRooms The ids of the rooms the player has been in.
+     */
+    public void restore(int roomId, ItemSet savedInventory, ItemSet savedFoundItems, ItemSet savedVisitedRooms) {
+        ItemSet previousInventory = inventory.copy();
+
+        inventory.clear();
+        inventory.addAll(savedInventory);
+        foundItems.clear();
+        foundItems.addAll(savedFoundItems);
+        visitedRooms.clear();
+        visitedRooms.addAll(savedVisitedRooms);
+        currentRoom = roomId < 0 ? null : world.getRoom(roomId);
+
+        fireInventoryChanges(previousInventory);
+    }
+
+    /**
+     * Tells the listeners about every item that left or joined the inventory since it held
+     * the given items.  Used after the inventory was changed while the game was muted.
+     *
+     * @param previousInventory The ids of the items the listeners last knew about.
+     */
+    void fireInventoryChanges(ItemSet previousInventory) {
+        ItemSet removed = previousInventory.copy();
+        removed.removeAll(inventory);
+        ItemSet added = inventory.copy();
+        added.removeAll(previousInventory);
+
+        for (int itemId = removed.nextItem(0); itemId >= 0; itemId = removed.nextItem(itemId + 1)) {
+            String item = world.getItemName(itemId);
+            for (GameListener listener : listeners()) {
+                listener.onItemRemoved(item);
+            }
+        }
+        for (int itemId = added.nextItem(0); itemId >= 0; itemId = added.nextItem(itemId + 1)) {
+            String item = world.getItemName(itemId);
+            for (GameListener listener : listeners()) {
+                listener.onItemAdded(item);
+            }
+        }
+    }
+
+    /**
+     * Gets the world this game is played in.
+     *
+     * @return The {@link World} of the game.
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Gets the state of the rooms in this game: which are locked and which items are left in them.
+     *
+     * @return The {@link WorldState} of the game.
+     */
+    public WorldState getState() {
+        return state;
+    }
+
+    /**
+     * Gets the room the player is in.
+     *
+     * @return The current {@link Room}, or {@code null} before the first room is entered.
+     */
+    public Room getCurrentRoom() {
+        return currentRoom;
+    }
+
+    /**
+     * Gets the items the player is carrying.
+     * The returned set belongs to the engine and must not be modified.
+     *
+     * @return The ids of the items in the inventory.
+     */
+    public ItemSet getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Gets the rooms the player has been in.
+     * The returned set belongs to the engine and must not be modified.
+     *
+     * @return The ids of the visited rooms.
+     */
+    public ItemSet getVisitedRooms() {
+        return visitedRooms;
+    }
+
+    /**
+     * Gets the items that have been found at some point in the game,
+     * even if they have been used up since.
+     * The returned set belongs to the engine and must not be modified.
+     *
+     * @return The ids of the items that have been found.
+     */
+    public ItemSet getFoundItems() {
+        return foundItems;
+    }
+
+    /**
+     * Carries out every rule of a room and trigger whose conditions hold.
+     */
+    private void applyRules(RuleBook.Trigger trigger, int roomId) {
+        RuleBook rules = world.getRules();
+        for (int i = rules.start(roomId, trigger), end = rules.end(roomId, trigger); i < end; i++) {
+            Rule rule = rules.getRule(i);
+            if (rule.matches(this)) {
+                apply(rule);
+            }
+        }
+    }
+
+    /**
+     * Carries out the actions of a rule, in the order described by {@link Rule}.
+     */
+    private void apply(Rule rule) {
+        takeItems(rule.getTakenItems());
+
+        ItemSet given = rule.getGivenItems();
+        for (int itemId = given.nextItem(0); itemId >= 0; itemId = given.nextItem(itemId + 1)) {
+            if (inventory.contains(itemId)) continue;
+            inventory.add(itemId);
+            foundItems.add(itemId);
+            String item = world.getItemName(itemId);
+            for (GameListener listener : listeners()) {
+                listener.onItemAdded(item);
+            }
+        }
+
+        for (int roomId : rule.getUnlockedRooms()) {
+            state.setLocked(roomId, false);
+        }
+        for (int roomId : rule.getLockedRooms()) {
+            state.setLocked(roomId, true);
+        }
+        if (rule.getMessage() != null) {
+            sendMessage(rule.getMessage());
+        }
+    }
+
+    /**
+     * Removes the items of a set that the player carries from the inventory.
+     */
+    private void takeItems(ItemSet items) {
+        for (int itemId = items.nextItem(0); itemId >= 0; itemId = items.nextItem(itemId + 1)) {
+            if (!inventory.contains(itemId)) continue;
+            inventory.remove(itemId);
+            String item = world.getItemName(itemId);
+            for (GameListener listener : listeners()) {
+                listener.onItemRemoved(item);
+            }
+        }
+    }
+
+    private List<GameListener> listeners() {
+        return muted ? Collections.emptyList() : listeners;
+    }
+
+    private void record(CommandJournal.Command command, int argument) {
+        if (journal != null) {
+            journal.record(command, argument);
+        }
+    }
+
+    private void sendMessage(String text) {
+        for (GameListener listener : listeners()) {
+            listener.onMessage(text);
+        }
+    }
+}
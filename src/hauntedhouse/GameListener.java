@@ -0,0 +1,54 @@
+/*
+Description:  This interface is used by anything that wants to know what happens in the game,
+such as the game window or a simulated player.
+ */
+
+package hauntedhouse;
+
+/**
+ * The {@code GameListener} interface receives the events produced by a {@link GameEngine}.
+ * Every method has an empty default, so a listener only overrides the events it cares about.
+ */
+public interface GameListener {
+
+    /**
+     * Called when the game has text to show the player, such as a room description,
+     * a lock message or the result of a search.
+     *
+     * @param text The text to show.
+     */
+    default void onMessage(String text) {
+    }
+
+    /**
+     * Called when a locked room has been unlocked with the items the player was carrying.
+     *
+     * @param room The {@link Room} that was unlocked.
+     */
+    default void onRoomUnlocked(Room room) {
+    }
+
+    /**
+     * Called when the player has entered a room.
+     *
+     * @param room The {@link Room} the player is now in.
+     */
+    default void onRoomEntered(Room room) {
+    }
+
+    /**
+     * Called when an item has been added to the player's inventory.
+     *
+     * @param item The name of the item.
+     */
+    default void onItemAdded(String item) {
+    }
+
+    /**
+     * Called when an item has been removed from the player's inventory.
+     *
+     * @param item The name of the item.
+     */
+    default void onItemRemoved(String item) {
+    }
+}
@@ -0,0 +1,218 @@
+/*
+Description:  This class hosts many games at once without a window.  Players connect over a local
+socket and play by sending text commands, each game in its own session.
+ */
+
+package hauntedhouse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * The {@code GameServer} class accepts connections on a local port and plays a separate game on
+ * each one, using the same {@link GameEngine} rules as the game window.
+ * <p>
+ * The world is loaded once and shared by every session, since a {@link World} never changes; each
+ * session only has its own {@link WorldState} of the rooms it has unlocked or emptied.  Each
+ * connection is served by one thread that simply blocks while it waits for the player.  On Java
+ * 21 and later these are virtual threads, so tens of thousands of idle players cost little more
+ * than their game state; on older versions a pool of ordinary threads is used.
+ * <p>
+ * The protocol is line based, in UTF-8.  The client sends one command per line:
+ * <ul>
+ *     <li>{@code LOOK} and {@code SEARCH}, as in the game window.</li>
+ *     <li>{@code GO <exit>} moves through an exit of the current room, unlocking it if the player
+ *     carries the required items.  There is no click to continue, so the room is entered at once.</li>
+ *     <li>{@code TRAVEL <room>} goes straight to a room the player has been in before.</li>
+ *     <li>{@code INSPECT <item>} describes an item in the inventory.</li>
+ *     <li>{@code QUIT} ends the session.</li>
+ * </ul>
+ * Every command, and the start of the session, is answered with the events it caused, one per
+ * line, followed by a line with just {@code END}:
+ * {@code MESSAGE <text>}, {@code UNLOCKED <room>}, {@code ENTERED <room>} followed by
+ * {@code EXITS <exit>} with the exits separated by tabs, {@code ADDED <item>},
+ * {@code REMOVED <item>} and {@code ERROR <reason>}.  Tabs, line breaks and backslashes in a
+ * message are sent as {@code \t}, {@code \n} and {@code \\}.
+ * <p>
+ * {@link LoadClient} plays many sessions against a server to measure it.
+ */
+public class GameServer implements Closeable {
+    public static final int DEFAULT_PORT = 7777;
+    //Queued connections, so a load test that connects all at once is not turned away
+    private static final int BACKLOG = 1024;
+
+    private final World world;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong totalSessions = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new {@code GameServer} listening on a port of this machine only.
+     * Connections are not accepted until {@link #start()} or {@link #serve()} is called.
+     *
+     * @param world The {@link World} every session is played in.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be opened.
+     */
+    public GameServer(World world, int port) throws IOException {
+        this.world = world;
+        world.getFingerprint(); // Worked out once here rather than by the first sessions at the same time
+        serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        executor = newThreadPerTaskExecutor("game-session");
+    }
+
+    /**
+     * Creates an executor that runs every task on a new thread: a virtual thread on Java 21 and
+     * later, and otherwise a pooled daemon thread.
+     *
+     * @param name The name of the threads, when they are not virtual.
+     * @return The executor.
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name) {
+        try {
+            //Looked up by reflection, so the game still compiles for and runs on Java 17
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return The port number.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of players connected right now.
+     *
+     * @return The number of open sessions.
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Gets the number of sessions since the server started.
+     *
+     * @return The number of sessions, open and closed.
+     */
+    public long getTotalSessions() {
+        return totalSessions.get();
+    }
+
+    /**
+     * Accepts connections on a background thread until the server is closed.
+     */
+    public void start() {
+        Thread acceptor = new Thread(this::serve, "game-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Accepts connections on the calling thread until the server is closed, starting a session
+     * for each one.
+     */
+    public void serve() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("The game server stopped accepting players: " + e);
+                }
+                return;
+            }
+
+            connections.add(socket);
+            activeSessions.incrementAndGet();
+            totalSessions.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        new GameSession(socket, world).run();
+                    } finally {
+                        connections.remove(socket);
+                        activeSessions.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                //The server was closed after the player connected, so the session never starts
+                connections.remove(socket);
+                activeSessions.decrementAndGet();
+                totalSessions.decrementAndGet();
+                try {
+                    socket.close();
+                } catch (IOException closeError) {
+                    //Already closed
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops accepting players and disconnects the ones that are playing.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            //Closing anyway
+        }
+        //Threads blocked reading a socket only wake up when it is closed
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //Already closed
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs a game server until the process is stopped.
+     *
+     * @param args An optional port, {@value #DEFAULT_PORT} by default, and an optional world
+     *             file, the Haunted House by default.
+     * @throws IOException If the world cannot be loaded or the port cannot be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        World world = args.length > 1 ? WorldLoader.load(Paths.get(args[1])) : WorldLoader.loadDefault();
+
+        GameServer server = new GameServer(world, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Haunted House server listening on " + server.serverSocket.getLocalSocketAddress());
+        server.serve();
+    }
+}
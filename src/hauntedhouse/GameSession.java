@@ -0,0 +1,212 @@
+/*
+Description:  This class plays one game for one connection of the game server, turning the
+player's text commands into engine calls and the engine's events back into text.
+ */
+
+package hauntedhouse;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+
+/**
+ * The {@code GameSession} class serves one connection of a {@link GameServer}, in the protocol
+ * described there.  A session owns its {@link GameEngine} and the engine's {@link WorldState}, and is run
+ * by a single thread from start to end, so nothing in it needs to be synchronized.
+ */
+class GameSession implements GameListener, Runnable {
+    //A player who has said nothing for this long is disconnected
+    private static final int IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+    //No command is anywhere near this long, so a longer line is not a player
+    private static final int MAX_LINE = 1024;
+
+    private final Socket socket;
+    private final World world;
+    private final GameEngine engine;
+    private Writer out;
+
+    /**
+     * Constructs a new {@code GameSession}.
+     *
+     * @param socket The connection to the player.
+     * @param world The {@link World} to play in, which may be shared with other sessions.
+     */
+    GameSession(Socket socket, World world) {
+        this.socket = socket;
+        this.world = world;
+        this.engine = new GameEngine(world);
+        engine.addListener(this);
+    }
+
+    /**
+     * Plays the game until the player quits or disconnects, then closes the connection.
+     */
+    @Override
+    public void run() {
+        try (Socket connection = socket) {
+            connection.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            connection.setTcpNoDelay(true); // Answers are small and the player waits for each one
+            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8));
+
+            engine.enterRoom(world.getStartRoom());
+            endResponse();
+
+            String line;
+            while ((line = readLine(in)) != null) {
+                if (!execute(line.trim())) break;
+                endResponse();
+            }
+        } catch (SocketTimeoutException e) {
+            //The player went away without quitting
+        } catch (IOException e) {
+            //The connection broke or the server closed it; the game is simply over
+        }
+    }
+
+    /**
+     * Carries out one command.
+     *
+     * @return {@code false} if the player quit.
+     */
+    private boolean execute(String line) {
+        int space = line.indexOf(' ');
+        String command = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+        String argument = space < 0 ? "" : line.substring(space + 1).trim();
+
+        switch (command) {
+            case "LOOK":
+                engine.look();
+                break;
+            case "SEARCH":
+                engine.search();
+                break;
+            case "GO":
+                go(argument);
+                break;
+            case "TRAVEL": {
+                int roomId = world.getRoomId(argument);
+                if (roomId >= 0 && engine.canTravel(roomId)) {
+                    engine.enterRoom(roomId);
+                } else {
+                    send("ERROR", "You cannot travel to " + argument);
+                }
+                break;
+            }
+            case "INSPECT": {
+                int itemId = world.getItemId(argument);
+                if (itemId >= 0 && engine.getInventory().contains(itemId)) {
+                    engine.inspect(argument);
+                } else {
+                    send("ERROR", "You are not carrying " + argument);
+                }
+                break;
+            }
+            case "QUIT":
+                return false;
+            default:
+                send("ERROR", "Unknown command: " + command);
+        }
+        return true;
+    }
+
+    /**
+     * Moves through an exit of the current room, entering it at once if it opens.
+     */
+    private void go(String exit) {
+        int roomId = world.getRoomId(exit);
+        GameEngine.MoveResult result = roomId >= 0 ? engine.move(roomId) : GameEngine.MoveResult.NO_EXIT;
+        if (result == GameEngine.MoveResult.NO_EXIT) {
+            send("ERROR", "There is no exit to " + exit);
+        } else if (result != GameEngine.MoveResult.LOCKED) {
+            engine.enterRoom(roomId);
+        }
+    }
+
+    /**
+     * Reads one command, refusing lines that are too long to be one.
+     *
+     * @return The line, or {@code null} at the end of the connection.
+     */
+    private static String readLine(BufferedReader in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {
+            if (line.length() == MAX_LINE) {
+                throw new IOException("Command line too long");
+            }
+            line.append((char) c);
+        }
+        if (c < 0 && line.length() == 0) return null;
+        return line.toString();
+    }
+
+    /**
+     * Sends a message of the game as a {@code MESSAGE} line.
+     */
+    @Override
+    public void onMessage(String text) {
+        send("MESSAGE", WorldLoader.escape(text));
+    }
+
+    /**
+     * Sends the room the player unlocked as an {@code UNLOCKED} line.
+     */
+    @Override
+    public void onRoomUnlocked(Room room) {
+        send("UNLOCKED", room.getName());
+    }
+
+    /**
+     * Sends the room the player entered and its exits as {@code ENTERED} and {@code EXITS} lines.
+     */
+    @Override
+    public void onRoomEntered(Room room) {
+        send("ENTERED", room.getName());
+        send("EXITS", String.join("\t", room.getExits()));
+    }
+
+    /**
+     * Sends an item that joined the inventory as an {@code ADDED} line.
+     */
+    @Override
+    public void onItemAdded(String item) {
+        send("ADDED", item);
+    }
+
+    /**
+     * Sends an item that left the inventory as a {@code REMOVED} line.
+     */
+    @Override
+    public void onItemRemoved(String item) {
+        send("REMOVED", item);
+    }
+
+    /**
+     * Writes one event line.  Listener methods cannot throw, so a broken connection is noticed
+     * when the response is flushed.
+     */
+    private void send(String event, String text) {
+        try {
+            out.write(event);
+            out.write(' ');
+            out.write(text);
+            out.write('\n');
+        } catch (IOException e) {
+            //Reported by the flush in endResponse
+        }
+    }
+
+    private void endResponse() throws IOException {
+        out.write("END\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+Description:  This class saves the state of a game into a small block of bytes and restores a game
+from one.
+ */
+
+package hauntedhouse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+
+/**
+ * The {@code GameSnapshot} class writes and reads saved games in a compact, versioned binary format.
+ * <p>
+ * A snapshot holds the player's room, inventory, found items and visited rooms, and the rooms
+ * whose lock or items the player has changed, as kept by the game's {@link WorldState}.  Rooms
+ * the player has not changed are not written, so a snapshot grows with what the player has done
+ * rather than with the size of the world.  Item and room sets are written as bit words, so a
+ * snapshot of the Haunted House is under two hundred bytes and takes microseconds to write or read.
+ * <p>
+ * Format (version 3), all numbers big-endian:
+ * <pre>
+ * int    magic "HHSV"
+ * byte   version
+ * long   world fingerprint, see {@link World#getFingerprint()}
+ * int    room count, int item count
+ * int    current room id, or -1
+ * bits   inventory
+ * bits   found items
+ * bits   visited rooms, by room id
+ * int    number of rooms whose lock differs from the definition, then their room ids
+ * int    number of rooms whose items differ from the definition, then for each: int room id, bits items
+ * </pre>
+ * where "bits" is an int word count followed by that many longs.  Only the current version is
+ * read; older saves are refused like any other unreadable save.
+ */
+public final class GameSnapshot {
+    public static final int MAGIC = 0x48485356; // "HHSV"
+    public static final int VERSION = 3;
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Writes the state of a game to a snapshot.
+     *
+     * @param engine The {@link GameEngine} whose state is saved.
+     * @return The snapshot bytes.
+     */
+    public static byte[] capture(GameEngine engine) {
+        World world = engine.getWorld();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(world.getFingerprint());
+            out.writeInt(world.getRoomCount());
+            out.writeInt(world.getItemCount());
+            out.writeInt(engine.getCurrentRoom() == null ? -1 : engine.getCurrentRoom().getId());
+            writeBits(out, engine.getInventory().toWords());
+            writeBits(out, engine.getFoundItems().toWords());
+            writeBits(out, engine.getVisitedRooms().toWords());
+
+            WorldState state = engine.getState();
+            int[] lockChanges = state.getLockChanges();
+            out.writeInt(lockChanges.length);
+            for (int roomId : lockChanges) {
+                out.writeInt(roomId);
+            }
+
+            int[] itemChanges = state.getItemChanges();
+            out.writeInt(itemChanges.length);
+            for (int roomId : itemChanges) {
+                out.writeInt(roomId);
+                writeBits(out, state.getItems(roomId).toWords());
+            }
+        } catch (IOException e) {
+            //A ByteArrayOutputStream never fails
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores the state of a game from a snapshot.  The snapshot is checked completely
+     * before anything is changed, so a bad snapshot leaves the game as it was.
+     *
+     * @param engine The {@link GameEngine} to restore into.
+     * @param snapshot The snapshot bytes made by {@link #capture(GameEngine)}.
+     * @throws IOException If the snapshot is damaged, has an unknown version or belongs to another world.
+     */
+    public static void restore(GameEngine engine, byte[] snapshot) throws IOException {
+        World world = engine.getWorld();
+        int roomCount = world.getRoomCount();
+        int itemCount = world.getItemCount();
+
+        ItemSet inventory;
+        ItemSet foundItems;
+        ItemSet visitedRooms;
+        int[] lockChanges;
+        int[] itemRooms;
+        ItemSet[] roomItems;
+        int currentRoom;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a saved game");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported saved game version: " + version);
+            }
+            if (in.readLong() != world.getFingerprint() || in.readInt() != roomCount || in.readInt() != itemCount) {
+                throw new IOException("The saved game belongs to a different world");
+            }
+
+            currentRoom = in.readInt();
+            if (currentRoom < -1 || currentRoom >= roomCount) {
+                throw new IOException("Invalid room id: " + currentRoom);
+            }
+            inventory = readItems(in, itemCount);
+            foundItems = readItems(in, itemCount);
+            visitedRooms = readItems(in, roomCount);
+
+            lockChanges = new int[readCount(in, roomCount)];
+            for (int i = 0; i < lockChanges.length; i++) {
+                lockChanges[i] = readRoomId(in, roomCount);
+            }
+
+            int rooms = readCount(in, roomCount);
+            itemRooms = new int[rooms];
+            roomItems = new ItemSet[rooms];
+            for (int i = 0; i < rooms; i++) {
+                itemRooms[i] = readRoomId(in, roomCount);
+                roomItems[i] = readItems(in, itemCount);
+            }
+        } catch (EOFException e) {
+            throw new IOException("The saved game is incomplete", e);
+        }
+
+        //Only the changed rooms were saved, every other room is as defined
+        WorldState state = engine.getState();
+        state.reset();
+        for (int roomId : lockChanges) {
+            state.setLocked(roomId, !world.isInitiallyLocked(roomId));
+        }
+        for (int i = 0; i < itemRooms.length; i++) {
+            state.setItems(itemRooms[i], roomItems[i]);
+        }
+        engine.restore(currentRoom, inventory, foundItems, visitedRooms);
+    }
+
+    private static void writeBits(DataOutputStream out, long[] words) throws IOException {
+        //Trailing empty words are not written
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) length--;
+
+        out.writeInt(length);
+        for (int i = 0; i < length; i++) {
+            out.writeLong(words[i]);
+        }
+    }
+
+    private static int readCount(DataInputStream in, int roomCount) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > roomCount) {
+            throw new IOException("Invalid room count: " + count);
+        }
+        return count;
+    }
+
+    private static int readRoomId(DataInputStream in, int roomCount) throws IOException {
+        int roomId = in.readInt();
+        if (roomId < 0 || roomId >= roomCount) {
+            throw new IOException("Invalid room id: " + roomId);
+        }
+        return roomId;
+    }
+
+    private static ItemSet readItems(DataInputStream in, int limit) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > (limit + 63) / 64) {
+            throw new IOException("Invalid set size: " + length);
+        }
+        long[] words = new long[length];
+        for (int i = 0; i < length; i++) {
+            words[i] = in.readLong();
+        }
+
+        ItemSet set = ItemSet.fromWords(words);
+        int last = -1;
+        for (int id = set.nextItem(0); id >= 0; id = set.nextItem(id + 1)) {
+            last = id;
+        }
+        if (last >= limit) {
+            throw new IOException("Invalid id in saved set: " + last);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,749 @@
+/*
+Author: Charles Carter
+Date: 2/4/2025
+
+Description:  This is the main program for an exploration video game.   The player explores
+a haunted house trying to find an escape.
+ */
+
+package hauntedhouse;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * The {@code GameWindow} class represents the main game window and entry point for the Haunted House game.
+ * It initializes the game UI, handles user interactions, and shows the events of its {@link GameEngine}.
+ * This class extends {@link Application} to create a JavaFX-based user interface.
+ */
+public class GameWindow extends Application implements GameListener {
+    //For simplicity in its uses in multiple areas this static variable is public
+    public static Scene scene;
+    //The travel menu shows the nearest visited rooms, which keeps it short in very large worlds
+    private static final int MAX_TRAVEL_TARGETS = 20;
+    //Each room's picture fades out and the next one in over this time
+    private static final Duration FADE_TIME = Duration.seconds(1);
+    //The size of the area the room picture is shown in, until the window is resized
+    private static final double GAME_AREA_WIDTH = 1300;
+    private static final double GAME_AREA_HEIGHT = 743;
+
+    static {
+        //The first thing the game does, so everything before it is the JVM starting
+        StartupProfile.begin();
+        StartupProfile.mark("JVM started and game class loaded");
+    }
+
+    //Data Fields used in the program
+    private World world;
+    private GameEngine engine;
+    private ImageView backgroundView;
+    private TranscriptView transcriptView;
+    private Menu exitsMenu;
+    private Menu travelMenu;
+    private final int[] travelTargets = new int[MAX_TRAVEL_TARGETS];
+    private FlowPane inventoryPane;
+    private AssetManager assets;
+    private ImageVariants imageVariants;
+    private RoomImageCache imageCache;
+    private IconAtlas iconAtlas;
+    private Map<String, ImageView> inventoryIcons = new HashMap<>(); // Icon nodes currently in the inventory pane
+    private MenuBar menuBar;
+    private ContextMenu contextMenu;
+    private SaveManager saves;
+    private CommandJournal journal; // Null if the journal file could not be created
+    private ExitMenus exitMenus;
+    private RoomTransition transition;
+    private int restoredRoom = -1; // The room an undo or a loaded game put the player back in, shown without entering it
+    private MetricsOverlay metricsOverlay;
+    private AudioEngine audio;
+
+    /**
+     * Initializes and starts the JavaFX application.
+     * A loading screen is shown while the world, the item icons and the first room's image
+     * are loaded in the background, then the game itself is shown.
+     *
+     * @param primaryStage The primary stage for this JavaFX application.
+     */
+    @Override
+    public void start(Stage primaryStage) {
+        StartupProfile.mark("JavaFX started");
+        assets = new AssetManager();
+        saves = new SaveManager();
+        imageVariants = new ImageVariants(assets, saves.getFolder().resolve("images"));
+        imageCache = new RoomImageCache(imageVariants);
+        audio = new AudioEngine();
+        audio.preload(AudioEngine.UNLOCK_SOUND);
+        audio.preload(AudioEngine.SEARCH_SOUND);
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(400);
+        progressBar.progressProperty().bind(assets.progressProperty());
+        Label loadingLabel = new Label("Loading...");
+        loadingLabel.setTextFill(Color.YELLOW);
+        VBox loadingBox = new VBox(10, loadingLabel, progressBar);
+        loadingBox.setAlignment(Pos.CENTER);
+        loadingBox.setStyle("-fx-background-color: dimgray;");
+
+        primaryStage.setTitle("Haunted House Game");
+        primaryStage.setScene(new Scene(loadingBox, 1320, 950, Color.DIMGRAY));
+        primaryStage.setResizable(false);
+        primaryStage.show();
+        StartupProfile.mark("Loading screen shown");
+        //The first room picture is loaded at the size it is shown at
+        imageVariants.setDisplaySize(GAME_AREA_WIDTH, GAME_AREA_HEIGHT, primaryStage.getRenderScaleX());
+
+        assets.submit(WorldLoader::loadSelected)
+                .thenCompose(this::loadStartupAssets)
+                .whenComplete((startup, error) -> Platform.runLater(() -> {
+                    StartupProfile.mark("Icons and picture sizes loaded");
+                    if (error != null) {
+                        Throwable failure = unwrap(error);
+                        System.err.println("The game could not be loaded: " + failure);
+                        progressBar.progressProperty().unbind();
+                        progressBar.setProgress(0);
+                        loadingLabel.setText("The game could not be loaded: " + describe(failure));
+                        return;
+                    }
+                    Room startRoom = startup.world.getRoom(startup.world.getStartRoom());
+                    Image startImage = imageVariants.image(startRoom.getImagePath());
+                    AssetManager.whenLoaded(startImage, () -> {
+                        StartupProfile.mark("First room picture loaded");
+                        if (!startImage.isError()) {
+                            startup.startRoomImage = startImage;
+                        }
+                        showGame(primaryStage, startup);
+                    });
+                }));
+    }
+
+    /**
+     * Starts loading the item icons of a world, and the sizes of the pictures of its first room
+     * and the rooms next to it.
+     * Only the icons that exist are loaded, and any that fail to load are left out instead of
+     * stopping the game from starting.
+     *
+     * @param loadedWorld The {@link World} that was just loaded.
+     * @return A future that completes once every asset has been loaded.
+     */
+    private CompletableFuture<StartupAssets> loadStartupAssets(World loadedWorld) {
+        StartupAssets startup = new StartupAssets(loadedWorld);
+        List<CompletableFuture<?>> loads = new ArrayList<>();
+
+        //Most items of a generated world have no icon, so the icons are listed before any is loaded
+        loads.add(assets.submit(() -> {
+            Set<String> icons = AssetManager.list(IconAtlas.ICON_FOLDER);
+            List<String> items = new ArrayList<>();
+            for (int itemId = 0; itemId < loadedWorld.getItemCount(); itemId++) {
+                String item = loadedWorld.getItemName(itemId);
+                String path = IconAtlas.iconPath(item);
+                if (icons != null ? icons.contains(path) : AssetManager.resolve(path) != null) {
+                    items.add(item);
+                }
+            }
+            return items;
+        }).thenCompose(items -> {
+            List<CompletableFuture<?>> icons = new ArrayList<>();
+            for (String item : items) {
+                icons.add(assets.loadImage(IconAtlas.iconPath(item), IconAtlas.ICON_SIZE, IconAtlas.ICON_SIZE)
+                        .exceptionally(error -> null)
+                        .thenAccept(icon -> {
+                            if (icon != null) {
+                                startup.icons.put(item, icon);
+                            }
+                        }));
+            }
+            return CompletableFuture.allOf(icons.toArray(new CompletableFuture<?>[0]));
+        }));
+
+        //The first room and its neighbours are shown and prefetched at once, so their sizes are needed first
+        int startRoom = loadedWorld.getStartRoom();
+        List<String> pictures = new ArrayList<>();
+        pictures.add(loadedWorld.getRoom(startRoom).getImagePath());
+        for (int exit : loadedWorld.getExits(startRoom)) {
+            pictures.add(loadedWorld.getRoom(exit).getImagePath());
+        }
+        loads.add(imageVariants.readSources(pictures));
+
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).thenApply(done -> startup);
+    }
+
+    /**
+     * Sets up the game UI, event handlers, and game logic once the startup assets are loaded.
+     *
+     * @param primaryStage The primary stage for this JavaFX application.
+     * @param startup The assets loaded during startup.
+     */
+    private void showGame(Stage primaryStage, StartupAssets startup) {
+        BorderPane root = new BorderPane();
+        root.setStyle("-fx-background-color: dimgray;");
+
+        StackPane gameArea = new StackPane();
+        gameArea.setPrefSize(GAME_AREA_WIDTH, GAME_AREA_HEIGHT);
+        gameArea.setMinSize(0, 0); // The picture follows the area, so it must not hold it open
+
+        backgroundView = new ImageView();
+        backgroundView.setPreserveRatio(true);
+        backgroundView.setSmooth(true);
+        backgroundView.fitWidthProperty().bind(gameArea.widthProperty());
+        backgroundView.fitHeightProperty().bind(gameArea.heightProperty());
+        metricsOverlay = new MetricsOverlay();
+        metricsOverlay.addSource(imageCache);
+        metricsOverlay.addSource(startup.world.getRegions());
+        gameArea.getChildren().addAll(backgroundView, metricsOverlay);
+        gameArea.setAlignment(Pos.CENTER);
+        root.setCenter(gameArea);
+
+        menuBar = new MenuBar();
+        Menu actionsMenu = new Menu("Actions");
+        MenuItem searchItem = new MenuItem("Search for Items");
+        searchItem.setOnAction(e -> Metrics.handle("Search", this::handleSearchAction));
+        MenuItem lookItem = new MenuItem("Look Around");
+        lookItem.setOnAction(e -> Metrics.handle("Look", this::handleLookAction));
+        actionsMenu.getItems().addAll(searchItem, lookItem);
+
+        exitsMenu = new Menu("Exits");
+        travelMenu = new Menu("Travel");
+
+        Menu gameMenu = new Menu("Game");
+        MenuItem saveItem = new MenuItem("Save Game");
+        saveItem.setOnAction(e -> Metrics.handle("Save", this::handleSaveAction));
+        MenuItem loadItem = new MenuItem("Load Game");
+        loadItem.setOnAction(e -> Metrics.handle("Load", () -> handleLoadAction(SaveManager.QUICKSAVE)));
+        MenuItem loadAutosaveItem = new MenuItem("Load Autosave");
+        loadAutosaveItem.setOnAction(e -> Metrics.handle("Load", () -> handleLoadAction(SaveManager.AUTOSAVE)));
+        MenuItem undoItem = new MenuItem("Undo");
+        undoItem.setOnAction(e -> Metrics.handle("Undo", this::handleUndoAction));
+        CheckMenuItem metricsItem = new CheckMenuItem("Show Performance");
+        metricsItem.setAccelerator(KeyCombination.keyCombination("F3"));
+        metricsItem.setOnAction(e -> metricsOverlay.setShowing(metricsItem.isSelected()));
+        gameMenu.getItems().addAll(saveItem, loadItem, loadAutosaveItem, undoItem,
+                new SeparatorMenuItem(), metricsItem);
+
+        menuBar.getMenus().addAll(gameMenu, actionsMenu, exitsMenu, travelMenu);
+        root.setTop(menuBar);
+
+        contextMenu = new ContextMenu();
+        MenuItem searchContextItem = new MenuItem("Search for Items");
+        searchContextItem.setOnAction(e -> Metrics.handle("Search", this::handleSearchAction));
+        MenuItem lookContextItem = new MenuItem("Look Around");
+        lookContextItem.setOnAction(e -> Metrics.handle("Look", this::handleLookAction));
+
+        contextMenu.getItems().addAll(searchContextItem, lookContextItem);
+
+        //The transcript scrolls by itself and keeps the earlier descriptions
+        transcriptView = new TranscriptView(new Transcript());
+        transcriptView.setPrefHeight(150);
+        transcriptView.setPrefWidth(600);
+
+        inventoryPane = new FlowPane();
+        inventoryPane.setPadding(new Insets(10));
+        inventoryPane.setHgap(10);
+        inventoryPane.setVgap(10);
+        inventoryPane.setStyle("-fx-background-color: #444444; -fx-border-color: black; -fx-border-width: 2;");
+        inventoryPane.setPrefHeight(150);
+        inventoryPane.setPrefWidth(200);
+
+        ScrollPane inventoryScrollPane = new ScrollPane(inventoryPane);
+        inventoryScrollPane.setFitToWidth(true);
+        inventoryScrollPane.setFitToHeight(false);
+
+        HBox bottomBox = new HBox(10, transcriptView, inventoryScrollPane);
+        bottomBox.setAlignment(Pos.CENTER);
+        bottomBox.setPadding(new Insets(10));
+        root.setBottom(bottomBox);
+
+        world = startup.world;
+        engine = new GameEngine(world);
+        engine.addListener(this);
+        iconAtlas = new IconAtlas(startup.icons);
+        //Every command handler is timed, including the menu updates it causes
+        exitMenus = new ExitMenus(world, exitsMenu, travelMenu, contextMenu,
+                roomId -> Metrics.handle("Exit", () -> updateRoom(roomId)),
+                roomId -> Metrics.handle("Travel", () -> travelTo(roomId)));
+        transition = new RoomTransition(backgroundView, FADE_TIME,
+                roomId -> Metrics.handle("Enter Room", () -> enterOrShowRoom(roomId)), this::onTransitionFinished);
+        startJournal();
+
+        //Room pictures are loaded at the size they are shown at, once the window stops changing size
+        imageVariants.setDisplaySize(gameArea.getPrefWidth(), gameArea.getPrefHeight(), primaryStage.getRenderScaleX());
+        if (startup.startRoomImage != null) {
+            imageCache.add(world.getRoom(world.getStartRoom()), startup.startRoomImage);
+        }
+        updateRoom(world.getStartRoom());
+
+        scene = new Scene(root, 1320, 950, Color.DIMGRAY);
+        Metrics.monitorPulses(scene);
+        scene.setOnContextMenuRequested(e -> {
+            contextMenu.show(scene.getWindow(), e.getScreenX(), e.getScreenY());
+        });
+        primaryStage.setScene(scene);
+        primaryStage.setResizable(true);
+
+        PauseTransition resizePause = new PauseTransition(Duration.millis(250));
+        resizePause.setOnFinished(e -> resizeRoomImages(gameArea.getWidth(), gameArea.getHeight(),
+                primaryStage.getRenderScaleX()));
+        gameArea.widthProperty().addListener((observable, oldValue, newValue) -> resizePause.playFromStart());
+        gameArea.heightProperty().addListener((observable, oldValue, newValue) -> resizePause.playFromStart());
+        primaryStage.renderScaleXProperty().addListener((observable, oldValue, newValue) -> resizePause.playFromStart());
+
+        StartupProfile.mark("Game scene built");
+        reportFirstFrame(scene);
+    }
+
+    /**
+     * Adds the startup profile to the performance overlay when the first frame of the game is
+     * laid out, which is the pulse that also renders it, and prints it if the metrics are reported.
+     *
+     * @param gameScene The scene of the game.
+     */
+    private void reportFirstFrame(Scene gameScene) {
+        gameScene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                if (!StartupProfile.isRecording()) return;
+
+                StartupProfile.mark("First frame");
+                String report = StartupProfile.finish() + "Rooms made by the first frame: "
+                        + world.getMaterializedRoomCount() + " of " + world.getRoomCount();
+                metricsOverlay.addSource(report);
+                if (Metrics.isReporting()) {
+                    System.out.println(report);
+                }
+                //Not removed while the pulse is going through its listeners
+                Platform.runLater(() -> gameScene.removePostLayoutPulseListener(this));
+            }
+        });
+    }
+
+    /**
+     * Reloads the room pictures at a new display size, if it needs other variants of them.
+     * The current picture stays until its new variant has loaded.
+     *
+     * @param width The width of the area the room picture is shown in.
+     * @param height The height of the area the room picture is shown in.
+     * @param renderScale The number of screen pixels per window coordinate.
+     */
+    private void resizeRoomImages(double width, double height, double renderScale) {
+        if (width <= 0 || height <= 0 || !imageVariants.setDisplaySize(width, height, renderScale)) return;
+
+        imageCache.clear();
+        //A room being entered loads at the new size anyway
+        if (transition.isPlaying()) return;
+
+        Room room = engine.getCurrentRoom();
+        Image image = imageCache.get(room);
+        AssetManager.whenLoaded(image, () -> {
+            if (!image.isError() && !transition.isPlaying() && engine.getCurrentRoom().getId() == room.getId()) {
+                backgroundView.setImage(image);
+            }
+        });
+        prefetchExitImages(room);
+    }
+
+
+    /**
+     * Moves the player toward a new room.
+     * Open rooms are entered right away, locked rooms are handled by the {@link GameEngine}.
+     *
+     * @param roomId The id of the room to update to.
+     */
+    private void updateRoom(int roomId) {
+        if (engine.move(roomId) == GameEngine.MoveResult.OPEN) {
+            updateRoomAfterUnlock(world.getRoom(roomId));
+        }
+    }
+
+    /**
+     * Travels straight to a room the player has been in before, with a single transition
+     * instead of one for every room on the way.
+     *
+     * @param roomId The id of the room to travel to.
+     */
+    private void travelTo(int roomId) {
+        if (engine.canTravel(roomId)) {
+            updateRoomAfterUnlock(world.getRoom(roomId));
+        }
+    }
+
+    /**
+     * Called by the {@link GameEngine} when the player unlocks a room.
+     * The menus are disabled until the player has read the unlock message and clicks to continue.
+     *
+     * @param room The {@link Room} that was unlocked.
+     */
+    @Override
+    public void onRoomUnlocked(Room room) {
+        audio.play(AudioEngine.UNLOCK_SOUND);
+
+        // Temporarily disable menus
+        menuBar.setDisable(true);
+
+        exitMenus.hideContextMenu();
+
+        scene.setOnMouseClicked(e -> {
+            scene.setOnMouseClicked(null);
+            updateRoomAfterUnlock(room);
+            menuBar.setDisable(false);
+        });
+    }
+
+    /**
+     * Handles the transition of unlocking a locked room and updating the game state accordingly.
+     * If a transition is already playing it is redirected to this room.
+     *
+     * @param room The {@link Room} that has been unlocked.
+     */
+    private void updateRoomAfterUnlock(Room room) {
+        //Clear context menu during transition
+        exitMenus.hideContextMenu();
+        transition.play(room.getId());
+        //The room's sound fades in step with its picture, the old one out as the old picture fades
+        audio.crossfadeTo(room.getAmbientPath(), FADE_TIME.toSeconds() * 2);
+    }
+
+    /**
+     * Called once a room's picture has faded in and the player can act again.
+     */
+    private void onTransitionFinished() {
+        //While an unlock message waits for its click, the actions stay hidden
+        if (!menuBar.isDisable()) {
+            exitMenus.showActions();
+        }
+    }
+
+    /**
+     * Called by the {@link GameEngine} when the player has entered a room.
+     * Shows the room's image and fills the menus with its exits.
+     *
+     * @param room The {@link Room} the player is now in.
+     */
+    @Override
+    public void onRoomEntered(Room room) {
+        backgroundView.setImage(imageCache.get(room));
+        audio.play(room.getSoundPath());
+        prefetchExitImages(room);
+
+        exitMenus.showExits(room);
+        int targets = engine.getState().getRoutes().getReachable(room.getId(), engine.getVisitedRooms(), travelTargets);
+        exitMenus.showDestinations(travelTargets, targets);
+
+        //The journal and the snapshot are gathered here, only the files are written in the background
+        if (journal != null) {
+            journal.flush();
+        }
+        saves.save(SaveManager.AUTOSAVE, GameSnapshot.capture(engine))
+                .exceptionally(error -> {
+                    System.err.println("Autosave failed: " + unwrap(error));
+                    return null;
+                });
+    }
+
+    /**
+     * Starts loading the images and entry sounds of the rooms next to the given room in the
+     * background, so they are ready by the time the player walks through one of the exits.
+     *
+     * @param room The {@link Room} the player is currently in.
+     */
+    private void prefetchExitImages(Room room) {
+        for (int exitId : world.getExits(room.getId())) {
+            Room exit = world.getRoom(exitId);
+            imageCache.prefetch(exit);
+            audio.preload(exit.getSoundPath());
+        }
+    }
+
+    /**
+     * Displays the description of the current room when the player chooses to "Look Around".
+     */
+    private void handleLookAction() {
+        engine.look();
+    }
+
+    /**
+     * Handles the player's action of searching a room for items.
+     * If items are found, they are added to the player's inventory.
+     */
+    private void handleSearchAction() {
+        audio.play(AudioEngine.SEARCH_SOUND);
+        engine.search();
+    }
+
+    /**
+     * Saves the game when the player chooses "Save Game".
+     */
+    private void handleSaveAction() {
+        saves.save(SaveManager.QUICKSAVE, GameSnapshot.capture(engine))
+                .whenComplete((done, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        onMessage("The game could not be saved: " + describe(unwrap(error)));
+                    } else {
+                        onMessage("Game saved.");
+                    }
+                }));
+    }
+
+    /**
+     * Loads a saved game and shows the room it was saved in.
+     * Loading is ignored while the player is moving between rooms.
+     *
+     * @param name The name of the save file to load.
+     */
+    private void handleLoadAction(String name) {
+        if (transition.isPlaying()) return;
+
+        saves.load(name).whenComplete((snapshot, error) -> Platform.runLater(() -> {
+            if (transition.isPlaying()) return; // The player started moving while the file was read
+            if (error != null) {
+                Throwable failure = unwrap(error);
+                if (failure instanceof NoSuchFileException || failure instanceof FileNotFoundException) {
+                    onMessage("There is no saved game to load.");
+                } else {
+                    onMessage("The saved game could not be read: " + describe(failure));
+                }
+                return;
+            }
+            try {
+                GameSnapshot.restore(engine, snapshot);
+                if (journal != null) journal.recordRestore(snapshot);
+            } catch (IOException e) {
+                onMessage("The saved game could not be loaded: " + e.getMessage());
+                return;
+            }
+            Room room = engine.getCurrentRoom();
+            if (room != null) {
+                showRestoredRoom();
+            } else {
+                updateRoomAfterUnlock(world.getRoom(world.getStartRoom()));
+            }
+        }));
+    }
+
+    /**
+     * Starts a journal of this session's commands in the save folder, which is what "Undo"
+     * rewinds and what a player can send in to reproduce a problem.
+     */
+    private void startJournal() {
+        String session = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        try {
+            journal = new CommandJournal(engine, saves.getFolder().resolve("journals").resolve(session + ".journal"),
+                    saves.getWriter());
+        } catch (IOException e) {
+            System.err.println("The command journal could not be started: " + e);
+        }
+    }
+
+    /**
+     * Takes back the last move, travel or search when the player chooses "Undo".
+     * Undo is ignored while the player is moving between rooms.
+     */
+    private void handleUndoAction() {
+        if (transition.isPlaying() || journal == null) return;
+
+        int undoPoint = journal.getUndoPoint();
+        if (undoPoint < 0) {
+            onMessage("There is nothing to undo.");
+            return;
+        }
+        try {
+            journal.rewind(undoPoint);
+        } catch (IOException e) {
+            onMessage("The last action could not be undone: " + e.getMessage());
+            return;
+        }
+        showRestoredRoom();
+    }
+
+    /**
+     * Shows the room the game was put back in by an undo or a loaded game, with the same
+     * transition as a move, but without entering it again.
+     */
+    private void showRestoredRoom() {
+        restoredRoom = engine.getCurrentRoom().getId();
+        updateRoomAfterUnlock(engine.getCurrentRoom());
+    }
+
+    /**
+     * Enters a room once the old picture has faded out, or only shows it if it is the room the
+     * game was put back in, so its enter rules do not run a second time.
+     */
+    private void enterOrShowRoom(int roomId) {
+        boolean restored = roomId == restoredRoom;
+        restoredRoom = -1;
+        if (restored) {
+            engine.showCurrentRoom();
+        } else {
+            engine.enterRoom(roomId);
+        }
+    }
+
+    /**
+     * Called by the {@link GameEngine} when there is text to show the player.
+     *
+     * @param text The text to add to the transcript.
+     */
+    @Override
+    public void onMessage(String text) {
+        transcriptView.append(text);
+    }
+
+    /**
+     * Called by the {@link GameEngine} when an item has been added to the inventory.
+     *
+     * @param item The name of the item.
+     */
+    @Override
+    public void onItemAdded(String item) {
+        addInventoryIcon(item);
+    }
+
+    /**
+     * Called by the {@link GameEngine} when an item has been removed from the inventory.
+     *
+     * @param item The name of the item.
+     */
+    @Override
+    public void onItemRemoved(String item) {
+        removeInventoryIcon(item);
+    }
+
+    /**
+     * Adds the icon of a newly collected item to the inventory UI.
+     * The icon comes from the {@link IconAtlas}, so no file has to be loaded.
+     *
+     * @param item The name of the item that was added to the inventory.
+     */
+    private void addInventoryIcon(String item) {
+        if (inventoryIcons.containsKey(item)) return; // Items are unique, so one icon per item is enough
+
+        ImageView itemIcon = iconAtlas.createIcon(item);
+        itemIcon.setUserData(item);
+        Tooltip.install(itemIcon, new Tooltip(item));
+        itemIcon.setOnMouseClicked(this::handleInventoryClick);
+        inventoryIcons.put(item, itemIcon);
+        inventoryPane.getChildren().add(itemIcon);
+    }
+
+    /**
+     * Removes the icon of an item that has left the inventory from the inventory UI.
+     *
+     * @param item The name of the item that was removed from the inventory.
+     */
+    private void removeInventoryIcon(String item) {
+        ImageView itemIcon = inventoryIcons.remove(item);
+        if (itemIcon != null) {
+            inventoryPane.getChildren().remove(itemIcon);
+        }
+    }
+
+    /**
+     * Handles a click on one of the inventory icons.
+     * A left-click shows a description of the item that was clicked.
+     *
+     * @param event The mouse event of the click.
+     */
+    private void handleInventoryClick(MouseEvent event) {
+        if (event.getButton() == MouseButton.PRIMARY) { // Left-click
+            String item = (String) ((Node) event.getSource()).getUserData();
+            // The engine shows the item-specific description
+            Metrics.handle("Inspect", () -> engine.inspect(item));
+        }
+    }
+
+    /**
+     * Called when the application closes.  Stops the asset loading, saving and audio threads, and
+     * prints how well the caches worked and where the time went if the metrics are reported.
+     */
+    @Override
+    public void stop() {
+        if (Metrics.isReporting()) {
+            System.out.println(imageCache);
+            System.out.println(Metrics.PULSES);
+            System.out.println(Metrics.HANDLERS);
+            System.out.println(Metrics.IMAGE_LOADS);
+            System.out.println(Metrics.TRANSITIONS);
+            if (world != null) {
+                System.out.println(world.getRegions());
+            }
+        }
+        //The journal is written by the save writer, so it is closed first
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("The command journal could not be closed: " + e);
+            }
+        }
+        assets.shutdown();
+        imageVariants.shutdown();
+        saves.shutdown();
+        audio.close();
+    }
+
+    /**
+     * Gets the failure behind an exception that a {@link CompletableFuture} completed with, which
+     * wraps it in a {@link CompletionException} when it was thrown by a later stage.
+     *
+     * @param error The exception the future completed with.
+     * @return The exception that caused the failure.
+     */
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Describes a failure to the player, by its message if it has one.
+     *
+     * @param failure The exception.
+     * @return The description.
+     */
+    private static String describe(Throwable failure) {
+        return failure.getMessage() != null ? failure.getMessage() : failure.toString();
+    }
+
+    /**
+     * The assets that are loaded behind the loading screen before the game can be shown.
+     */
+    private static class StartupAssets {
+        final World world;
+        final Map<String, Image> icons = new ConcurrentHashMap<>();
+        Image startRoomImage; // Set on the JavaFX application thread
+
+        StartupAssets(World world) {
+            this.world = world;
+        }
+    }
+
+    /**
+     * The main method to launch the JavaFX application.
+     *
+     * @param args Command-line arguments.
+     */
+    public static void main(String[] args) {
+        launch(args);
+    }
+}
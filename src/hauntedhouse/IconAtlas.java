@@ -0,0 +1,107 @@
+/*
+Description:  This class packs all of the inventory icons into one image when the game starts,
+so that showing an item in the inventory never has to load a file.
+ */
+
+package hauntedhouse;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * The {@code IconAtlas} class holds every inventory icon in a single texture atlas.
+ * Each icon is copied into its own square cell of the atlas once, and icons are then
+ * shown by pointing an {@link ImageView} viewport at that cell.
+ */
+public class IconAtlas {
+    public static final int ICON_SIZE = 32;
+    public static final String ICON_FOLDER = "image/icons/";
+
+    private final WritableImage atlas;
+    private final Map<String, Rectangle2D> cells = new LinkedHashMap<>();
+
+    /**
+     * Gets the asset path of an item's icon.
+     *
+     * @param item The name of the item.
+     * @return The asset path of the icon, for the {@link AssetManager}.
+     */
+    public static String iconPath(String item) {
+        return ICON_FOLDER + item + ".png";
+    }
+
+    /**
+     * Constructs a new {@code IconAtlas} by packing already loaded icons into one image.
+     * Items whose icon is {@code null} or failed to load are left out of the atlas.  The icons
+     * must already fit in {@value #ICON_SIZE} pixels, such as when they are loaded with
+     * {@link AssetManager#loadImage(String, double, double)}; anything beyond that is cut off.
+     *
+     * @param icons The loaded icon of each item that can appear in the inventory.
+     */
+    public IconAtlas(Map<String, Image> icons) {
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(icons.size())));
+        int rows = Math.max(1, (icons.size() + columns - 1) / columns);
+        atlas = new WritableImage(columns * ICON_SIZE, rows * ICON_SIZE);
+
+        int cell = 0;
+        for (Map.Entry<String, Image> entry : icons.entrySet()) {
+            String item = entry.getKey();
+            Image icon = entry.getValue();
+            if (icon == null || icon.isError() || icon.getPixelReader() == null) continue;
+            PixelReader reader = icon.getPixelReader();
+
+            int x = (cell % columns) * ICON_SIZE;
+            int y = (cell / columns) * ICON_SIZE;
+            int width = Math.min(ICON_SIZE, (int) icon.getWidth());
+            int height = Math.min(ICON_SIZE, (int) icon.getHeight());
+            atlas.getPixelWriter().setPixels(x, y, width, height, reader, 0, 0);
+            cells.put(item, new Rectangle2D(x, y, ICON_SIZE, ICON_SIZE));
+            cell++;
+        }
+    }
+
+    /**
+     * Checks whether the atlas contains an icon for the given item.
+     *
+     * @param item The name of the item.
+     * @return {@code true} if the item has an icon, {@code false} otherwise.
+     */
+    public boolean hasIcon(String item) {
+        return cells.containsKey(item);
+    }
+
+    /**
+     * Creates a new view that shows the icon of the given item from the atlas.
+     * If the item has no icon an empty view of the same size is returned.
+     *
+     * @param item The name of the item.
+     * @return An {@link ImageView} showing the item's icon.
+     */
+    public ImageView createIcon(String item) {
+        ImageView view = new ImageView();
+        Rectangle2D cell = cells.get(item);
+        if (cell != null) {
+            view.setImage(atlas);
+            view.setViewport(cell);
+        }
+        view.setFitWidth(ICON_SIZE);
+        view.setFitHeight(ICON_SIZE);
+        return view;
+    }
+
+    /**
+     * Gets the packed atlas image.
+     *
+     * @return The image holding all icons.
+     */
+    public Image getAtlas() {
+        return atlas;
+    }
+}
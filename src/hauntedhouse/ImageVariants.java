@@ -0,0 +1,476 @@
+/*
+Description:  This class loads room pictures at the size they are shown at instead of the size
+they were drawn at, and keeps the smaller copies on disk so they load quickly the next time.
+ */
+
+package hauntedhouse;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+
+/**
+ * The {@code ImageVariants} class makes display-sized variants of the room pictures.
+ * <p>
+ * A 1300x743 picture takes almost 4 MB once decoded, however small the window is.  When the room
+ * picture is shown smaller than that, the picture is instead decoded straight to a smaller size,
+ * rounded up to the next sixteenth of its own size so that resizing the window only ever makes a
+ * few variants of each picture.  Pictures are never made larger than they are, and on screens
+ * that scale the window, such as high-DPI screens, the variant has the screen's pixels and not
+ * the window's.
+ * <p>
+ * The first time a variant is made it is also written to a cache folder as a PNG compressed at
+ * the fastest level, which JavaFX decodes quickly, and later loads of the same variant read that
+ * file instead.  A variant's file name includes the size and date of its source, so a changed
+ * picture gets new variants, and writing one deletes the variants of the picture as it was.
+ * The folder is kept under {@value #CACHE_BUDGET} bytes by deleting the variants used longest
+ * ago, both when it is listed and whenever a new variant takes it over.  Without a cache folder,
+ * variants are still made but not kept.
+ * <p>
+ * The sizes of the pictures and the variants in the cache folder are read on a background
+ * thread, ahead of time with {@link #readSources(Collection)}, and files are written on it too,
+ * so loading a picture on the JavaFX application thread only looks up what is already known.
+ * A picture whose size has not been read yet is loaded at its own size that once.
+ * Apart from {@link #readSources(Collection)}, every method must be called on the JavaFX
+ * application thread.
+ */
+public class ImageVariants {
+    //Each picture has at most this many variants, one per step of its own size
+    public static final int SCALE_STEPS = 16;
+    //The most the cache folder keeps, about twenty full-size variants
+    public static final long CACHE_BUDGET = 64L * 1024 * 1024;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final AssetManager assets;
+    private final Path folder;
+    private final ExecutorService background; // Reads the sizes and writes the variants
+    private final Map<String, Source> sources = new ConcurrentHashMap<>(); // The sizes read so far
+    private final Set<String> variantFiles = ConcurrentHashMap.newKeySet(); // The names of the kept variants
+    private boolean listed; // Whether the folder has been listed, only used on the background thread
+    //The size of each kept variant, used longest ago first, and their total, only used on the background thread
+    private final LinkedHashMap<String, Long> variantSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long cacheBytes;
+    private double displayWidth;
+    private double displayHeight;
+
+    /**
+     * Constructs a new {@code ImageVariants} that loads pictures at their own size until a display
+     * size is set.
+     *
+     * @param assets The {@link AssetManager} the pictures are loaded with.
+     * @param folder The folder to keep variants in, or {@code null} to not keep them.  It is
+     *               created when the first variant is written.
+     */
+    public ImageVariants(AssetManager assets, Path folder) {
+        this.assets = assets;
+        this.folder = folder;
+        background = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "image-variants");
+            thread.setDaemon(true); // A variant that is not written is simply made again next time
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the sizes of pictures on the background thread, and the first time also which
+     * variants are kept in the cache folder.  Can be called on any thread.
+     *
+     * @param paths The asset paths of the pictures, such as the rooms shown first.
+     * @return A future that completes once the sizes are known.
+     */
+    public CompletableFuture<Void> readSources(Collection<String> paths) {
+        return CompletableFuture.runAsync(() -> {
+            if (!listed) {
+                listed = true;
+                listVariants();
+            }
+            for (String path : paths) {
+                if (!sources.containsKey(path)) {
+                    sources.put(path, readSource(path));
+                }
+            }
+        }, background);
+    }
+
+    /**
+     * Runs an action on the JavaFX application thread once the size of a picture is known,
+     * so that {@link #image(String)} loads the right variant.  The action runs right away if
+     * the size is already known.
+     *
+     * @param path The asset path of the picture.
+     * @param action The action to run.
+     */
+    public void whenReady(String path, Runnable action) {
+        if (sources.containsKey(path)) {
+            action.run();
+        } else {
+            readSources(List.of(path)).thenRun(() -> Platform.runLater(action));
+        }
+    }
+
+    /**
+     * Sets the size pictures are shown at.
+     *
+     * @param width The width of the area the picture is fitted into, in window coordinates.
+     * @param height The height of the area the picture is fitted into, in window coordinates.
+     * @param renderScale How many screen pixels one window coordinate takes, such as 2 on a
+     *                    high-DPI screen.
+     * @return {@code true} if a picture loaded before now has a different variant, so pictures
+     *         already loaded may be the wrong size.
+     */
+    public boolean setDisplaySize(double width, double height, double renderScale) {
+        double newWidth = Math.ceil(width * renderScale);
+        double newHeight = Math.ceil(height * renderScale);
+
+        //Most resizes stay within the same sixteenth of every picture
+        boolean changed = false;
+        for (Source source : sources.values()) {
+            changed |= getSteps(source, displayWidth, displayHeight) != getSteps(source, newWidth, newHeight);
+        }
+        displayWidth = newWidth;
+        displayHeight = newHeight;
+        return changed;
+    }
+
+    /**
+     * Creates the variant of a picture for the display size.  It loads in JavaFX's
+     * background-loading mode, as {@link AssetManager#image(String)} does.
+     *
+     * @param path The asset path of the picture.
+     * @return The picture, which may still be loading.
+     */
+    public Image image(String path) {
+        Source source = sources.get(path);
+        if (source == null) {
+            readSources(List.of(path)); // For the next time
+        }
+        int steps = getSteps(source, displayWidth, displayHeight);
+        if (steps >= SCALE_STEPS) {
+            return assets.image(path);
+        }
+        int width = Math.max(1, (int) Math.round((double) source.width * steps / SCALE_STEPS));
+        int height = Math.max(1, (int) Math.round((double) source.height * steps / SCALE_STEPS));
+
+        String base = variantBase(path);
+        Path file = folder == null ? null : folder.resolve(String.format("%s%dx%d-%x.png",
+                base, width, height, source.stamp));
+        if (file != null && variantFiles.contains(file.getFileName().toString())) {
+            Image cached = assets.load(file.toUri().toString(), path, 0, 0);
+            AssetManager.whenLoaded(cached, () -> {
+                if (cached.isError()) {
+                    //Made again on the next load
+                    variantFiles.remove(file.getFileName().toString());
+                    background.execute(() -> forget(file.getFileName().toString()));
+                } else {
+                    background.execute(() -> touch(file));
+                }
+            });
+            return cached;
+        }
+
+        Image image = assets.image(path, width, height);
+        if (file != null) {
+            AssetManager.whenLoaded(image, () -> {
+                if (!image.isError()) {
+                    background.execute(() -> write(image, file, base));
+                }
+            });
+        }
+        return image;
+    }
+
+    /**
+     * Gets the size of the variant of a picture for the display size, in sixteenths of its own size.
+     *
+     * @return The smallest step that still fills the display, or {@link #SCALE_STEPS} if the
+     *         picture is used as it is.
+     */
+    private static int getSteps(Source source, double displayWidth, double displayHeight) {
+        if (source == null || source == Source.NONE || displayWidth <= 0 || displayHeight <= 0) return SCALE_STEPS;
+
+        //The picture is fitted into the display, so the direction that shrinks it most decides
+        double scale = Math.min(displayWidth / source.width, displayHeight / source.height);
+        int steps = (int) Math.ceil(scale * SCALE_STEPS - 1e-9);
+        return Math.max(1, Math.min(SCALE_STEPS, steps));
+    }
+
+    /**
+     * Stops the background thread.  Variants that have not been written yet are dropped.
+     */
+    public void shutdown() {
+        background.shutdownNow();
+    }
+
+    /**
+     * Notes which variants the cache folder holds, on the background thread.  If they take more
+     * than {@value #CACHE_BUDGET} bytes, the ones used longest ago are deleted first, and files
+     * left by a write that was cut short are deleted too.
+     */
+    private void listVariants() {
+        if (folder == null || !Files.isDirectory(folder)) return;
+        List<Path> kept = new ArrayList<>();
+        Map<Path, Long> used = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    deleteQuietly(file);
+                    continue;
+                }
+                kept.add(file);
+                used.put(file, Files.getLastModifiedTime(file).toMillis());
+                sizes.put(file, Files.size(file));
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list the image variants in " + folder + ": " + e);
+            return;
+        }
+
+        kept.sort(Comparator.comparing(used::get));
+        for (Path file : kept) {
+            remember(file.getFileName().toString(), sizes.get(file));
+        }
+        trim();
+    }
+
+    /**
+     * Counts a variant in the cache folder as just used, on the background thread.
+     */
+    private void remember(String name, long size) {
+        Long previous = variantSizes.put(name, size);
+        cacheBytes += size - (previous == null ? 0 : previous);
+        variantFiles.add(name);
+    }
+
+    /**
+     * Deletes a variant from the cache folder, on the background thread.
+     */
+    private void forget(String name) {
+        Long size = variantSizes.remove(name);
+        if (size != null) cacheBytes -= size;
+        variantFiles.remove(name);
+        deleteQuietly(folder.resolve(name));
+    }
+
+    /**
+     * Deletes the variants used longest ago until the cache folder is within its budget, on the
+     * background thread.
+     */
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> eldest = variantSizes.entrySet().iterator();
+        while (cacheBytes > CACHE_BUDGET && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            cacheBytes -= entry.getValue();
+            variantFiles.remove(entry.getKey());
+            //A file that cannot be deleted is counted as deleted, it is tried again the next time
+            deleteQuietly(folder.resolve(entry.getKey()));
+        }
+    }
+
+    /**
+     * Gets the start of the file names of a picture's variants, which are followed by the size
+     * and stamp, such as {@code image_Attic-650x372-1a2b.png}.
+     */
+    private static String variantBase(String path) {
+        return path.replace('/', '_').replaceFirst("\\.[^.]*$", "") + "-";
+    }
+
+    /**
+     * Deletes the variants of a picture made from a source with another stamp, on the
+     * background thread.
+     */
+    private void deleteOtherStamps(String base, Path file) {
+        String stamp = file.getFileName().toString().substring(file.getFileName().toString().lastIndexOf('-'));
+        for (String name : variantFiles) {
+            if (name.startsWith(base) && !name.endsWith(stamp)
+                    && name.substring(base.length()).matches("\\d+x\\d+-[0-9a-f]+\\.png")) {
+                forget(name);
+            }
+        }
+    }
+
+    /**
+     * Marks a variant as just used, so it is deleted last when the folder is over its budget.
+     */
+    private void touch(Path file) {
+        variantSizes.get(file.getFileName().toString());
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            //It is only deleted sooner
+        }
+    }
+
+    /**
+     * Gets the size and date of a picture, reading only the start of the file, on the background thread.
+     *
+     * @return The source, or {@link Source#NONE} if it is missing or not a PNG and so is never scaled.
+     */
+    private static Source readSource(String path) {
+        Source source = Source.NONE;
+        URL url = AssetManager.resolve(path);
+        if (url != null) {
+            try {
+                URLConnection connection = url.openConnection();
+                try (DataInputStream in = new DataInputStream(connection.getInputStream())) {
+                    //The signature is followed by the IHDR chunk, which starts with the width and height
+                    byte[] header = new byte[16];
+                    in.readFully(header);
+                    boolean png = true;
+                    for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+                        png &= header[i] == PNG_SIGNATURE[i];
+                    }
+                    if (png) {
+                        int width = in.readInt();
+                        int height = in.readInt();
+                        long stamp = 31 * connection.getLastModified() + connection.getContentLengthLong();
+                        source = new Source(width, height, stamp);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read the size of " + path + ": " + e);
+            }
+        }
+        return source;
+    }
+
+    /**
+     * Writes a loaded variant as a PNG, through a temporary file so a variant is never
+     * half-written, and deletes the variants of older versions of its picture.
+     */
+    private void write(Image image, Path file, String base) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        byte[] bgra = new byte[width * height * 4];
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getByteBgraInstance(), bgra, 0, width * 4);
+
+        //Each row uses filter type 1, storing every byte as the difference from the pixel to its
+        //left, which makes the smooth shading of the pictures compress several times smaller
+        byte[] rows = new byte[height * (width * 4 + 1)];
+        int out = 0;
+        for (int y = 0, in = 0; y < height; y++) {
+            rows[out++] = 1;
+            for (int x = 0; x < width; x++, in += 4) {
+                boolean first = x == 0;
+                rows[out++] = (byte) (bgra[in + 2] - (first ? 0 : bgra[in - 2]));
+                rows[out++] = (byte) (bgra[in + 1] - (first ? 0 : bgra[in - 3]));
+                rows[out++] = (byte) (bgra[in] - (first ? 0 : bgra[in - 4]));
+                rows[out++] = (byte) (bgra[in + 3] - (first ? 0 : bgra[in - 1]));
+            }
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream png = new DataOutputStream(Files.newOutputStream(temp))) {
+                png.write(PNG_SIGNATURE);
+
+                byte[] ihdr = new byte[13];
+                writeInt(ihdr, 0, width);
+                writeInt(ihdr, 4, height);
+                ihdr[8] = 8; // Bits per channel
+                ihdr[9] = 6; // RGBA
+                writeChunk(png, "IHDR", ihdr);
+
+                ByteArrayOutputStream data = new ByteArrayOutputStream(rows.length / 2);
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try (OutputStream deflated = new DeflaterOutputStream(data, deflater, 65536)) {
+                    deflated.write(rows);
+                } finally {
+                    deflater.end();
+                }
+                writeChunk(png, "IDAT", data.toByteArray());
+                writeChunk(png, "IEND", new byte[0]);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            remember(file.getFileName().toString(), Files.size(file));
+            deleteOtherStamps(base, file);
+            trim();
+        } catch (IOException e) {
+            System.err.println("Could not write the image variant " + file + ": " + e);
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void writeChunk(DataOutputStream png, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        png.writeInt(data.length);
+        png.write(typeBytes);
+        png.write(data);
+        png.writeInt((int) crc.getValue());
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            //Left behind, it is replaced the next time
+        }
+    }
+
+    /**
+     * The size of a source picture and a stamp that changes when the picture does.
+     */
+    private static class Source {
+        //A picture that is never scaled, as a map cannot hold null
+        static final Source NONE = new Source(0, 0, 0);
+
+        final int width;
+        final int height;
+        final long stamp;
+
+        Source(int width, int height, long stamp) {
+            this.width = width;
+            this.height = height;
+            this.stamp = stamp;
+        }
+    }
+}
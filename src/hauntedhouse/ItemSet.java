@@ -0,0 +1,242 @@
+/*
+Description:  This class is a set of item ids stored as bits, used for the inventory and for the
+items found in or needed to unlock a room.
+ */
+
+package hauntedhouse;
+
+import java.util.Arrays;
+
+
+/**
+ * The {@code ItemSet} class is a compact set of item ids.
+ * Each item of a {@link World} has a small integer id, and the set keeps one bit per id in an
+ * array of {@code long} words.  Checking whether the player carries every item a lock needs is
+ * then a single mask comparison per 64 items, instead of comparing item names one by one.
+ */
+public class ItemSet {
+    private long[] words;
+
+    /**
+     * Constructs a new, empty {@code ItemSet} with room for the given number of item ids.
+     * The set grows by itself if a larger id is added.
+     *
+     * @param itemCount The number of item ids the set should hold without growing.
+     */
+    public ItemSet(int itemCount) {
+        words = new long[Math.max(1, (itemCount + 63) >>> 6)];
+    }
+
+    private ItemSet(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Checks whether the set contains an item.
+     *
+     * @param itemId The id of the item.
+     * @return {@code true} if the item is in the set, {@code false} otherwise.
+     */
+    public boolean contains(int itemId) {
+        int word = itemId >>> 6;
+        return word < words.length && (words[word] & (1L << itemId)) != 0;
+    }
+
+    /**
+     * Adds an item to the set.
+     *
+     * @param itemId The id of the item.
+     */
+    public void add(int itemId) {
+        int word = itemId >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+        }
+        words[word] |= 1L << itemId;
+    }
+
+    /**
+     * Removes an item from the set.
+     *
+     * @param itemId The id of the item.
+     */
+    public void remove(int itemId) {
+        int word = itemId >>> 6;
+        if (word < words.length) {
+            words[word] &= ~(1L << itemId);
+        }
+    }
+
+    /**
+     * Checks whether this set contains every item of another set.
+     *
+     * @param other The items that are needed.
+     * @return {@code true} if all items of {@code other} are in this set, {@code false} otherwise.
+     */
+    public boolean containsAll(ItemSet other) {
+        long[] otherWords = other.words;
+        for (int i = 0; i < otherWords.length; i++) {
+            long mine = i < words.length ? words[i] : 0L;
+            if ((otherWords[i] & ~mine) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether this set contains at least one item of another set.
+     *
+     * @param other The items to look for.
+     * @return {@code true} if the two sets have an item in common, {@code false} otherwise.
+     */
+    public boolean containsAny(ItemSet other) {
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            if ((words[i] & other.words[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds every item of another set to this set.
+     *
+     * @param other The items to add.
+     */
+    public void addAll(ItemSet other) {
+        if (other.words.length > words.length) {
+            words = Arrays.copyOf(words, other.words.length);
+        }
+        for (int i = 0; i < other.words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Removes every item of another set from this set.
+     *
+     * @param other The items to remove.
+     */
+    public void removeAll(ItemSet other) {
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * Removes every item from the set.
+     */
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Checks whether the set is empty.
+     *
+     * @return {@code true} if the set contains no items, {@code false} otherwise.
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of items in the set.
+     *
+     * @return The item count.
+     */
+    public int size() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Finds the next item in the set, starting at the given id.
+     * The items of a set can be visited with:
+     * {@code for (int id = set.nextItem(0); id >= 0; id = set.nextItem(id + 1))}
+     *
+     * @param fromItemId The id to start searching from, inclusive.
+     * @return The id of the next item in the set, or -1 if there is none.
+     */
+    public int nextItem(int fromItemId) {
+        int word = fromItemId >>> 6;
+        if (word >= words.length) return -1;
+
+        long bits = words[word] & (-1L << fromItemId);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == words.length) return -1;
+            bits = words[word];
+        }
+    }
+
+    /**
+     * Gets the bits of the set as {@code long} words, for saving the set.
+     * Item id {@code n} is bit {@code n % 64} of word {@code n / 64}.
+     *
+     * @return A copy of the words of the set.
+     */
+    public long[] toWords() {
+        return words.clone();
+    }
+
+    /**
+     * Creates a set from words made by {@link #toWords()}.
+     *
+     * @param words The words of the set.
+     * @return A new {@code ItemSet} holding the same items.
+     */
+    public static ItemSet fromWords(long[] words) {
+        return new ItemSet(words.length == 0 ? new long[1] : words.clone());
+    }
+
+    /**
+     * Creates an independent copy of the set.
+     *
+     * @return A new {@code ItemSet} with the same items.
+     */
+    public ItemSet copy() {
+        return new ItemSet(words.clone());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof ItemSet)) return false;
+
+        long[] otherWords = ((ItemSet) other).words;
+        int length = Math.max(words.length, otherWords.length);
+        for (int i = 0; i < length; i++) {
+            long mine = i < words.length ? words[i] : 0L;
+            long theirs = i < otherWords.length ? otherWords[i] : 0L;
+            if (mine != theirs) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        //Trailing empty words are ignored so that equal sets of different capacity hash the same
+        long hash = 1234;
+        for (int i = words.length - 1; i >= 0; i--) {
+            hash ^= words[i] * (i + 1);
+        }
+        return (int) ((hash >> 32) ^ hash);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int id = nextItem(0); id >= 0; id = nextItem(id + 1)) {
+            if (builder.length() > 1) builder.append(", ");
+            builder.append(id);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+Description:  This class counts how long something took, such as drawing a frame or loading a
+picture, so the slow cases can be found and not just the average.
+ */
+
+package hauntedhouse;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * The {@code LatencyHistogram} class records durations in nanoseconds and answers percentile
+ * questions about them, in the style of an HDR histogram.
+ * <p>
+ * Durations are counted in buckets instead of being kept.  Below 64 ns every nanosecond has its own
+ * bucket, and above that every power of two is split into 32 buckets, so a percentile is off by
+ * at most about 3% whether it is a microsecond or a minute.  That takes under 2,000 counters,
+ * however many durations are recorded.  Recording is a few shifts and an atomic increment, so it
+ * can be done on any thread, including the JavaFX application thread during a pulse.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Buckets per power of two
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS; // Durations below this get a bucket each
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Constructs a new, empty {@code LatencyHistogram}.
+     *
+     * @param name The name of what is measured, used in {@link #toString()}.
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the name of what is measured.
+     *
+     * @return The name of the histogram.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration in nanoseconds.  Negative durations are counted as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Gets the number of durations recorded.
+     *
+     * @return The number of durations.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the average duration.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : total.get() / n;
+    }
+
+    /**
+     * Gets the longest duration recorded.
+     *
+     * @return The exact maximum in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the duration that the given share of the recorded durations are at most.
+     *
+     * @param percentile The percentile, from 0 to 100, such as 99 for the 99th percentile.
+     * @return The highest duration of the bucket the percentile falls in, in nanoseconds,
+     *         or 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) return 0;
+
+        long wanted = Math.max(1, (long) Math.ceil(n * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= wanted) {
+                //A bucket's upper bound can be beyond anything actually recorded
+                return Math.min(highestOf(bucket), getMax());
+            }
+        }
+        return getMax(); // Only reached if durations were recorded while counting
+    }
+
+    /**
+     * Forgets every duration recorded so far.  Durations recorded at the same time on another
+     * thread may be partly kept.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Gets the bucket a duration is counted in.
+     */
+    private static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+
+        //The top SUB_BUCKET_BITS + 1 bits of the value pick the bucket
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the highest duration counted in a bucket.
+     */
+    private static long highestOf(int bucket) {
+        if (bucket < LINEAR_LIMIT) return bucket;
+
+        int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Formats a duration in nanoseconds as milliseconds, such as {@code 16.7 ms}.
+     *
+     * @param nanos The duration in nanoseconds.
+     * @return The formatted duration.
+     */
+    public static String format(long nanos) {
+        return String.format("%.1f ms", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Returns a one-line summary of the histogram.
+     *
+     * @return The count, median, 99th percentile and maximum.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d, p50 %s, p99 %s, max %s", name, getCount(),
+                format(getPercentile(50)), format(getPercentile(99)), format(getMax()));
+    }
+}
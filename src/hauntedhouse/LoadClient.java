@@ -0,0 +1,200 @@
+/*
+Description:  This class stands in for many players at once to measure how the game server holds
+up, from the same machine.
+ */
+
+package hauntedhouse;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * The {@code LoadClient} class connects many simulated players to a {@link GameServer} at the
+ * same time and has each of them wander the house with random commands.
+ * <p>
+ * Every player waits for the answer to each command before sending the next, like a person would,
+ * so the time from sending a command to reading its {@code END} line is the latency a player
+ * sees.  The latencies of all players go into one {@link LatencyHistogram}, which is printed with
+ * the number of commands per second once every player is done.  Without a port, a server is
+ * started in the same process, which measures the whole round trip on one machine.
+ */
+public class LoadClient {
+    private final int port;
+    private final int players;
+    private final int commands;
+    private final long seed;
+    private final LatencyHistogram latencies = new LatencyHistogram("Command");
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Constructs a new {@code LoadClient}.
+     *
+     * @param port The port of the server on this machine.
+     * @param players The number of players to connect at the same time.
+     * @param commands The number of commands each player sends before quitting.
+     * @param seed The seed of the random commands, so a run can be repeated.
+     */
+    public LoadClient(int port, int players, int commands, long seed) {
+        this.port = port;
+        this.players = players;
+        this.commands = commands;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays every player to the end and waits for them.
+     *
+     * @return The latency of every command answered.
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public LatencyHistogram run() throws InterruptedException {
+        ExecutorService executor = GameServer.newThreadPerTaskExecutor("load-client");
+        List<Future<?>> running = new ArrayList<>(players);
+        for (int player = 0; player < players; player++) {
+            long playerSeed = seed + player;
+            running.add(executor.submit(() -> {
+                try {
+                    play(new Random(playerSeed));
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                    System.err.println("A player was disconnected: " + e);
+                }
+            }));
+        }
+        for (Future<?> player : running) {
+            try {
+                player.get();
+            } catch (ExecutionException e) {
+                errors.incrementAndGet();
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        return latencies;
+    }
+
+    /**
+     * Gets the number of players that were disconnected and commands the server refused.
+     *
+     * @return The error count.
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Plays one player: a random walk that searches and looks around along the way.
+     */
+    private void play(Random random) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            List<String> exits = new ArrayList<>();
+            List<String> inventory = new ArrayList<>();
+            readResponse(in, exits, inventory);
+
+            for (int i = 0; i < commands; i++) {
+                int choice = random.nextInt(10);
+                String command;
+                if (choice < 5 && !exits.isEmpty()) {
+                    command = "GO " + exits.get(random.nextInt(exits.size()));
+                } else if (choice < 7) {
+                    command = "SEARCH";
+                } else if (choice < 8 && !inventory.isEmpty()) {
+                    command = "INSPECT " + inventory.get(random.nextInt(inventory.size()));
+                } else {
+                    command = "LOOK";
+                }
+
+                long start = System.nanoTime();
+                out.write(command);
+                out.write('\n');
+                out.flush();
+                readResponse(in, exits, inventory);
+                latencies.record(System.nanoTime() - start);
+            }
+            out.write("QUIT\n");
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads the lines of one answer up to its {@code END} line, keeping track of the exits of the
+     * current room and of the inventory.
+     */
+    private void readResponse(BufferedReader in, List<String> exits, List<String> inventory) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals("END")) return;
+
+            if (line.startsWith("EXITS ")) {
+                exits.clear();
+                String names = line.substring(6);
+                if (!names.isEmpty()) {
+                    Collections.addAll(exits, names.split("\t"));
+                }
+            } else if (line.startsWith("ADDED ")) {
+                inventory.add(line.substring(6));
+            } else if (line.startsWith("REMOVED ")) {
+                inventory.remove(line.substring(8));
+            } else if (line.startsWith("ERROR ")) {
+                errors.incrementAndGet();
+            }
+        }
+        throw new IOException("The server closed the connection");
+    }
+
+    /**
+     * Runs a load test and prints the results.
+     *
+     * @param args The number of players (100 by default), the number of commands per player
+     *             (1,000 by default) and the port of a running server.  Without a port, a server
+     *             for the Haunted House is started in this process.
+     * @throws Exception If the server cannot be started or the test is interrupted.
+     */
+    public static void main(String[] args) throws Exception {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int commands = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        GameServer server = null;
+        int port;
+        if (args.length > 2) {
+            port = Integer.parseInt(args[2]);
+        } else {
+            server = new GameServer(WorldLoader.loadDefault(), 0);
+            server.start();
+            port = server.getPort();
+        }
+
+        long start = System.nanoTime();
+        LoadClient client = new LoadClient(port, players, commands, 1);
+        LatencyHistogram latencies = client.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(players + " players, " + latencies.getCount() + " commands in "
+                + String.format("%.2f s", seconds) + ", " + String.format("%.0f", latencies.getCount() / seconds)
+                + " commands/s, " + client.getErrors() + " errors");
+        System.out.println(latencies);
+        if (server != null) {
+            System.out.println(server.getTotalSessions() + " sessions served");
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+Description:  This class measures where the game spends its time: the JavaFX pulses, loading
+pictures, room transitions and the handlers of the player's commands.
+ */
+
+package hauntedhouse;
+
+import javafx.scene.Scene;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * The {@code Metrics} class keeps one {@link LatencyHistogram} for each kind of work the game
+ * measures, and reports every measurement as a JDK Flight Recorder event as well.
+ * <p>
+ * The histograms are always on and are shown by the {@link MetricsOverlay}.  The events cost
+ * almost nothing unless a recording is running, for example one started with
+ * {@code -XX:StartFlightRecording=filename=game.jfr}, and they appear in JDK Mission Control
+ * under "Haunted House" with the room, picture or handler each one belongs to.
+ * <p>
+ * A measurement is started by creating its event, which notes the time, and ended by
+ * {@link TimedEvent#finish()}, which may happen on another thread or in a later pulse.
+ */
+public final class Metrics {
+    public static final LatencyHistogram PULSES = new LatencyHistogram("Pulse");
+    public static final LatencyHistogram IMAGE_LOADS = new LatencyHistogram("Image load");
+    public static final LatencyHistogram TRANSITIONS = new LatencyHistogram("Transition");
+    public static final LatencyHistogram HANDLERS = new LatencyHistogram("Handler");
+    //Set to true to also print the startup profile and, when the game closes, every measurement
+    public static final String REPORT_PROPERTY = "hauntedhouse.metricsReport";
+
+    private Metrics() {
+    }
+
+    /**
+     * Checks whether the measurements should be printed to the console as well as shown in the
+     * {@link MetricsOverlay}, which is only done when the {@value #REPORT_PROPERTY} system
+     * property is {@code true}.
+     *
+     * @return {@code true} if the measurements are printed.
+     */
+    public static boolean isReporting() {
+        return Boolean.getBoolean(REPORT_PROPERTY);
+    }
+
+    /**
+     * Measures the CSS and layout work of every pulse of a scene, which is where rebuilding menus
+     * and panes shows up.  Drawing happens afterwards on JavaFX's render thread and is not included.
+     * Must be called on the JavaFX application thread.
+     *
+     * @param scene The {@link Scene} to measure.
+     */
+    public static void monitorPulses(Scene scene) {
+        PulseEvent[] pulse = new PulseEvent[1];
+        scene.addPreLayoutPulseListener(() -> pulse[0] = new PulseEvent());
+        scene.addPostLayoutPulseListener(() -> {
+            if (pulse[0] != null) {
+                pulse[0].finish();
+                pulse[0] = null;
+            }
+        });
+    }
+
+    /**
+     * Runs the handler of a command and measures how long it takes.
+     *
+     * @param name The name of the handler, such as {@code Search}.
+     * @param handler The handler to run.
+     */
+    public static void handle(String name, Runnable handler) {
+        HandlerEvent event = new HandlerEvent(name);
+        try {
+            handler.run();
+        } finally {
+            event.finish();
+        }
+    }
+
+    /**
+     * A measurement that is both a Flight Recorder event and an entry in a histogram.
+     */
+    @Category("Haunted House")
+    @StackTrace(false)
+    public abstract static class TimedEvent extends Event {
+        private final transient LatencyHistogram histogram;
+        private final transient long start;
+
+        TimedEvent(LatencyHistogram histogram) {
+            this.histogram = histogram;
+            this.start = System.nanoTime();
+            begin();
+        }
+
+        /**
+         * Ends the measurement, records it in its histogram and commits the event if a recording
+         * wants it.  Must be called once.
+         */
+        public void finish() {
+            histogram.record(System.nanoTime() - start);
+            end();
+            if (shouldCommit()) {
+                commit();
+            }
+        }
+    }
+
+    /**
+     * The CSS and layout part of one JavaFX pulse.
+     */
+    @Name("hauntedhouse.Pulse")
+    @Label("Pulse")
+    @Description("CSS and layout of one JavaFX pulse")
+    public static class PulseEvent extends TimedEvent {
+        PulseEvent() {
+            super(PULSES);
+        }
+    }
+
+    /**
+     * Loading and decoding one picture.
+     */
+    @Name("hauntedhouse.ImageLoad")
+    @Label("Image Load")
+    @Description("Loading and decoding of a picture, from the request until it is ready")
+    public static class ImageLoadEvent extends TimedEvent {
+        @Label("Path")
+        String path;
+
+        @Label("Failed")
+        boolean failed;
+
+        /**
+         * Starts measuring the load of a picture.
+         *
+         * @param path The asset path of the picture.
+         */
+        public ImageLoadEvent(String path) {
+            super(IMAGE_LOADS);
+            this.path = path;
+        }
+
+        /**
+         * Ends the measurement.
+         *
+         * @param failed Whether the picture could not be loaded.
+         */
+        public void finish(boolean failed) {
+            this.failed = failed;
+            finish();
+        }
+    }
+
+    /**
+     * One room transition, from the start of the fade-out to the end of the fade-in.
+     */
+    @Name("hauntedhouse.Transition")
+    @Label("Room Transition")
+    @Description("A room transition, from the start of the fade-out to the end of the fade-in")
+    public static class TransitionEvent extends TimedEvent {
+        @Label("Room Id")
+        int roomId;
+
+        @Label("Redirects")
+        @Description("How many times the player picked another room while it played")
+        int redirects;
+
+        /**
+         * Starts measuring a transition.
+         */
+        public TransitionEvent() {
+            super(TRANSITIONS);
+        }
+
+        /**
+         * Ends the measurement.
+         *
+         * @param roomId The id of the room that was entered.
+         * @param redirects How many times the transition was sent to another room.
+         */
+        public void finish(int roomId, int redirects) {
+            this.roomId = roomId;
+            this.redirects = redirects;
+            finish();
+        }
+    }
+
+    /**
+     * The handler of one command of the player, with everything it does on the spot.
+     */
+    @Name("hauntedhouse.Handler")
+    @Label("Handler")
+    @Description("A handler of the player's commands, run on the JavaFX application thread")
+    public static class HandlerEvent extends TimedEvent {
+        @Label("Handler")
+        String handler;
+
+        HandlerEvent(String handler) {
+            super(HANDLERS);
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+Description:  This class shows the game's timing measurements on top of the room picture, so
+slow frames and loads can be spotted while playing.
+ */
+
+package hauntedhouse;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.layout.StackPane;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The {@code MetricsOverlay} class is a small panel listing the {@link Metrics} histograms, the
+ * current frame rate and the statistics of any other sources added to it, such as caches.
+ * <p>
+ * It is hidden at first and does no work while hidden.  While it is shown, an
+ * {@link AnimationTimer} counts frames and refreshes the text a few times a second, which keeps
+ * JavaFX pulsing every frame; the timer is stopped again when the overlay is hidden.
+ * Must be used on the JavaFX application thread.
+ */
+public class MetricsOverlay extends Label {
+    //Refreshing four times a second is readable and keeps the overlay out of its own measurements
+    private static final long REFRESH_NANOS = 250_000_000L;
+
+    private final LatencyHistogram frames = new LatencyHistogram("Frame");
+    private final List<Object> sources = new ArrayList<>();
+    private final AnimationTimer timer = new AnimationTimer() {
+        private long lastFrame;
+        private long lastRefresh;
+
+        @Override
+        public void start() {
+            lastFrame = 0;
+            lastRefresh = 0;
+            super.start();
+        }
+
+        @Override
+        public void handle(long now) {
+            if (lastFrame != 0) {
+                frames.record(now - lastFrame);
+            }
+            lastFrame = now;
+            if (now - lastRefresh >= REFRESH_NANOS) {
+                lastRefresh = now;
+                refresh();
+            }
+        }
+    };
+
+    /**
+     * Constructs a new, hidden {@code MetricsOverlay}.
+     */
+    public MetricsOverlay() {
+        setVisible(false);
+        setMouseTransparent(true);
+        setPadding(new Insets(6));
+        setStyle("-fx-background-color: rgba(0, 0, 0, 0.7); -fx-text-fill: lime; -fx-font-family: monospace;");
+        StackPane.setAlignment(this, Pos.TOP_LEFT);
+        StackPane.setMargin(this, new Insets(10));
+    }
+
+    /**
+     * Adds a source of statistics to the overlay, shown below the histograms.
+     *
+     * @param source An object whose {@code toString()} describes its statistics.
+     */
+    public void addSource(Object source) {
+        sources.add(source);
+        if (isVisible()) {
+            refresh();
+        }
+    }
+
+    /**
+     * Shows the overlay if it is hidden and hides it if it is shown.
+     */
+    public void toggle() {
+        setShowing(!isVisible());
+    }
+
+    /**
+     * Shows or hides the overlay.
+     *
+     * @param showing {@code true} to show the overlay.
+     */
+    public void setShowing(boolean showing) {
+        if (showing == isVisible()) return;
+
+        setVisible(showing);
+        if (showing) {
+            //The frame rate only counts the time the overlay has been shown
+            frames.reset();
+            refresh();
+            timer.start();
+        } else {
+            timer.stop();
+        }
+    }
+
+    private void refresh() {
+        long meanFrame = frames.getMean();
+        String fps = meanFrame == 0 ? "-" : String.format("%.0f", 1_000_000_000.0 / meanFrame);
+        StringBuilder text = new StringBuilder("FPS " + fps + "\n"
+                + frames + "\n"
+                + Metrics.PULSES + "\n"
+                + Metrics.HANDLERS + "\n"
+                + Metrics.IMAGE_LOADS + "\n"
+                + Metrics.TRANSITIONS);
+        for (Object source : sources) {
+            text.append('\n').append(source.toString().trim());
+        }
+        setText(text.toString());
+    }
+}
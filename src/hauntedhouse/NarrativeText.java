@@ -0,0 +1,271 @@
+/*
+Description:  This class holds the game's lock, unlock and item messages.  They are read from a
+text file the first time one is needed and kept as compact bytes until they are shown.
+ */
+
+package hauntedhouse;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * The {@code NarrativeText} class looks up the messages shown when the player tries a locked
+ * door, unlocks a room or inspects an item, in the format used by
+ * {@code src/resources/text/HauntedHouse.text}.
+ * <p>
+ * Every message has a text id made from its kind and the room or item id, so a lookup is a
+ * binary search of the ids instead of a chain of name comparisons.  The file is only read the
+ * first time a message is needed, and a file ending in {@code .gz} is decompressed while it is
+ * read.  All messages are then kept as one block of UTF-8 bytes, with the ids and bounds of only
+ * the messages the file has, and a {@code String} is only made for the message being shown.
+ * Rooms and items without a message get a generic one, and without a source nothing is kept.
+ * A {@code NarrativeText} can be shared by several games.
+ */
+public class NarrativeText {
+    //Kinds of messages, a text id is kind * slots + room or item id
+    private static final int LOCKED = 0;
+    private static final int UNLOCKED = 1;
+    private static final int INSPECT = 2;
+    private static final int KINDS = 3;
+
+    private final World world;
+    private final String sourceName;
+    private final Callable<InputStream> source;
+    private final int slots; // Room and item ids are both below this
+    private volatile Table table;
+
+    /**
+     * Constructs a new {@code NarrativeText} that reads its messages from a source when first used.
+     *
+     * @param world The {@link World} whose rooms and items the messages belong to.
+     * @param sourceName The name of the source, used in error messages.  A name ending in
+     *                   {@code .gz} is read as gzip-compressed.
+     * @param source Opens the source, or {@code null} if there is no source and every message is generic.
+     */
+    public NarrativeText(World world, String sourceName, Callable<InputStream> source) {
+        this.world = world;
+        this.sourceName = sourceName;
+        this.source = source;
+        this.slots = Math.max(world.getRoomCount(), world.getItemCount());
+    }
+
+    /**
+     * Creates a {@code NarrativeText} read from a resource on the classpath.
+     *
+     * @param world The {@link World} the messages belong to.
+     * @param resource The resource path, such as {@code /resources/text/HauntedHouse.text}.
+     * @return The narrative text, not read yet.
+     */
+    public static NarrativeText fromResource(World world, String resource) {
+        return new NarrativeText(world, resource, () -> {
+            InputStream in = NarrativeText.class.getResourceAsStream(resource);
+            if (in == null) {
+                throw new FileNotFoundException("Missing narrative text: " + resource);
+            }
+            return in;
+        });
+    }
+
+    /**
+     * Creates a {@code NarrativeText} read from a file.
+     *
+     * @param world The {@link World} the messages belong to.
+     * @param path The path of the text file.
+     * @return The narrative text, not read yet.
+     */
+    public static NarrativeText fromFile(World world, Path path) {
+        return new NarrativeText(world, path.toString(), () -> Files.newInputStream(path));
+    }
+
+    /**
+     * Gets the message shown when the player tries to enter a locked room without the required items.
+     *
+     * @param room The locked {@link Room}.
+     * @return The locked message.
+     */
+    public String getLockedMessage(Room room) {
+        String text = get(LOCKED, room.getId());
+        if (text != null) return text;
+
+        //Generic locked message
+        return "The door to " + room.getName() + " is locked. You need: " + world.getItemNames(room.getRequiredItems());
+    }
+
+    /**
+     * Gets the message shown when the player has just unlocked a room.
+     *
+     * @param room The {@link Room} that was unlocked.
+     * @param usedItems The ids of the items used up to unlock it, named by the generic message.
+     * @return The unlock message.
+     */
+    public String getUnlockMessage(Room room, ItemSet usedItems) {
+        String text = get(UNLOCKED, room.getId());
+        if (text != null) return text;
+
+        //Generic unlock message
+        if (usedItems.isEmpty()) {
+            return "\nYou unlocked the " + room.getName() + "!" + "(\nClick to continue..)";
+        }
+        return "\nYou used " + String.join(", ", world.getItemNames(usedItems)) +
+                " to unlock the " + room.getName() + "!" + "(\nClick to continue..)";
+    }
+
+    /**
+     * Gets the description shown when the player inspects an item in their inventory.
+     *
+     * @param itemId The id of the item.
+     * @return The description of the item.
+     */
+    public String getItemDescription(int itemId) {
+        String text = get(INSPECT, itemId);
+        if (text != null) return text;
+
+        // Default fallback description if no specific one is provided
+        return "A mysterious item. You wonder what it could be used for. ";
+    }
+
+    private String get(int kind, int id) {
+        if (source == null) return null;
+        Table loaded = table;
+        if (loaded == null) {
+            loaded = load();
+        }
+        int index = Arrays.binarySearch(loaded.textIds, kind * slots + id);
+        if (index < 0) return null;
+        int start = loaded.bounds[index * 2];
+        return new String(loaded.text, start, loaded.bounds[index * 2 + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    private synchronized Table load() {
+        if (table == null) {
+            try {
+                table = read();
+            } catch (Exception e) {
+                throw new UncheckedIOException(new IOException(sourceName + ": The narrative text cannot be read", e));
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Reads every message of the source into one block of bytes.
+     */
+    private Table read() throws Exception {
+        //Each message as its text id in the high half and its place in the file in the low half
+        long[] entries = new long[64];
+        int[] bounds = new int[entries.length * 2];
+        int count = 0;
+        ByteArrayOutputStream text = new ByteArrayOutputStream(4096);
+        int roomId = -1;
+        int itemId = -1;
+        String line;
+        int lineNumber = 0;
+
+        InputStream in = source.call();
+        if (sourceName.endsWith(".gz")) {
+            in = new GZIPInputStream(in);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+                if (!Character.isWhitespace(line.charAt(0))) {
+                    //A new block starts
+                    if (trimmed.startsWith("room ")) {
+                        roomId = world.getRoomId(trimmed.substring(5).trim());
+                        itemId = -1;
+                        if (roomId < 0) throw error(lineNumber, "Unknown room: " + trimmed.substring(5).trim());
+                    } else if (trimmed.startsWith("item ")) {
+                        itemId = world.getItemId(trimmed.substring(5).trim());
+                        roomId = -1;
+                        if (itemId < 0) throw error(lineNumber, "Unknown item: " + trimmed.substring(5).trim());
+                    } else {
+                        throw error(lineNumber, "Expected 'room <name>' or 'item <name>' but found: " + trimmed);
+                    }
+                    continue;
+                }
+
+                int colon = trimmed.indexOf(':');
+                if (colon < 0) {
+                    throw error(lineNumber, "Expected 'key: value' but found: " + trimmed);
+                }
+                String key = trimmed.substring(0, colon).trim();
+                int kind;
+                int id;
+                if (roomId >= 0 && key.equals("locked")) {
+                    kind = LOCKED;
+                    id = roomId;
+                } else if (roomId >= 0 && key.equals("unlocked")) {
+                    kind = UNLOCKED;
+                    id = roomId;
+                } else if (itemId >= 0 && key.equals("inspect")) {
+                    kind = INSPECT;
+                    id = itemId;
+                } else {
+                    throw error(lineNumber, "Unknown property: " + key);
+                }
+
+                byte[] value = WorldLoader.unescape(trimmed.substring(colon + 1).trim()).getBytes(StandardCharsets.UTF_8);
+                if (count == entries.length) {
+                    entries = Arrays.copyOf(entries, count * 2);
+                    bounds = Arrays.copyOf(bounds, count * 4);
+                }
+                entries[count] = (long) (kind * slots + id) << 32 | count;
+                bounds[count * 2] = text.size();
+                bounds[count * 2 + 1] = text.size() + value.length;
+                count++;
+                text.write(value);
+            }
+        }
+        return new Table(text.toByteArray(), entries, bounds, count);
+    }
+
+    private IOException error(int lineNumber, String message) {
+        return new IOException(sourceName + ":" + lineNumber + ": " + message);
+    }
+
+    /**
+     * The messages once they have been read: their bytes, their text ids in increasing order,
+     * and where each one starts and ends.
+     */
+    private static class Table {
+        final byte[] text;
+        final int[] textIds;
+        final int[] bounds; // The start and end of each message, in the order of textIds
+
+        /**
+         * Sorts the messages read by their text ids.  A message given twice keeps the later one.
+         */
+        Table(byte[] text, long[] entries, int[] readBounds, int count) {
+            this.text = text;
+            Arrays.sort(entries, 0, count);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (i + 1 < count && entries[i] >>> 32 == entries[i + 1] >>> 32) continue;
+                entries[kept++] = entries[i];
+            }
+            textIds = new int[kept];
+            bounds = new int[kept * 2];
+            for (int i = 0; i < kept; i++) {
+                int read = (int) entries[i];
+                textIds[i] = (int) (entries[i] >>> 32);
+                bounds[i * 2] = readBounds[read * 2];
+                bounds[i * 2 + 1] = readBounds[read * 2 + 1];
+            }
+        }
+    }
+}
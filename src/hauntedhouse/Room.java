@@ -0,0 +1,168 @@
+/*
+Author: Charles Carter
+Date: 2/4/2025
+
+Description:  This is the room class which provides Room objects for use in the game.
+ */
+
+package hauntedhouse;
+
+/**
+ * The {@code Room} class represents a room in the game.
+ * Each room has a name, description, an image, possible exits,
+ * and the items that can be found or required to unlock it.
+ * <p>
+ * A room is the definition of the room and never changes, so it can be shared by every game
+ * played in its world.  Whether the room is locked now and which items are still in it belong
+ * to each game's {@link WorldState}.
+ */
+public class Room {
+    private final int id;
+    private final String name;
+    private final String initialDescription;
+    private final String lookDescription;
+    private final String imagePath;
+    private final String ambientPath;
+    private final String soundPath;
+    private final String[] exits;
+    private final boolean isLocked;
+    private final ItemSet items;
+    private final ItemSet requiredItems;
+
+    /**
+     * Constructs a new {@code Room} object with the given attributes.
+     * Rooms are normally created by the {@link WorldLoader}, which gives every item an id.
+     *
+     * @param id The index of the room in its {@link World}.
+     * @param name The name of the room.
+     * @param initialDescription The description displayed when the player first enters the room.
+     * @param lookDescription The description displayed when the player looks around.
+     * @param imagePath The asset path of the room's background image.
+     * @param ambientPath The asset path of the sound looped in the room, or {@code null}.
+     * @param soundPath The asset path of the sound played on entering the room, or {@code null}.
+     * @param exits The names of the rooms that can be accessed from this room.
+     * @param isLocked Whether the room is initially locked.
+     * @param items The ids of the items that can be found in the room.
+     * @param requiredItems The ids of the items required to unlock this room.
+     */
+    public Room(int id, String name, String initialDescription, String lookDescription, String imagePath,
+                String ambientPath, String soundPath, String[] exits, boolean isLocked, ItemSet items,
+                ItemSet requiredItems) {
+        this.id = id;
+        this.name = name;
+        this.initialDescription = initialDescription;
+        this.lookDescription = lookDescription;
+        this.imagePath = imagePath;
+        this.ambientPath = ambientPath;
+        this.soundPath = soundPath;
+        this.exits = exits;
+        this.isLocked = isLocked;
+        this.items = items;
+        this.requiredItems = requiredItems;
+    }
+
+    /**
+     * Gets the index of the room in its {@link World}.
+     *
+     * @return The room id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the name of the room.
+     *
+     * @return The room name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the description of the room when the player first enters it.
+     *
+     * @return The initial description of the room.
+     */
+    public String getInitialDescription() {
+        return initialDescription;
+    }
+
+    /**
+     * Gets the description of the room when the player looks around.
+     *
+     * @return The look description of the room.
+     */
+    public String getLookDescription() {
+        return lookDescription;
+    }
+
+    /**
+     * Gets the asset path of the image representing the room.
+     * The path is resolved on the classpath by the {@link AssetManager}.
+     *
+     * @return The image path of the room.
+     */
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    /**
+     * Gets the asset path of the sound looped while the player is in the room.
+     * It is streamed by the {@link AudioEngine}.
+     *
+     * @return The ambient sound path, or {@code null} if the room is silent.
+     */
+    public String getAmbientPath() {
+        return ambientPath;
+    }
+
+    /**
+     * Gets the asset path of the short sound played when the player enters the room.
+     *
+     * @return The sound path, or {@code null} if the room has none.
+     */
+    public String getSoundPath() {
+        return soundPath;
+    }
+
+    /**
+     * Gets the names of the rooms that can be accessed from this room.
+     *
+     * @return An array of room names representing exits.
+     */
+    public String[] getExits() {
+        return exits;
+    }
+
+    /**
+     * Checks whether the room is locked when a game starts.
+     * Use {@link WorldState#isLocked(int)} for whether it is locked now.
+     *
+     * @return {@code true} if the room starts locked, {@code false} otherwise.
+     */
+    public boolean isInitiallyLocked() {
+        return isLocked;
+    }
+
+    /**
+     * Gets the items in the room when a game starts.
+     * Use {@link WorldState#getItems(int)} for the items still in it.
+     * The returned set must not be modified.
+     *
+     * @return A set of item ids.
+     */
+    public ItemSet getInitialItems() {
+        return items;
+    }
+
+    /**
+     * Gets the items required to unlock the room.
+     * The returned set must not be modified.
+     *
+     * @return A set of item ids required to unlock the room.
+     */
+    public ItemSet getRequiredItems() {
+        return requiredItems;
+    }
+}
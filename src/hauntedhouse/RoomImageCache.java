@@ -0,0 +1,159 @@
+/*
+Description:  This class keeps decoded room background images in memory so that moving between
+rooms does not have to load the same picture from disk again.
+ */
+
+package hauntedhouse;
+
+import javafx.scene.image.Image;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * The {@code RoomImageCache} class is a small, bounded cache of room background images.
+ * Images are keyed by room name and the least recently used image is dropped once the
+ * cache is full.  The rooms next to the player can be prefetched, which lets JavaFX decode
+ * their images on its background loader while the player is reading the room description.
+ */
+public class RoomImageCache {
+    //Enough for the current room, its neighbours and a few rooms the player just left
+    public static final int DEFAULT_CAPACITY = 10;
+
+    private final ImageVariants variants;
+    private final int capacity;
+    private final Map<String, Image> images;
+    private int hits;
+    private int misses;
+
+    /**
+     * Constructs a new {@code RoomImageCache} with the default capacity.
+     *
+     * @param variants The {@link ImageVariants} used to load the images at the display size.
+     */
+    public RoomImageCache(ImageVariants variants) {
+        this(variants, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@code RoomImageCache} that holds at most the given number of images.
+     *
+     * @param variants The {@link ImageVariants} used to load the images at the display size.
+     * @param capacity The maximum number of images kept in memory.
+     */
+    public RoomImageCache(ImageVariants variants, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.variants = variants;
+        this.capacity = capacity;
+        //An access-ordered LinkedHashMap keeps the least recently used image first
+        this.images = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+                return size() > RoomImageCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the background image of a room, loading it only if it is not already cached.
+     * The image is loaded in the background, so it may still be decoding when it is returned;
+     * use {@link AssetManager#whenLoaded(Image, Runnable)} to wait for it.
+     * An image that was prefetched but is still decoding counts as a hit.
+     *
+     * @param room The {@link Room} whose image is needed.
+     * @return The background image of the room.
+     */
+    public Image get(Room room) {
+        Image image = images.get(room.getName());
+        if (image != null && !image.isError()) {
+            hits++;
+            return image;
+        }
+
+        misses++;
+        image = variants.image(room.getImagePath());
+        images.put(room.getName(), image);
+        return image;
+    }
+
+    /**
+     * Adds an image that has already been loaded, such as one loaded during startup.
+     *
+     * @param room The {@link Room} the image belongs to.
+     * @param image The background image of the room.
+     */
+    public void add(Room room, Image image) {
+        images.put(room.getName(), image);
+    }
+
+    /**
+     * Starts loading the background image of a room on the JavaFX background loader,
+     * unless it is already cached.  A picture whose size is not known yet is loaded once its
+     * size has been read, so that it loads at the display size.
+     *
+     * @param room The {@link Room} whose image will probably be needed soon.
+     */
+    public void prefetch(Room room) {
+        Image image = images.get(room.getName());
+        if (image == null || image.isError()) {
+            variants.whenReady(room.getImagePath(), () -> {
+                //The room may have been shown while its size was read
+                Image cached = images.get(room.getName());
+                if (cached == null || cached.isError()) {
+                    images.put(room.getName(), variants.image(room.getImagePath()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops every cached image, for example because the display size has changed and they
+     * are the wrong size now.  The hit and miss counts are kept.
+     */
+    public void clear() {
+        images.clear();
+    }
+
+    /**
+     * Gets the number of lookups that were answered from the cache.
+     *
+     * @return The number of cache hits.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that had to load the image on the spot.
+     *
+     * @return The number of cache misses.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of images currently held by the cache.
+     *
+     * @return The number of cached images.
+     */
+    public int size() {
+        return images.size();
+    }
+
+    /**
+     * Gets a short summary of how well the cache is doing.
+     *
+     * @return The hit and miss counts as text.
+     */
+    @Override
+    public String toString() {
+        int lookups = hits + misses;
+        int hitRate = lookups == 0 ? 0 : (hits * 100) / lookups;
+        return "Room image cache: " + hits + " hits, " + misses + " misses (" + hitRate + "% hit rate), "
+                + images.size() + "/" + capacity + " images cached";
+    }
+}
@@ -0,0 +1,445 @@
+/*
+Description:  This class splits a world's rooms into regions of neighbouring rooms, keeps only
+the regions around the players in memory and drops the ones furthest out of use.
+ */
+
+package hauntedhouse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntFunction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * The {@code RoomRegions} class holds the {@link Room}s of a {@link World}, a region at a time.
+ * <p>
+ * The rooms are split into regions of {@value #DEFAULT_REGION_SIZE} rooms that are close to each
+ * other: the rooms are put in the order a depth-first walk through the exits from the start
+ * reaches them, which keeps each branch of the house together, and each region is the next
+ * slice of that order.  The descriptions of a region's rooms are kept
+ * together, compressed, and the region's {@code Room} objects are only made, all at once, when
+ * one of them is asked for.
+ * <p>
+ * No text is compressed while the world loads.  A region's text is compressed the first time
+ * the region is dropped, and {@link #compressInBackground()} compresses the rest on a thread of
+ * its own; until then it is read from the world's definition, which is only let go of once
+ * every region is compressed.  A player walking around therefore loads the region ahead of them
+ * as soon as the game looks at a room through the exits, such as when the window prefetches the
+ * next rooms' pictures, and moves through the rest of the region without loading anything.
+ * <p>
+ * The regions in memory are limited by a budget of bytes, estimated from their descriptions and
+ * rooms.  Once it is exceeded, the regions that have gone longest without a room being asked
+ * for are dropped, however many of them that takes, but never the region just loaded.  Nothing a
+ * game changes is lost, as locks and items during a game are kept by each game's
+ * {@link WorldState}, not by the rooms.  A dropped room asked for again is made again, equal to
+ * the first.
+ * <p>
+ * Only the rooms themselves are dropped.  A room holds the path of its picture, not the picture,
+ * and the decoded pictures stay in the window's {@link RoomImageCache}, which bounds them by its
+ * own count of images whatever regions are in memory.
+ * <p>
+ * Rooms in memory are found without a lock, so any number of games can share the world.  Only
+ * loading a region takes a lock.  Which region was used last is noted without a lock as well,
+ * so under many threads the order of dropping is close to, but not exactly, least recently used.
+ */
+public class RoomRegions {
+    public static final int DEFAULT_REGION_SIZE = 64;
+    //The memory budget in bytes, or with a K, M or G suffix, such as 64M
+    public static final String BUDGET_PROPERTY = "hauntedhouse.roomMemory";
+    public static final long DEFAULT_BUDGET = 16L << 20;
+    //Estimated bytes of a room beyond its descriptions: the object, its arrays and item sets
+    private static final int ROOM_OVERHEAD = 200;
+
+    /**
+     * Makes one room of a region from the region's text.
+     */
+    interface RoomMaker {
+        /**
+         * Makes a room.
+         *
+         * @param roomId The id of the room.
+         * @param text The room's part of the region's text, as given when the regions were made.
+         * @return The {@link Room}.
+         */
+        Room make(int roomId, String text);
+    }
+
+    private final RoomMaker maker;
+    private final long budget;
+    private final int[] regionOf;
+    private final int[] regionStarts; // The rooms of region r are regionRooms[regionStarts[r]...regionStarts[r + 1]]
+    private final int[] regionRooms;
+    private final int[] textEnds; // Where each room's text ends in its region's text
+    private final byte[][] texts; // Each region's text, compressed UTF-8, or null until it is compressed
+    private final int[] textLengths; // The length of each region's text before it was compressed
+    private final long[] regionBytes; // The estimated memory of each region's rooms beyond their text
+    private final long[] lastUsed;
+    private long clock; // Updated without a lock, see the class comment
+    private final Room[] rooms;
+
+    //Guarded by this
+    private IntFunction<String> roomText; // Null once every region's text is compressed
+    private int uncompressed;
+    private final int[] resident;
+    private int residentCount;
+    private long residentBytes;
+    private long loads;
+    private long evictions;
+    private int roomsMade;
+
+    /**
+     * Constructs a new {@code RoomRegions}, splitting the rooms into regions.  No room is made
+     * and no text is read yet.
+     *
+     * @param exits The exits of each room as room ids, indexed by room id.
+     * @param startRoom The room the player starts in, which the first region grows from.
+     * @param regionSize The most rooms in a region.
+     * @param budget The most bytes the loaded regions should take.
+     * @param roomText Gets the text a room is made from, called until its region is compressed.
+     * @param maker Makes a room from its text.
+     */
+    RoomRegions(int[][] exits, int startRoom, int regionSize, long budget, IntFunction<String> roomText,
+                RoomMaker maker) {
+        this.maker = maker;
+        this.budget = budget;
+        int roomCount = exits.length;
+        rooms = new Room[roomCount];
+        regionOf = new int[roomCount];
+        regionRooms = new int[roomCount];
+        regionStarts = partition(exits, startRoom, regionSize);
+        int regionCount = regionStarts.length - 1;
+
+        textEnds = new int[roomCount];
+        texts = new byte[regionCount][];
+        textLengths = new int[regionCount];
+        regionBytes = new long[regionCount];
+        lastUsed = new long[regionCount];
+        resident = new int[regionCount];
+
+        for (int region = 0; region < regionCount; region++) {
+            for (int i = regionStarts[region]; i < regionStarts[region + 1]; i++) {
+                regionBytes[region] += ROOM_OVERHEAD + 8L * exits[regionRooms[i]].length;
+            }
+        }
+        this.roomText = roomText;
+        uncompressed = regionCount;
+    }
+
+    /**
+     * Splits the rooms into regions, filling {@link #regionOf} and {@link #regionRooms}.
+     *
+     * @return Where each region starts in {@link #regionRooms}, followed by the room count.
+     */
+    private int[] partition(int[][] exits, int startRoom, int regionSize) {
+        int roomCount = exits.length;
+
+        //Rooms in depth-first order from the start, followed by the rooms that cannot be reached,
+        //which keeps each branch of the house together
+        int[] stack = new int[roomCount];
+        int[] nextExit = new int[roomCount];
+        boolean[] seen = new boolean[roomCount];
+        int placed = 0;
+        for (int next = 0, root = startRoom; placed < roomCount; root = next++) {
+            if (seen[root]) continue;
+            seen[root] = true;
+            regionRooms[placed++] = root;
+            int depth = 0;
+            stack[depth++] = root;
+            while (depth > 0) {
+                int room = stack[depth - 1];
+                if (nextExit[room] == exits[room].length) {
+                    depth--;
+                    continue;
+                }
+                int exit = exits[room][nextExit[room]++];
+                if (!seen[exit]) {
+                    seen[exit] = true;
+                    regionRooms[placed++] = exit;
+                    stack[depth++] = exit;
+                }
+            }
+        }
+
+        //Each region is the next slice of that order
+        int regionCount = (roomCount + regionSize - 1) / regionSize;
+        int[] starts = new int[regionCount + 1];
+        for (int region = 0; region < regionCount; region++) {
+            starts[region] = region * regionSize;
+            for (int i = starts[region]; i < Math.min(roomCount, starts[region] + regionSize); i++) {
+                regionOf[regionRooms[i]] = region;
+            }
+        }
+        starts[regionCount] = roomCount;
+        return starts;
+    }
+
+    /**
+     * Gets a room, loading its region if it is not in memory.
+     *
+     * @param roomId The id of the room.
+     * @return The {@link Room}.
+     */
+    public Room getRoom(int roomId) {
+        Room room = rooms[roomId];
+        lastUsed[regionOf[roomId]] = ++clock;
+        return room != null ? room : load(roomId);
+    }
+
+    private synchronized Room load(int roomId) {
+        int region = regionOf[roomId];
+        if (rooms[roomId] != null) return rooms[roomId]; // Another thread loaded it first
+
+        String text = text(region);
+        int start = 0;
+        for (int i = regionStarts[region]; i < regionStarts[region + 1]; i++) {
+            int room = regionRooms[i];
+            rooms[room] = maker.make(room, text.substring(start, textEnds[room]));
+            start = textEnds[room];
+        }
+        roomsMade += regionStarts[region + 1] - regionStarts[region];
+        loads++;
+        lastUsed[region] = ++clock;
+        resident[residentCount++] = region;
+        residentBytes += loadedBytes(region);
+
+        while (residentBytes > budget && residentCount > 1) {
+            int oldest = -1;
+            for (int i = 0; i < residentCount; i++) {
+                if (resident[i] != region && (oldest < 0 || lastUsed[resident[i]] < lastUsed[resident[oldest]])) {
+                    oldest = i;
+                }
+            }
+            evict(resident[oldest]);
+            resident[oldest] = resident[--residentCount];
+        }
+        return rooms[roomId];
+    }
+
+    /**
+     * Estimates the memory of a loaded region, once its text has been read.
+     */
+    private long loadedBytes(int region) {
+        return regionBytes[region] + textEnds[regionRooms[regionStarts[region + 1] - 1]];
+    }
+
+    private void evict(int region) {
+        compress(region);
+        for (int i = regionStarts[region]; i < regionStarts[region + 1]; i++) {
+            rooms[regionRooms[i]] = null;
+        }
+        residentBytes -= loadedBytes(region);
+        evictions++;
+    }
+
+    /**
+     * Compresses the text of every region not compressed yet on a thread of its own, so that the
+     * world's definition can be let go of without the world's loading waiting for it.
+     */
+    void compressInBackground() {
+        Thread thread = new Thread(() -> {
+            for (int region = 0; region < texts.length; region++) {
+                synchronized (this) {
+                    compress(region);
+                }
+            }
+        }, "room-regions");
+        thread.setDaemon(true); // A region that is not compressed is read from the definition instead
+        thread.start();
+    }
+
+    /**
+     * Gets a region's text, noting where each room's text ends.
+     */
+    private String text(int region) {
+        if (texts[region] != null) return inflate(region);
+
+        StringBuilder text = new StringBuilder();
+        for (int i = regionStarts[region]; i < regionStarts[region + 1]; i++) {
+            int room = regionRooms[i];
+            text.append(roomText.apply(room));
+            textEnds[room] = text.length();
+        }
+        return text.toString();
+    }
+
+    private void compress(int region) {
+        if (texts[region] != null) return;
+
+        byte[] bytes = text(region).getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            //Text that does not compress grows by a few bytes per block at most
+            byte[] compressed = new byte[bytes.length + bytes.length / 64 + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            textLengths[region] = bytes.length;
+            texts[region] = Arrays.copyOf(compressed, length);
+        } finally {
+            deflater.end();
+        }
+        if (--uncompressed == 0) {
+            roomText = null; // Lets go of the world's definition
+        }
+    }
+
+    private String inflate(int region) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(texts[region]);
+            byte[] bytes = new byte[textLengths[region]];
+            int length = 0;
+            while (length < bytes.length) {
+                length += inflater.inflate(bytes, length, bytes.length - length);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("The text of region " + region + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Gets the region a room belongs to.
+     *
+     * @param roomId The id of the room.
+     * @return The region's number.
+     */
+    public int getRegion(int roomId) {
+        return regionOf[roomId];
+    }
+
+    /**
+     * Gets the number of regions the rooms are split into.
+     *
+     * @return The region count.
+     */
+    public int getRegionCount() {
+        return texts.length;
+    }
+
+    /**
+     * Gets the number of rooms made so far, counting rooms made again after being dropped.
+     *
+     * @return The number of {@link Room} objects made.
+     */
+    public synchronized int getRoomsMade() {
+        return roomsMade;
+    }
+
+    /**
+     * Gets the number of regions in memory.
+     *
+     * @return The loaded region count.
+     */
+    public synchronized int getLoadedRegionCount() {
+        return residentCount;
+    }
+
+    /**
+     * Gets the estimated memory of the regions in memory.
+     *
+     * @return The estimate in bytes.
+     */
+    public synchronized long getLoadedBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Gets the number of regions whose text is not compressed yet.
+     *
+     * @return The uncompressed region count.
+     */
+    synchronized int getUncompressedCount() {
+        return uncompressed;
+    }
+
+    /**
+     * Gets the memory of the compressed text of every region, which is always kept.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getCompressedBytes() {
+        long bytes = 0;
+        for (byte[] text : texts) {
+            if (text != null) bytes += text.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Describes the regions and how often they were loaded and dropped.
+     *
+     * @return A one-line summary.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("Room regions: %,d of %,d loaded (%,d KB of %,d KB budget), %,d loads, %,d dropped,"
+                        + " %,d KB of compressed text",
+                residentCount, getRegionCount(), residentBytes / 1024, budget / 1024, loads, evictions,
+                getCompressedBytes() / 1024);
+    }
+
+    /**
+     * Gets the memory budget set by the {@value #BUDGET_PROPERTY} system property.
+     *
+     * @return The budget in bytes, {@link #DEFAULT_BUDGET} if the property is not set or is not
+     *         a valid budget, which is reported.
+     */
+    public static long configuredBudget() {
+        String value = System.getProperty(BUDGET_PROPERTY);
+        if (value == null || value.isBlank()) return DEFAULT_BUDGET;
+
+        long budget = parseBudget(value);
+        if (budget < 0) {
+            System.err.println("Ignoring " + BUDGET_PROPERTY + "=" + value + ", it must be a number of bytes such as"
+                    + " 64M; using " + (DEFAULT_BUDGET >> 20) + "M");
+            return DEFAULT_BUDGET;
+        }
+        return budget;
+    }
+
+    /**
+     * Reads a budget in bytes, or with a K, M or G suffix.
+     *
+     * @param text The budget.
+     * @return The budget in bytes, or -1 if it is malformed, negative or too large.
+     */
+    static long parseBudget(String text) {
+        String value = text.trim().toUpperCase(Locale.ROOT);
+        if (value.isEmpty()) return -1;
+        int shift = 0;
+        switch (value.charAt(value.length() - 1)) {
+            case 'K':
+                shift = 10;
+                break;
+            case 'M':
+                shift = 20;
+                break;
+            case 'G':
+                shift = 30;
+                break;
+            default:
+                break;
+        }
+        if (shift > 0) {
+            value = value.substring(0, value.length() - 1).trim();
+        }
+        long number;
+        try {
+            number = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (number < 0 || number > Long.MAX_VALUE >> shift) return -1;
+        return number << shift;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+Description:  This class plays the fade between two rooms.  The same two animations are used for
+every move, and a move started while another is still playing takes over from it smoothly.
+ */
+
+package hauntedhouse;
+
+import javafx.animation.FadeTransition;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.util.Duration;
+
+import java.util.function.IntConsumer;
+
+
+/**
+ * The {@code RoomTransition} class fades the room picture out, enters the next room, waits until
+ * its picture has been decoded and fades it back in.
+ * <p>
+ * One fade-out and one fade-in animation are created up front and replayed for every move, so
+ * moving between rooms creates no new animations or handlers.  If the player picks another exit
+ * while a transition is playing, the transition is redirected instead of a second one being
+ * started on top of it: during the fade-out the new room simply replaces the old target, and
+ * later on the picture fades out again from wherever it is and the new room is entered.
+ * All methods must be called on the JavaFX application thread.
+ */
+public class RoomTransition {
+
+    private enum State {IDLE, FADING_OUT, WAITING_FOR_IMAGE, FADING_IN}
+
+    private final ImageView view;
+    private final Duration fadeTime;
+    private final IntConsumer enterRoom;
+    private final Runnable onFinished;
+    private final FadeTransition fadeOut;
+    private final FadeTransition fadeIn;
+    private final Runnable startFadeIn = this::startFadeIn; // Created once, it is handed out on every move
+    private State state = State.IDLE;
+    private int targetRoom;
+    private Image awaitedImage;
+    private Metrics.TransitionEvent measurement; // The transition playing, measured as a whole
+    private int redirects;
+
+    /**
+     * Constructs a new {@code RoomTransition}.
+     *
+     * @param view The {@link ImageView} showing the room picture.
+     * @param fadeTime How long a full fade out or in takes.
+     * @param enterRoom Called with the room id once the picture has faded out.  It is expected to
+     *                  put the new room's picture into the view.
+     * @param onFinished Called once the new room's picture has faded in.
+     */
+    public RoomTransition(ImageView view, Duration fadeTime, IntConsumer enterRoom, Runnable onFinished) {
+        this.view = view;
+        this.fadeTime = fadeTime;
+        this.enterRoom = enterRoom;
+        this.onFinished = onFinished;
+
+        fadeOut = new FadeTransition(fadeTime, view);
+        fadeOut.setToValue(0.0);
+        fadeOut.setOnFinished(e -> fadedOut());
+
+        fadeIn = new FadeTransition(fadeTime, view);
+        fadeIn.setFromValue(0.0);
+        fadeIn.setToValue(1.0);
+        fadeIn.setOnFinished(e -> {
+            state = State.IDLE;
+            measurement.finish(targetRoom, redirects);
+            measurement = null;
+            onFinished.run();
+        });
+    }
+
+    /**
+     * Moves to a room, or redirects the transition that is playing to it.
+     *
+     * @param roomId The id of the room to enter.
+     */
+    public void play(int roomId) {
+        targetRoom = roomId;
+        if (state == State.IDLE) {
+            measurement = new Metrics.TransitionEvent();
+            redirects = 0;
+        } else {
+            redirects++;
+        }
+        switch (state) {
+            case FADING_OUT:
+                //The room is entered when the fade-out ends, so it will be the new one
+                return;
+            case FADING_IN:
+                fadeIn.stop();
+                break;
+            default:
+                break;
+        }
+        startFadeOut();
+    }
+
+    /**
+     * Checks whether a transition is playing.
+     *
+     * @return {@code true} from the start of the fade-out to the end of the fade-in.
+     */
+    public boolean isPlaying() {
+        return state != State.IDLE;
+    }
+
+    private void startFadeOut() {
+        state = State.FADING_OUT;
+        double opacity = view.getOpacity();
+        if (opacity <= 0.0) {
+            fadedOut(); // Already faded out, for example while waiting for a picture
+            return;
+        }
+        //A picture that is partly faded in only has part of the way to go
+        fadeOut.setDuration(opacity >= 1.0 ? fadeTime : fadeTime.multiply(opacity));
+        fadeOut.setFromValue(opacity);
+        fadeOut.playFromStart();
+    }
+
+    private void fadedOut() {
+        state = State.WAITING_FOR_IMAGE;
+        enterRoom.accept(targetRoom);
+        awaitedImage = view.getImage();
+        if (awaitedImage == null) {
+            startFadeIn();
+        } else {
+            AssetManager.whenLoaded(awaitedImage, startFadeIn);
+        }
+    }
+
+    private void startFadeIn() {
+        //A wait that was overtaken by another move is ignored
+        if (state != State.WAITING_FOR_IMAGE || view.getImage() != awaitedImage) return;
+
+        state = State.FADING_IN;
+        fadeIn.playFromStart();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+Description:  This class finds the shortest way between rooms through the unlocked rooms of a
+world, which lets the player travel straight to a room they have already been to.
+ */
+
+package hauntedhouse;
+
+import java.util.Arrays;
+
+
+/**
+ * The {@code RouteIndex} class answers route questions over the exits of a {@link World}, with
+ * the locks of one game's {@link WorldState}.
+ * <p>
+ * Routes only pass through unlocked rooms.  For each room that routes are asked from, a
+ * breadth-first search over the whole world is done once and kept, so later questions from the
+ * same room take constant time for a distance and the length of the route for a route.  A few
+ * of these searches are kept, the least recently used is dropped, and all of them are thrown
+ * away when a room of the state is locked or unlocked.
+ * Keeping every pair of rooms would need rooms squared memory, 100 million entries for a
+ * 10,000 room world, while one search is linear in the number of rooms and exits.
+ * <p>
+ * A {@code RouteIndex} is not thread-safe.
+ */
+public class RouteIndex {
+    //Enough for the current room and the rooms the player just came from
+    public static final int CACHED_SEARCHES = 4;
+
+    private final WorldState state;
+    private final World world;
+    private final Search[] searches = new Search[CACHED_SEARCHES]; // Most recently used first
+
+    /**
+     * Constructs a new {@code RouteIndex} for the state of a game.
+     *
+     * @param state The {@link WorldState} whose unlocked rooms routes pass through.
+     */
+    public RouteIndex(WorldState state) {
+        this.state = state;
+        this.world = state.getWorld();
+    }
+
+    /**
+     * Gets the number of moves needed to go from one room to another.
+     *
+     * @param from The id of the room to start in.
+     * @param to The id of the room to reach.
+     * @return The number of moves, or -1 if the room cannot be reached through unlocked rooms.
+     */
+    public int getDistance(int from, int to) {
+        return search(from).distances[to];
+    }
+
+    /**
+     * Gets the shortest route from one room to another.
+     *
+     * @param from The id of the room to start in.
+     * @param to The id of the room to reach.
+     * @return The ids of the rooms passed through, ending with {@code to} and not including
+     *         {@code from}, or {@code null} if the room cannot be reached.
+     */
+    public int[] getRoute(int from, int to) {
+        Search search = search(from);
+        int distance = search.distances[to];
+        if (distance < 0) return null;
+
+        int[] route = new int[distance];
+        for (int room = to, i = distance - 1; i >= 0; room = search.previous[room], i--) {
+            route[i] = room;
+        }
+        return route;
+    }
+
+    /**
+     * Finds the rooms of a set that can be reached from a room, nearest first.
+     *
+     * @param from The id of the room to start in.
+     * @param rooms The ids of the rooms to look for, such as the rooms the player has visited.
+     * @param result Filled with the ids of the reachable rooms, without {@code from}.
+     * @return The number of rooms put in {@code result}, at most its length.
+     */
+    public int getReachable(int from, ItemSet rooms, int[] result) {
+        Search search = search(from);
+        int count = 0;
+        //The search order is already sorted by distance
+        for (int i = 1; i < search.reached && count < result.length; i++) {
+            int room = search.order[i];
+            if (rooms.contains(room)) {
+                result[count++] = room;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the search from a room, doing it if it is not cached or the locks have changed.
+     */
+    private Search search(int from) {
+        long lockVersion = state.getLockVersion();
+        for (int i = 0; i < searches.length; i++) {
+            Search search = searches[i];
+            if (search != null && search.from == from && search.lockVersion == lockVersion) {
+                moveToFront(i);
+                return search;
+            }
+        }
+
+        //Reuse the arrays of the least recently used search
+        Search search = searches[searches.length - 1];
+        if (search == null || search.distances.length != world.getRoomCount()) {
+            search = new Search(world.getRoomCount());
+        }
+        search.run(state, from, lockVersion);
+        searches[searches.length - 1] = search;
+        moveToFront(searches.length - 1);
+        return search;
+    }
+
+    private void moveToFront(int index) {
+        Search search = searches[index];
+        System.arraycopy(searches, 0, searches, 1, index);
+        searches[0] = search;
+    }
+
+    /**
+     * The result of one breadth-first search: how far every room is and which room it is reached from.
+     */
+    private static class Search {
+        final int[] distances;
+        final int[] previous;
+        final int[] order; // Rooms in the order they were reached, also the search queue
+        int reached;
+        int from = -1;
+        long lockVersion;
+
+        Search(int roomCount) {
+            distances = new int[roomCount];
+            previous = new int[roomCount];
+            order = new int[roomCount];
+        }
+
+        void run(WorldState state, int start, long version) {
+            World world = state.getWorld();
+            Arrays.fill(distances, -1);
+            from = start;
+            lockVersion = version;
+            distances[start] = 0;
+            previous[start] = -1;
+            order[0] = start;
+            reached = 1;
+
+            for (int head = 0; head < reached; head++) {
+                int room = order[head];
+                for (int exit : world.getExits(room)) {
+                    if (distances[exit] < 0 && !state.isLocked(exit)) {
+                        distances[exit] = distances[room] + 1;
+                        previous[exit] = room;
+                        order[reached++] = exit;
+                    }
+                }
+            }
+        }
+    }
+}
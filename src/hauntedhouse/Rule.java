@@ -0,0 +1,171 @@
+/*
+Description:  This class is one compiled rule of a world: what has to be true when the player does
+something in a room, and what happens then.
+ */
+
+package hauntedhouse;
+
+
+/**
+ * The {@code Rule} class is the compiled form of a {@code rule} block of a world definition.
+ * <p>
+ * A rule belongs to one room and one {@link RuleBook.Trigger}.  Its conditions are kept as
+ * {@link ItemSet}s of item ids and arrays of room ids, so checking them is a few mask comparisons
+ * and never looks a name up.  Every condition must hold for the rule to match:
+ * <ul>
+ *     <li>The player carries every item of {@code has} and none of {@code lacks}.</li>
+ *     <li>The player has been in every room of {@code visited}.</li>
+ *     <li>Every room of {@code open} is unlocked and every room of {@code closed} is locked.</li>
+ * </ul>
+ * Its actions are carried out by the {@link GameEngine} in this order: the items of {@code take}
+ * leave the inventory, the items of {@code give} join it, the rooms of {@code unlock} and
+ * {@code lock} are unlocked and locked, and finally the message is shown.
+ * <p>
+ * A {@code Rule} never changes once it is built, so it is shared by every game of its world.
+ */
+public class Rule {
+    private final int roomId;
+    private final RuleBook.Trigger trigger;
+    private final int line; // Where the rule is defined, for messages about it
+    private final ItemSet has;
+    private final ItemSet lacks;
+    private final ItemSet visited; // Room ids
+    private final int[] open;
+    private final int[] closed;
+    private final ItemSet take;
+    private final ItemSet give;
+    private final int[] unlock;
+    private final int[] lock;
+    private final String message;
+
+    /**
+     * Constructs a new {@code Rule} from already compiled conditions and actions.
+     *
+     * @param roomId The id of the room the rule belongs to.
+     * @param trigger What the player does to set the rule off.
+     * @param line The line of the world definition the rule starts on.
+     * @param has The ids of the items the player must carry.
+     * @param lacks The ids of the items the player must not carry.
+     * @param visited The ids of the rooms the player must have been in.
+     * @param open The ids of the rooms that must be unlocked.
+     * @param closed The ids of the rooms that must be locked.
+     * @param take The ids of the items taken from the player.
+     * @param give The ids of the items given to the player.
+     * @param unlock The ids of the rooms to unlock.
+     * @param lock The ids of the rooms to lock.
+     * @param message The message to show, or {@code null} for none.
+     */
+    Rule(int roomId, RuleBook.Trigger trigger, int line, ItemSet has, ItemSet lacks, ItemSet visited,
+         int[] open, int[] closed, ItemSet take, ItemSet give, int[] unlock, int[] lock, String message) {
+        this.roomId = roomId;
+        this.trigger = trigger;
+        this.line = line;
+        this.has = has;
+        this.lacks = lacks;
+        this.visited = visited;
+        this.open = open;
+        this.closed = closed;
+        this.take = take;
+        this.give = give;
+        this.unlock = unlock;
+        this.lock = lock;
+        this.message = message;
+    }
+
+    /**
+     * Checks whether every condition of the rule holds in a game.
+     *
+     * @param engine The {@link GameEngine} of the game.
+     * @return {@code true} if the rule matches.
+     */
+    public boolean matches(GameEngine engine) {
+        ItemSet inventory = engine.getInventory();
+        if (!inventory.containsAll(has) || inventory.containsAny(lacks)) return false;
+        if (!engine.getVisitedRooms().containsAll(visited)) return false;
+
+        WorldState state = engine.getState();
+        for (int id : open) {
+            if (state.isLocked(id)) return false;
+        }
+        for (int id : closed) {
+            if (!state.isLocked(id)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the room the rule belongs to.
+     *
+     * @return The room id.
+     */
+    public int getRoomId() {
+        return roomId;
+    }
+
+    /**
+     * Gets what the player does to set the rule off.
+     *
+     * @return The {@link RuleBook.Trigger} of the rule.
+     */
+    public RuleBook.Trigger getTrigger() {
+        return trigger;
+    }
+
+    /**
+     * Gets the line of the world definition the rule starts on.
+     *
+     * @return The line number.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Gets the items taken from the player when the rule matches.
+     * The returned set belongs to the rule and must not be modified.
+     *
+     * @return The item ids.
+     */
+    public ItemSet getTakenItems() {
+        return take;
+    }
+
+    /**
+     * Gets the items given to the player when the rule matches.
+     * The returned set belongs to the rule and must not be modified.
+     *
+     * @return The item ids.
+     */
+    public ItemSet getGivenItems() {
+        return give;
+    }
+
+    /**
+     * Gets the rooms unlocked when the rule matches.
+     * The returned array belongs to the rule and must not be modified.
+     *
+     * @return The room ids.
+     */
+    public int[] getUnlockedRooms() {
+        return unlock;
+    }
+
+    /**
+     * Gets the rooms locked when the rule matches.
+     * The returned array belongs to the rule and must not be modified.
+     *
+     * @return The room ids.
+     */
+    public int[] getLockedRooms() {
+        return lock;
+    }
+
+    /**
+     * Gets the message shown when the rule matches.
+     *
+     * @return The message, or {@code null} if the rule shows none.
+     */
+    public String getMessage() {
+        return message;
+    }
+}
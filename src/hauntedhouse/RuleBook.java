@@ -0,0 +1,134 @@
+/*
+Description:  This class holds every rule of a world, sorted once by room and trigger so the game
+only ever looks at the rules of the room the player is in.
+ */
+
+package hauntedhouse;
+
+import java.util.List;
+
+
+/**
+ * The {@code RuleBook} class is the dispatch table of a world's {@link Rule}s.
+ * <p>
+ * The rules are stored in one array, grouped by room and then by trigger, and a second array
+ * gives where the group of every (room, trigger) pair starts.  Finding the rules the player just
+ * set off is therefore two array reads, however many rules the world has; only the rules of that
+ * room and trigger are checked.  Within a group the rules keep the order they were defined in.
+ * A world without rules does not allocate the table at all.
+ */
+public class RuleBook {
+
+    /**
+     * What the player does to set a rule off.
+     */
+    public enum Trigger {
+        /** The player enters the room, after its initial description. */
+        ENTER,
+        /** The player searches the room, after the items found are taken. */
+        SEARCH,
+        /** The player looks around the room, after its description. */
+        LOOK,
+        /**
+         * The player tries to open the locked room while carrying its required items.  A room
+         * with unlock rules only opens if one of them matches, and the items the matching rules
+         * take replace the default of using up every required item.  The unlock message names
+         * only the items taken, and the message of a matching rule replaces it.
+         */
+        UNLOCK;
+
+        /**
+         * Gets the trigger with a name as written in a world definition, such as {@code search}.
+         *
+         * @param name The name of the trigger.
+         * @return The trigger, or {@code null} if there is none with that name.
+         */
+        public static Trigger fromName(String name) {
+            for (Trigger trigger : values()) {
+                if (trigger.name().equalsIgnoreCase(name)) return trigger;
+            }
+            return null;
+        }
+    }
+
+    private static final int TRIGGERS = Trigger.values().length;
+    private static final Rule[] NO_RULES = new Rule[0];
+
+    private final Rule[] rules;
+    //starts[room * TRIGGERS + trigger] is the first rule of the pair, and the next entry its end
+    private final int[] starts;
+
+    /**
+     * Constructs a new {@code RuleBook} from a world's rules.
+     *
+     * @param roomCount The number of rooms in the world.
+     * @param definedRules The rules, in the order they were defined.
+     */
+    RuleBook(int roomCount, List<Rule> definedRules) {
+        if (definedRules.isEmpty()) {
+            rules = NO_RULES;
+            starts = null;
+            return;
+        }
+
+        //A counting sort by (room, trigger), which keeps the defined order within each pair
+        starts = new int[roomCount * TRIGGERS + 1];
+        for (Rule rule : definedRules) {
+            starts[key(rule.getRoomId(), rule.getTrigger()) + 1]++;
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+        rules = new Rule[definedRules.size()];
+        int[] next = starts.clone();
+        for (Rule rule : definedRules) {
+            rules[next[key(rule.getRoomId(), rule.getTrigger())]++] = rule;
+        }
+    }
+
+    /**
+     * Gets the number of rules in the book.
+     *
+     * @return The rule count.
+     */
+    public int size() {
+        return rules.length;
+    }
+
+    /**
+     * Gets the index of the first rule of a room and trigger.  The rules of the pair are the
+     * indexes from this up to {@link #end(int, Trigger)}.
+     *
+     * @param roomId The id of the room.
+     * @param trigger What the player did.
+     * @return The index of the first rule, for {@link #getRule(int)}.
+     */
+    public int start(int roomId, Trigger trigger) {
+        return starts == null ? 0 : starts[key(roomId, trigger)];
+    }
+
+    /**
+     * Gets the index after the last rule of a room and trigger.
+     *
+     * @param roomId The id of the room.
+     * @param trigger What the player did.
+     * @return The end index, equal to {@link #start(int, Trigger)} if the pair has no rules.
+     */
+    public int end(int roomId, Trigger trigger) {
+        return starts == null ? 0 : starts[key(roomId, trigger) + 1];
+    }
+
+    /**
+     * Gets a rule by its index in the book.
+     *
+     * @param index The index of the rule.
+     * @return The {@link Rule}.
+     */
+    public Rule getRule(int index) {
+        return rules[index];
+    }
+
+    private static int key(int roomId, Trigger trigger) {
+        return roomId * TRIGGERS + trigger.ordinal();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+Description:  This class writes saved games to disk and reads them back, on a background thread
+so saving never pauses the game.
+ */
+
+package hauntedhouse;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * The {@code SaveManager} class stores {@link GameSnapshot} bytes in the player's
+ * {@code .haunted-house} folder.
+ * <p>
+ * All file work runs on a single background thread, so saves happen in the order they were asked
+ * for.  Each save is written to a temporary file and then moved over the old one, so a crash while
+ * saving never leaves a half-written save behind.
+ */
+public class SaveManager {
+    public static final String AUTOSAVE = "autosave.sav";
+    public static final String QUICKSAVE = "save.sav";
+
+    private final Path folder;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new {@code SaveManager} that saves into {@code ~/.haunted-house}.
+     */
+    public SaveManager() {
+        this(Paths.get(System.getProperty("user.home"), ".haunted-house"));
+    }
+
+    /**
+     * Constructs a new {@code SaveManager} that saves into the given folder.
+     *
+     * @param folder The folder to keep saved games in.  It is created on the first save.
+     */
+    public SaveManager(Path folder) {
+        this.folder = folder;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "save-writer");
+            thread.setDaemon(true); // A pending autosave must never keep the game from closing
+            return thread;
+        });
+    }
+
+    /**
+     * Gets the folder saved games are kept in.
+     *
+     * @return The save folder.
+     */
+    public Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * Gets the background thread saves are written on, so other files of the game, such as the
+     * {@link CommandJournal}, are written in order with the saves and never on the game's thread.
+     *
+     * @return The save writer.
+     */
+    public Executor getWriter() {
+        return executor;
+    }
+
+    /**
+     * Writes a snapshot to a save file in the background.
+     *
+     * @param name The name of the save file, such as {@link #AUTOSAVE}.
+     * @param snapshot The snapshot bytes.
+     * @return A future that completes once the file has been written.
+     */
+    public CompletableFuture<Void> save(String name, byte[] snapshot) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                Files.createDirectories(folder);
+                Path target = folder.resolve(name);
+                Path temp = folder.resolve(name + ".tmp");
+                Files.write(temp, snapshot);
+                try {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Reads a save file in the background.  The read waits for any saves asked for before it.
+     *
+     * @param name The name of the save file.
+     * @return A future that completes with the snapshot bytes, or fails if there is no such save.
+     */
+    public CompletableFuture<byte[]> load(String name) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return Files.readAllBytes(folder.resolve(name));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Checks whether a save file exists.
+     *
+     * @param name The name of the save file.
+     * @return {@code true} if the save exists.
+     */
+    public boolean exists(String name) {
+        return Files.isRegularFile(folder.resolve(name));
+    }
+
+    /**
+     * Stops the background thread once the saves already asked for are written.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
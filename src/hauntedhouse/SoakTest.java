@@ -0,0 +1,445 @@
+/*
+Description:  This class plays the game engine with bots as fast as the machine allows, on every
+core, checking after every action that the game has not broken one of its rules.
+ */
+
+package hauntedhouse;
+
+import com.sun.management.ThreadMXBean;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * The {@code SoakTest} class drives {@link GameEngine}s with bots instead of a player clicking
+ * through menus, one game after another on each of several threads.
+ * <p>
+ * Every game starts with a random walk: the bot goes through random exits, searches, looks
+ * around, travels and inspects items, the way {@link LoadClient}'s players do.  The game is then
+ * finished by a scripted bot that always does the nearest useful thing: it goes to an end room if
+ * it can, otherwise searches the nearest room that still has items, otherwise opens the nearest
+ * lock it has the items for.  The engines are called directly, without events being turned into
+ * text, so millions of actions a minute are possible.
+ * <p>
+ * A listener on each game checks after every action that:
+ * <ul>
+ *     <li>No item joins the inventory while it is already there or, in a world without rules,
+ *     more than once per game, however often a room is searched.</li>
+ *     <li>The items the listeners were told about are exactly the engine's inventory, and a
+ *     searched room no longer holds the items the player took from it.</li>
+ *     <li>Each room is unlocked at most once, and unlocking it uses up its required items
+ *     (unless its unlock rules say otherwise), after which it is open.</li>
+ *     <li>An end room can still be reached from wherever the random walk left the game, which the
+ *     scripted bot shows by reaching one.</li>
+ * </ul>
+ * While running, the number of actions per minute, the bytes allocated per action and the heap
+ * in use are printed at regular intervals.  At the end, the allocation of the last interval is
+ * compared with the first and the heap left after a garbage collection with the heap at the start,
+ * which shows whether long runs allocate or keep more and more.
+ */
+public class SoakTest {
+    public static final int DEFAULT_RANDOM_ACTIONS = 200;
+    //Examples of broken invariants kept for the report; the rest are only counted
+    private static final int MAX_EXAMPLES = 10;
+
+    private final World world;
+    private final boolean[] goalRooms;
+    private final int threads;
+    private final int randomActions;
+    private final long seed;
+    private final boolean strictItems; // No rule gives items, so each item is found once at most
+    private final LongAdder actions = new LongAdder();
+    private final LongAdder games = new LongAdder();
+    private final AtomicLong violations = new AtomicLong();
+    private final List<String> examples = new ArrayList<>();
+    private volatile boolean stopping;
+
+    /**
+     * Constructs a new {@code SoakTest}.
+     *
+     * @param world The {@link World} to play, shared by every thread.
+     * @param threads The number of games played at the same time.
+     * @param randomActions The number of random actions at the start of each game.
+     * @param seed The seed of the random walks.  Thread {@code t} plays with {@code seed + t}.
+     */
+    public SoakTest(World world, int threads, int randomActions, long seed) {
+        this.world = world;
+        this.threads = threads;
+        this.randomActions = randomActions;
+        this.seed = seed;
+        goalRooms = new boolean[world.getRoomCount()];
+        for (int roomId : WorldAnalyzer.findEndRooms(world)) {
+            goalRooms[roomId] = true;
+        }
+        boolean gives = false;
+        RuleBook rules = world.getRules();
+        for (int i = 0; i < rules.size(); i++) {
+            gives |= !rules.getRule(i).getGivenItems().isEmpty();
+        }
+        strictItems = !gives;
+    }
+
+    /**
+     * Plays games on every thread for a while, printing the throughput and allocation as it goes.
+     *
+     * @param seconds How long to play.
+     * @param intervalSeconds How often to print the progress.
+     * @return The number of broken invariants.
+     * @throws InterruptedException If the calling thread is interrupted.
+     */
+    public long run(int seconds, int intervalSeconds) throws InterruptedException {
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        long heapBefore = usedHeapAfterGc(memoryBean);
+
+        Thread[] workers = new Thread[threads];
+        long[] workerIds = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            Bot bot = new Bot(new Random(seed + t));
+            workers[t] = new Thread(bot::play, "soak-" + t);
+            workers[t].setDaemon(true);
+            workerIds[t] = workers[t].getId();
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+
+        long deadline = start + seconds * 1_000_000_000L;
+        long lastTime = start;
+        long lastActions = 0;
+        long lastBytes = 0;
+        double firstBytesPerAction = -1;
+        double bytesPerAction = 0;
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(Math.min(intervalSeconds * 1000L, Math.max(1, (deadline - System.nanoTime()) / 1_000_000)));
+            long now = System.nanoTime();
+            long count = actions.sum();
+            long bytes = allocatedBytes(threadBean, workerIds);
+            double minutes = (now - lastTime) / 60e9;
+            bytesPerAction = count == lastActions ? 0 : (double) (bytes - lastBytes) / (count - lastActions);
+            if (firstBytesPerAction < 0) {
+                firstBytesPerAction = bytesPerAction;
+            }
+            System.out.printf("%6.0f s: %,12.0f actions/min, %6.1f bytes/action, heap %s, %d violations%n",
+                    (now - start) / 1e9, (count - lastActions) / minutes, bytesPerAction,
+                    formatBytes(memoryBean.getHeapMemoryUsage().getUsed()), violations.get());
+            lastTime = now;
+            lastActions = count;
+            lastBytes = bytes;
+        }
+
+        stopping = true;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsedMinutes = (System.nanoTime() - start) / 60e9;
+        long heapAfter = usedHeapAfterGc(memoryBean);
+
+        System.out.printf("%,d actions in %,d games on %d threads: %,.0f actions/min%n",
+                actions.sum(), games.sum(), threads, actions.sum() / elapsedMinutes);
+        System.out.printf("Allocation: %.1f bytes/action in the first interval, %.1f in the last%n",
+                firstBytesPerAction, bytesPerAction);
+        System.out.printf("Heap after GC: %s at the start, %s at the end%n", formatBytes(heapBefore), formatBytes(heapAfter));
+        System.out.println(world.getRegions());
+        System.out.println("Violations: " + violations.get());
+        synchronized (examples) {
+            for (String example : examples) {
+                System.out.println("  " + example);
+            }
+        }
+        return violations.get();
+    }
+
+    private static long allocatedBytes(ThreadMXBean threadBean, long[] threadIds) {
+        long total = 0;
+        for (long bytes : threadBean.getThreadAllocatedBytes(threadIds)) {
+            total += Math.max(0, bytes); // -1 for a thread that has ended
+        }
+        return total;
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memoryBean) {
+        System.gc();
+        return memoryBean.getHeapMemoryUsage().getUsed();
+    }
+
+    private static String formatBytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private void fail(long game, String message) {
+        if (violations.incrementAndGet() <= MAX_EXAMPLES) {
+            synchronized (examples) {
+                examples.add(Thread.currentThread().getName() + ", game " + game + ": " + message);
+            }
+        }
+    }
+
+    /**
+     * One thread's player, which plays games until the test stops and checks each one as it goes.
+     * Everything it needs per game is allocated once and reset, so the allocation measured is the
+     * engine's own.
+     */
+    private class Bot implements GameListener {
+        private final Random random;
+        private final ItemSet held; // The inventory, as told to the listener
+        private final int[] timesAdded;
+        private final int[] timesUnlocked;
+        //Breadth-first search of the scripted bot; a room is marked when mark[room] == generation
+        private final int[] queue;
+        private final int[] previous;
+        private final int[] mark;
+        private final int[] path;
+        private final boolean[] refused; // Locks whose rules refused to open this game
+        private int generation;
+        private GameEngine engine;
+        private long game;
+
+        Bot(Random random) {
+            this.random = random;
+            int rooms = world.getRoomCount();
+            held = new ItemSet(world.getItemCount());
+            timesAdded = new int[world.getItemCount()];
+            timesUnlocked = new int[rooms];
+            queue = new int[rooms];
+            previous = new int[rooms];
+            mark = new int[rooms];
+            path = new int[rooms];
+            refused = new boolean[rooms];
+        }
+
+        void play() {
+            while (!stopping) {
+                game++;
+                held.clear();
+                Arrays.fill(timesAdded, 0);
+                Arrays.fill(timesUnlocked, 0);
+                Arrays.fill(refused, false);
+                engine = new GameEngine(world);
+                engine.addListener(this);
+
+                engine.enterRoom(world.getStartRoom());
+                actions.increment();
+                for (int i = 0; i < randomActions && !stopping; i++) {
+                    randomAction();
+                    actions.increment();
+                    checkItems();
+                }
+                if (!stopping && !finish()) {
+                    fail(game, "No end room could be reached from " + engine.getCurrentRoom().getName()
+                            + " carrying " + world.getItemNames(engine.getInventory()));
+                }
+                games.increment();
+            }
+        }
+
+        private void randomAction() {
+            int roomId = engine.getCurrentRoom().getId();
+            int choice = random.nextInt(20);
+            int[] exits = world.getExits(roomId);
+            if (choice < 10 && exits.length > 0) {
+                go(exits[random.nextInt(exits.length)]);
+            } else if (choice < 13) {
+                engine.search();
+            } else if (choice < 15) {
+                int target = random.nextInt(world.getRoomCount());
+                if (engine.canTravel(target)) {
+                    engine.enterRoom(target);
+                }
+            } else if (choice < 17 && !engine.getInventory().isEmpty()) {
+                ItemSet inventory = engine.getInventory();
+                int itemId = inventory.nextItem(random.nextInt(world.getItemCount()));
+                engine.inspect(world.getItemName(itemId >= 0 ? itemId : inventory.nextItem(0)));
+            } else {
+                engine.look();
+            }
+        }
+
+        /**
+         * Moves through an exit, entering the room if it opens, and checks what an unlock did.
+         *
+         * @return {@code false} if the room is locked.
+         */
+        private boolean go(int roomId) {
+            GameEngine.MoveResult result = engine.move(roomId);
+            if (result == GameEngine.MoveResult.NO_EXIT) {
+                fail(game, world.getRoomName(roomId) + " is not an exit of " + engine.getCurrentRoom().getName());
+                return false;
+            }
+            if (result == GameEngine.MoveResult.LOCKED) return false;
+
+            if (result == GameEngine.MoveResult.UNLOCKED) {
+                RuleBook rules = world.getRules();
+                boolean ruled = rules.start(roomId, RuleBook.Trigger.UNLOCK) < rules.end(roomId, RuleBook.Trigger.UNLOCK);
+                if (!ruled && engine.getInventory().containsAny(world.getRequiredItems(roomId))) {
+                    fail(game, "Unlocking " + world.getRoomName(roomId) + " did not use up its required items");
+                }
+                if (engine.move(roomId) != GameEngine.MoveResult.OPEN) {
+                    fail(game, world.getRoomName(roomId) + " is not open after it was unlocked");
+                }
+                actions.increment();
+            }
+            engine.enterRoom(roomId);
+            return true;
+        }
+
+        /**
+         * Checks that the inventory is what the listener was told, and that the room the player
+         * is in does not still hold an item the player carries.
+         */
+        private void checkItems() {
+            ItemSet inventory = engine.getInventory();
+            if (!inventory.equals(held)) {
+                fail(game, "The inventory is " + world.getItemNames(inventory) + " but the events say "
+                        + world.getItemNames(held));
+                held.clear();
+                held.addAll(inventory);
+            }
+            if (inventory.containsAny(engine.getState().getItems(engine.getCurrentRoom().getId()))) {
+                fail(game, engine.getCurrentRoom().getName() + " still holds an item the player carries");
+            }
+        }
+
+        /**
+         * Plays the game to an end room with the scripted bot.
+         *
+         * @return {@code true} if an end room was reached.
+         */
+        private boolean finish() {
+            //Every decision searches a room, opens a lock or reaches the goal, so this is plenty
+            int decisions = 2 * (world.getRoomCount() + world.getItemCount()) + 8;
+            for (int d = 0; d < decisions && !stopping; d++) {
+                int current = engine.getCurrentRoom().getId();
+                if (goalRooms[current]) return true;
+
+                WorldState state = engine.getState();
+                if (!state.getItems(current).isEmpty()) {
+                    engine.search();
+                    actions.increment();
+                    checkItems();
+                    continue;
+                }
+
+                int target = findTarget(current);
+                if (target < 0) return false;
+
+                //Walk the path back from the target, then follow it forwards
+                int length = 0;
+                for (int room = target; room != current; room = previous[room]) {
+                    path[length++] = room;
+                }
+                for (int i = length - 1; i >= 0; i--) {
+                    boolean entered = go(path[i]);
+                    actions.increment();
+                    checkItems();
+                    if (!entered) {
+                        refused[path[i]] = true; // Only a lock at the end of the path can refuse
+                        break;
+                    }
+                }
+            }
+            return stopping || goalRooms[engine.getCurrentRoom().getId()];
+        }
+
+        /**
+         * Finds the nearest goal room, room with items or lock the player can open, walking only
+         * through open rooms.
+         *
+         * @return The room, with the way to it in {@link #previous}, or -1 if there is none.
+         */
+        private int findTarget(int from) {
+            WorldState state = engine.getState();
+            ItemSet inventory = engine.getInventory();
+            generation++;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = from;
+            mark[from] = generation;
+            while (head < tail) {
+                int room = queue[head++];
+                if (room != from && (goalRooms[room] || !state.getItems(room).isEmpty())) return room;
+
+                for (int exit : world.getExits(room)) {
+                    if (mark[exit] == generation) continue;
+                    mark[exit] = generation;
+                    previous[exit] = room;
+                    if (!state.isLocked(exit)) {
+                        queue[tail++] = exit;
+                    } else if (!refused[exit] && inventory.containsAll(world.getRequiredItems(exit))) {
+                        return exit;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void onMessage(String text) {
+        }
+
+        @Override
+        public void onRoomUnlocked(Room room) {
+            if (++timesUnlocked[room.getId()] > 1) {
+                fail(game, room.getName() + " was unlocked twice");
+            }
+        }
+
+        @Override
+        public void onRoomEntered(Room room) {
+        }
+
+        @Override
+        public void onItemAdded(String item) {
+            int itemId = world.getItemId(item);
+            if (held.contains(itemId)) {
+                fail(game, item + " joined the inventory while it was already there");
+            }
+            if (++timesAdded[itemId] > 1 && strictItems) {
+                fail(game, item + " was found more than once");
+            }
+            held.add(itemId);
+        }
+
+        @Override
+        public void onItemRemoved(String item) {
+            int itemId = world.getItemId(item);
+            if (!held.contains(itemId)) {
+                fail(game, item + " left the inventory without being in it");
+            }
+            held.remove(itemId);
+        }
+    }
+
+    /**
+     * Runs a soak test and prints the results.  The process exits with status 1 if an invariant
+     * was broken.
+     *
+     * @param args How long to run in seconds (60 by default), the number of threads (one per
+     *             core by default) and a world file (the Haunted House by default).
+     * @throws IOException If the world cannot be loaded.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        World world = args.length > 2 ? WorldLoader.load(Paths.get(args[2])) : WorldLoader.loadDefault();
+
+        System.out.println("Soak test: " + world.getRoomCount() + " rooms, " + world.getItemCount() + " items, "
+                + threads + " threads, " + seconds + " s");
+        SoakTest test = new SoakTest(world, threads, DEFAULT_RANDOM_ACTIONS, 1);
+        long violations = test.run(seconds, Math.max(1, Math.min(10, seconds / 6)));
+        if (violations > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+Description:  This class measures how long the game takes from the start of the JVM to its first
+frame, and which part of starting up the time goes to.
+ */
+
+package hauntedhouse;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The {@code StartupProfile} class records the phases of starting the game and reports them once
+ * the first frame of the game is shown.
+ * <p>
+ * Each call to {@link #mark(String)} ends a phase, which began at the previous mark, or at the
+ * start of the JVM for the first one.  Marks are only recorded between {@link #begin()} and
+ * {@link #finish()}, so code that is also used outside the game window, such as the
+ * {@link WorldLoader}, can mark its phases without recording anything for the server or tools.
+ * The start of the JVM is only looked up when the report is made, so measuring costs the
+ * startup nothing.
+ * <p>
+ * If the {@value #BUDGET_PROPERTY} system property is set to a number of milliseconds, a startup
+ * that takes longer is reported as an error, which keeps large worlds honest about starting fast.
+ */
+public final class StartupProfile {
+    public static final String BUDGET_PROPERTY = "hauntedhouse.startupBudget";
+
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Long> times = new ArrayList<>(); // System.nanoTime at the end of each phase
+    private static boolean recording;
+
+    private StartupProfile() {
+    }
+
+    /**
+     * Starts recording marks.
+     */
+    public static synchronized void begin() {
+        phases.clear();
+        times.clear();
+        recording = true;
+    }
+
+    /**
+     * Ends a phase of the startup, if the startup is being recorded.  May be called on any thread.
+     *
+     * @param phase What was done since the previous mark.
+     */
+    public static synchronized void mark(String phase) {
+        if (!recording) return;
+
+        phases.add(phase);
+        times.add(System.nanoTime());
+    }
+
+    /**
+     * Checks whether marks are being recorded.
+     *
+     * @return {@code true} between {@link #begin()} and {@link #finish()}.
+     */
+    public static synchronized boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Stops recording and makes the report of the phases.  If the startup took longer than the
+     * budget, that is printed as an error as well.
+     *
+     * @return The report, one line per phase.
+     */
+    public static synchronized String finish() {
+        recording = false;
+
+        //The JVM's start is in wall-clock time and the marks in System.nanoTime
+        long nowNanos = System.nanoTime();
+        long sinceStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        long jvmStart = nowNanos - sinceStart * 1_000_000L;
+        long total = times.isEmpty() ? 0 : times.get(times.size() - 1) - jvmStart;
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Startup: %,d ms from the start of the JVM to the first frame%n", total / 1_000_000));
+        long previous = jvmStart;
+        for (int i = 0; i < phases.size(); i++) {
+            long time = times.get(i);
+            report.append(String.format("%8.1f ms  %s%n", (time - previous) / 1e6, phases.get(i)));
+            previous = time;
+        }
+
+        long budget = configuredBudget();
+        if (budget >= 0 && total / 1_000_000 > budget) {
+            System.err.printf("Startup took %,d ms, over the budget of %,d ms%n", total / 1_000_000, budget);
+        }
+        return report.toString();
+    }
+
+    /**
+     * Gets the budget set by the {@value #BUDGET_PROPERTY} system property.  A value that is not
+     * a number of milliseconds is warned about and ignored, as the report is made while the
+     * first frame is shown.
+     *
+     * @return The budget in milliseconds, or -1 if there is none.
+     */
+    static long configuredBudget() {
+        String value = System.getProperty(BUDGET_PROPERTY);
+        if (value == null || value.isBlank()) return -1;
+
+        long budget = parseBudget(value);
+        if (budget < 0) {
+            System.err.println("Ignoring " + BUDGET_PROPERTY + "=" + value
+                    + ", it must be a number of milliseconds such as 1500");
+        }
+        return budget;
+    }
+
+    /**
+     * Reads a budget in milliseconds.
+     *
+     * @param text The budget.
+     * @return The budget, or -1 if it is malformed or negative.
+     */
+    static long parseBudget(String text) {
+        try {
+            long budget = Long.parseLong(text.trim());
+            return budget < 0 ? -1 : budget;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
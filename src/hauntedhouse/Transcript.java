@@ -0,0 +1,102 @@
+/*
+Description:  This class keeps the messages the player has been shown, up to a fixed number,
+as a list the transcript view can display.
+ */
+
+package hauntedhouse;
+
+import javafx.collections.ObservableListBase;
+
+
+/**
+ * The {@code Transcript} class is an observable list of the most recent messages of a session.
+ * <p>
+ * The messages are kept in a ring buffer of fixed size.  Once it is full, every new message takes
+ * the place of the oldest one, so memory stays bounded however long the player plays, and adding a
+ * message never copies the others.  The list reports the oldest message leaving and the new one
+ * arriving as one change, which a {@link javafx.scene.control.ListView} handles without rebuilding
+ * its cells.  Must only be used on the JavaFX application thread.
+ */
+public class Transcript extends ObservableListBase<String> {
+    //Several hours of play, at a few hundred bytes a message
+    public static final int DEFAULT_CAPACITY = 2000;
+
+    private final String[] entries;
+    private int first; // The index in entries of the oldest message
+    private int size;
+    private long total;
+
+    /**
+     * Constructs a new {@code Transcript} with the default capacity.
+     */
+    public Transcript() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@code Transcript} that keeps at most the given number of messages.
+     *
+     * @param capacity The largest number of messages kept.
+     */
+    public Transcript(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        entries = new String[capacity];
+    }
+
+    /**
+     * Adds a message at the end of the transcript, dropping the oldest message if it is full.
+     *
+     * @param text The message.
+     */
+    public void append(String text) {
+        beginChange();
+        if (size == entries.length) {
+            String oldest = entries[first];
+            entries[first] = text;
+            first = (first + 1) % entries.length;
+            nextRemove(0, oldest);
+            nextAdd(size - 1, size);
+        } else {
+            entries[(first + size) % entries.length] = text;
+            size++;
+            nextAdd(size - 1, size);
+        }
+        total++;
+        endChange();
+    }
+
+    /**
+     * Gets a message.
+     *
+     * @param index The position of the message, 0 is the oldest one kept.
+     * @return The message.
+     */
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+        return entries[(first + index) % entries.length];
+    }
+
+    /**
+     * Gets the number of messages kept.
+     *
+     * @return The number of messages.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of messages ever added, including the ones that have been dropped.
+     *
+     * @return The total number of messages.
+     */
+    public long getTotal() {
+        return total;
+    }
+}
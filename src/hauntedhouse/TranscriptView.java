@@ -0,0 +1,64 @@
+/*
+Description:  This class shows the session transcript below the room picture, so the player can
+scroll back to earlier descriptions.
+ */
+
+package hauntedhouse;
+
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+
+
+/**
+ * The {@code TranscriptView} class shows a {@link Transcript} with the newest message at the bottom.
+ * <p>
+ * Being a {@link ListView}, it only creates cells for the messages that fit on screen and reuses
+ * them while scrolling, so scrolling stays smooth however long the transcript is.  Each cell wraps
+ * its message to the width of the view.
+ */
+public class TranscriptView extends ListView<String> {
+    private final Transcript transcript;
+
+    /**
+     * Constructs a new {@code TranscriptView} of a transcript.
+     *
+     * @param transcript The {@link Transcript} to show.
+     */
+    public TranscriptView(Transcript transcript) {
+        super(transcript);
+        this.transcript = transcript;
+        setFocusTraversable(false);
+        setStyle("-fx-control-inner-background: black; -fx-background-color: black;");
+        setCellFactory(view -> new MessageCell());
+    }
+
+    /**
+     * Adds a message to the transcript and scrolls down to it.
+     *
+     * @param text The message.
+     */
+    public void append(String text) {
+        transcript.append(text);
+        scrollTo(transcript.size() - 1);
+    }
+
+    /**
+     * A cell that shows one message, wrapped to the width of the view.
+     */
+    private class MessageCell extends ListCell<String> {
+        MessageCell() {
+            setWrapText(true);
+            //Leave room for the scroll bar, so the text wraps instead of scrolling sideways
+            prefWidthProperty().bind(TranscriptView.this.widthProperty().subtract(20));
+            setMaxWidth(USE_PREF_SIZE);
+            setStyle("-fx-text-fill: yellow; -fx-background-color: black; "
+                    + "-fx-border-color: transparent transparent #333333 transparent;");
+        }
+
+        @Override
+        protected void updateItem(String item, boolean empty) {
+            super.updateItem(item, empty);
+            setText(empty ? null : item);
+        }
+    }
+}
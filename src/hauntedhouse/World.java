@@ -0,0 +1,303 @@
+/*
+Description:  This class holds a compiled world: every room and item of the game, indexed by
+number so the game can move around without looking rooms up by name.
+ */
+
+package hauntedhouse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The {@code World} class is the compiled form of a world definition.
+ * Rooms and items are given integer ids in the order they were defined.  Exits are stored as
+ * arrays of room ids, and the items found in or required by a room are stored as
+ * {@link ItemSet}s of item ids.  Names are only needed to turn player-facing text into ids.
+ * <p>
+ * A {@code World} is built by the {@link WorldLoader}.  It never changes once it is built; the
+ * rooms' locks and items during a game are kept by the game's {@link WorldState}.  One world can
+ * therefore be shared by any number of games and threads.  The narrative text and fingerprint
+ * are worked out the first time they are needed.
+ * <p>
+ * What the game needs about every room at once, the names, exits, locks and items, is kept in
+ * compact tables.  The {@link Room} objects, with their long descriptions, are kept by the
+ * world's {@link RoomRegions}, which makes a region of nearby rooms when one of them is asked for,
+ * when the player goes there or its picture is prefetched, and drops regions no one has used for
+ * a while once they take more than their memory budget.  A world therefore starts in the same
+ * time, and plays in bounded memory, however many rooms it has.  The methods that take a room id,
+ * such as {@link #isInitiallyLocked(int)}, never make a room.
+ */
+public class World {
+    private final String[] roomNames;
+    private final int[][] exits;
+    private final Map<String, Integer> roomIds;
+    private final String[] itemNames;
+    private final Map<String, Integer> itemIds;
+    private final String[] discoveryDescriptions;
+    private final boolean[] initiallyLocked;
+    private final ItemSet[] initialItems;
+    private final ItemSet[] requiredItems;
+    private final int startRoom;
+    private final RuleBook rules;
+    private final RoomRegions regions;
+    private volatile long fingerprint;
+    private NarrativeText narrative;
+
+    /**
+     * Constructs a new {@code World} from already compiled tables.
+     *
+     * @param roomNames The room names, indexed by room id.
+     * @param exits The exits of each room as room ids, indexed by room id.
+     * @param roomIds The room id of each room name.
+     * @param initiallyLocked Whether each room is locked at the start, indexed by room id.
+     * @param initialItems The items in each room at the start, indexed by room id.
+     * @param requiredItems The items needed to unlock each room, indexed by room id.
+     * @param itemNames The item names, indexed by item id.
+     * @param itemIds The item id of each item name.
+     * @param discoveryDescriptions The discovery message of each item, or {@code null} for the default.
+     * @param startRoom The id of the room the player starts in.
+     * @param rules The rules of the world.
+     * @param regions Holds the {@link Room}s, made when they are asked for.
+     */
+    World(String[] roomNames, int[][] exits, Map<String, Integer> roomIds, boolean[] initiallyLocked,
+          ItemSet[] initialItems, ItemSet[] requiredItems, String[] itemNames, Map<String, Integer> itemIds,
+          String[] discoveryDescriptions, int startRoom, RuleBook rules, RoomRegions regions) {
+        this.roomNames = roomNames;
+        this.exits = exits;
+        this.roomIds = roomIds;
+        this.itemNames = itemNames;
+        this.itemIds = itemIds;
+        this.discoveryDescriptions = discoveryDescriptions;
+        this.initiallyLocked = initiallyLocked;
+        this.initialItems = initialItems;
+        this.requiredItems = requiredItems;
+        this.startRoom = startRoom;
+        this.rules = rules;
+        this.regions = regions;
+        this.narrative = new NarrativeText(this, "generic text", null);
+    }
+
+    /**
+     * Gets the number of rooms in the world.
+     *
+     * @return The room count.
+     */
+    public int getRoomCount() {
+        return roomNames.length;
+    }
+
+    /**
+     * Gets a room by its id, loading its region if it is not in memory.
+     * A room never changes, so a room dropped and made again is equal to the first.
+     *
+     * @param roomId The id of the room.
+     * @return The {@link Room} with that id.
+     */
+    public Room getRoom(int roomId) {
+        return regions.getRoom(roomId);
+    }
+
+    /**
+     * Gets the number of rooms that have been made so far, counting rooms made again after
+     * their region was dropped.
+     *
+     * @return The number of {@link Room} objects made.
+     */
+    public int getMaterializedRoomCount() {
+        return regions.getRoomsMade();
+    }
+
+    /**
+     * Gets the regions the rooms are kept in.
+     *
+     * @return The {@link RoomRegions} of the world.
+     */
+    public RoomRegions getRegions() {
+        return regions;
+    }
+
+    /**
+     * Gets the name of a room without making it.
+     *
+     * @param roomId The id of the room.
+     * @return The room name.
+     */
+    public String getRoomName(int roomId) {
+        return roomNames[roomId];
+    }
+
+    /**
+     * Checks whether a room is locked at the start of a game, without making it.
+     *
+     * @param roomId The id of the room.
+     * @return {@code true} if the room is initially locked.
+     */
+    public boolean isInitiallyLocked(int roomId) {
+        return initiallyLocked[roomId];
+    }
+
+    /**
+     * Gets the items in a room at the start of a game, without making it.
+     * The returned set belongs to the world and must not be modified.
+     *
+     * @param roomId The id of the room.
+     * @return The ids of the items that can be found in the room.
+     */
+    public ItemSet getInitialItems(int roomId) {
+        return initialItems[roomId];
+    }
+
+    /**
+     * Gets the items needed to unlock a room, without making it.
+     * The returned set belongs to the world and must not be modified.
+     *
+     * @param roomId The id of the room.
+     * @return The ids of the required items.
+     */
+    public ItemSet getRequiredItems(int roomId) {
+        return requiredItems[roomId];
+    }
+
+    /**
+     * Gets the id of a room from its name.
+     *
+     * @param name The name of the room.
+     * @return The room id, or -1 if there is no room with that name.
+     */
+    public int getRoomId(String name) {
+        Integer id = roomIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the rooms that can be accessed from a room.
+     * The returned array belongs to the world and must not be modified.
+     *
+     * @param roomId The id of the room.
+     * @return The room ids of the exits, in the same order as {@link Room#getExits()}.
+     */
+    public int[] getExits(int roomId) {
+        return exits[roomId];
+    }
+
+    /**
+     * Gets the names of the items in a set, in item id order.
+     *
+     * @param items A set of item ids from this world.
+     * @return The names of the items.
+     */
+    public List<String> getItemNames(ItemSet items) {
+        List<String> names = new ArrayList<>(items.size());
+        for (int id = items.nextItem(0); id >= 0; id = items.nextItem(id + 1)) {
+            names.add(itemNames[id]);
+        }
+        return names;
+    }
+
+    /**
+     * Gets the number of distinct items in the world.
+     *
+     * @return The item count.
+     */
+    public int getItemCount() {
+        return itemNames.length;
+    }
+
+    /**
+     * Gets the name of an item by its id.
+     *
+     * @param itemId The id of the item.
+     * @return The item name.
+     */
+    public String getItemName(int itemId) {
+        return itemNames[itemId];
+    }
+
+    /**
+     * Gets the id of an item from its name.
+     *
+     * @param name The name of the item.
+     * @return The item id, or -1 if there is no item with that name.
+     */
+    public int getItemId(String name) {
+        Integer id = itemIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the message displayed when an item is discovered.
+     *
+     * @param itemId The id of the item.
+     * @return The discovery message, or {@code null} if the item uses the default message.
+     */
+    public String getDiscoveryDescription(int itemId) {
+        return discoveryDescriptions[itemId];
+    }
+
+    /**
+     * Gets the rules of the world, indexed by room and trigger.
+     *
+     * @return The {@link RuleBook} of the world, which is empty if it defines no rules.
+     */
+    public RuleBook getRules() {
+        return rules;
+    }
+
+    /**
+     * Gets the lock, unlock and item messages of the world.
+     *
+     * @return The {@link NarrativeText} of the world.
+     */
+    public NarrativeText getNarrative() {
+        return narrative;
+    }
+
+    /**
+     * Sets the lock, unlock and item messages of the world.
+     *
+     * @param narrative The {@link NarrativeText} to use.
+     */
+    void setNarrative(NarrativeText narrative) {
+        this.narrative = narrative;
+    }
+
+    /**
+     * Gets a fingerprint of the world's rooms and items.  Two worlds loaded from the same
+     * definition have the same fingerprint, which lets a saved game check that it belongs
+     * to the world it is loaded into.
+     *
+     * @return A 64-bit hash of the room and item names.
+     */
+    public long getFingerprint() {
+        if (fingerprint == 0) {
+            //FNV-1a over every name, with a separator so that names cannot run into each other
+            long hash = 0xcbf29ce484222325L;
+            for (String room : roomNames) {
+                hash = hashName(hash, room);
+            }
+            for (String item : itemNames) {
+                hash = hashName(hash, item);
+            }
+            fingerprint = hash == 0 ? 1 : hash;
+        }
+        return fingerprint;
+    }
+
+    private static long hashName(long hash, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xffff) * 0x100000001b3L;
+    }
+
+    /**
+     * Gets the room the player starts in.
+     *
+     * @return The id of the starting room.
+     */
+    public int getStartRoom() {
+        return startRoom;
+    }
+}
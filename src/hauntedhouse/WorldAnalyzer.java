@@ -0,0 +1,1029 @@
+/*
+Description:  This class checks a world definition offline: whether the game can be finished at
+all, whether the player can get stuck, and how short the quickest way through is.
+ */
+
+package hauntedhouse;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+
+/**
+ * The {@code WorldAnalyzer} class searches every state a game of a world can be in, to find out
+ * whether it can be won and where the player can get stuck.
+ * <p>
+ * A state is the player's room together with the locked rooms, the searched rooms and the
+ * inventory, all kept as bits.  The states are searched breadth-first, one level at a time, and
+ * each level is split over a fork/join pool.  States that have been seen before are recognised
+ * in a shared concurrent map, so every state is expanded once.
+ * <p>
+ * The analysis first tries the exact game, where every move and search is one step, which gives
+ * the length of the shortest solution.  If the exact game has more states than allowed, it is
+ * analyzed again in reduced form: the player always searches the rooms they can walk to and back
+ * from, and always uses items that no other locked room needs.  Neither can ever make the game
+ * harder to win, so the reduced game can be won exactly when the real game can, and every stuck
+ * state it finds is one the real game can reach too.  It does not visit every state of the real
+ * game, though, so it may miss stuck states the exact search would find.  Its steps are
+ * decisions rather than single moves.
+ * The reported steps are played in a {@link GameEngine} afterwards, to check that the game
+ * agrees with the analysis after each of them.
+ * <p>
+ * The game is won by reaching one of the goal rooms, by default every room without exits.
+ * A state from which no goal can be reached any more is a soft-lock.
+ * <p>
+ * The world's {@link Rule}s are not part of the analysis, which only follows the rooms' own
+ * locks and items.
+ */
+public class WorldAnalyzer {
+    public static final int DEFAULT_MAX_STATES = 2_000_000;
+    //Estimated bytes of a state beyond its bits: the node, its entry in the map of states and its links
+    private static final int STATE_OVERHEAD = 200;
+    private static final int SPLIT_THRESHOLD = 32; // States expanded by one task before it splits
+
+    //Kinds of steps
+    private static final int START = 0;
+    private static final int MOVE = 1;
+    private static final int UNLOCK = 2;
+    private static final int SEARCH = 3;
+
+    private final World world;
+    private final int roomCount;
+    private final boolean[] goals;
+    private final int[][] entrances; // For each room, the rooms with an exit into it
+    private final long[][] roomItems; // Item bits found in each room, or null
+    private final long[][] requiredItems; // Item bits needed to unlock each room
+    private final int[][] locksNeedingItem; // For each item, the rooms that need it to be unlocked
+    private final int roomWords;
+    private final int itemWords;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Constructs a new {@code WorldAnalyzer}.  The world must be freshly loaded, its rooms'
+     * current locks and items are taken as the start of the game.
+     *
+     * @param world The {@link World} to analyze.
+     * @param goalRooms The ids of the rooms that win the game when reached.
+     */
+    public WorldAnalyzer(World world, int... goalRooms) {
+        this.world = world;
+        this.roomCount = world.getRoomCount();
+        this.roomWords = (roomCount + 63) / 64;
+        this.itemWords = Math.max(1, (world.getItemCount() + 63) / 64);
+        this.goals = new boolean[roomCount];
+        for (int goal : goalRooms) {
+            goals[goal] = true;
+        }
+
+        List<List<Integer>> entranceLists = new ArrayList<>();
+        List<List<Integer>> lockLists = new ArrayList<>();
+        for (int room = 0; room < roomCount; room++) entranceLists.add(new ArrayList<>());
+        for (int item = 0; item < world.getItemCount(); item++) lockLists.add(new ArrayList<>());
+
+        roomItems = new long[roomCount][];
+        requiredItems = new long[roomCount][];
+        for (int room = 0; room < roomCount; room++) {
+            for (int exit : world.getExits(room)) {
+                entranceLists.get(exit).add(room);
+            }
+            if (!world.getInitialItems(room).isEmpty()) {
+                roomItems[room] = Arrays.copyOf(world.getInitialItems(room).toWords(), itemWords);
+            }
+            requiredItems[room] = Arrays.copyOf(world.getRequiredItems(room).toWords(), itemWords);
+            if (world.isInitiallyLocked(room)) {
+                ItemSet required = world.getRequiredItems(room);
+                for (int item = required.nextItem(0); item >= 0; item = required.nextItem(item + 1)) {
+                    lockLists.get(item).add(room);
+                }
+            }
+        }
+        entrances = toArrays(entranceLists);
+        locksNeedingItem = toArrays(lockLists);
+        scratch = ThreadLocal.withInitial(() -> new Scratch(roomCount));
+    }
+
+    /**
+     * Finds the goal rooms of a world when none are given: every room without exits.
+     *
+     * @param world The {@link World}.
+     * @return The ids of the rooms without exits.
+     */
+    public static int[] findEndRooms(World world) {
+        return IntStream.range(0, world.getRoomCount())
+                .filter(room -> world.getExits(room).length == 0)
+                .toArray();
+    }
+
+    /**
+     * Analyzes the world, first exactly and in reduced form if the exact game is too large.
+     *
+     * @param maxStates The largest number of states to search in each form.
+     * @return The {@link Report} of the analysis.
+     */
+    public Report analyze(int maxStates) {
+        Report exact = explore(false, maxStates);
+        return exact.isComplete() ? exact : explore(true, maxStates);
+    }
+
+    /**
+     * Searches every state of the game.  The search stops early if the states would not fit in
+     * the memory that is left, see {@link #affordableStates()}.
+     *
+     * @param reduced Whether to search the reduced game.
+     * @param maxStates The largest number of states to search.
+     * @return The {@link Report} of the search.
+     */
+    public Report explore(boolean reduced, int maxStates) {
+        long startTime = System.nanoTime();
+        maxStates = Math.min(maxStates, affordableStates());
+        ConcurrentHashMap<Node, Node> states = new ConcurrentHashMap<>();
+        AtomicInteger stateCount = new AtomicInteger();
+
+        Node start = new Node(world.getStartRoom(), startBits(), null, START, -1, 0);
+        if (reduced) start = settle(start, scratch.get());
+        states.put(start, start);
+        stateCount.incrementAndGet();
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<Node> frontier = Collections.singletonList(start);
+        Node firstWin = null;
+        boolean complete = true;
+        while (!frontier.isEmpty()) {
+            if (stateCount.get() >= maxStates) {
+                complete = false;
+                break;
+            }
+            List<Node> level = frontier;
+            frontier = pool.invoke(new ExpandTask(level, 0, level.size(), reduced, states, stateCount, maxStates));
+            if (firstWin == null) {
+                firstWin = level.stream().filter(node -> node.won).min(WorldAnalyzer::comparePaths).orElse(null);
+            }
+        }
+
+        Node softLock = complete ? findSoftLocks(states.values()) : null;
+        int softLocks = 0;
+        if (complete) {
+            for (Node node : states.values()) {
+                if (!node.canWin) softLocks++;
+            }
+        }
+
+        String replayProblem = firstWin == null ? null : replay(firstWin, reduced);
+        if (replayProblem == null && softLock != null) {
+            replayProblem = replay(softLock, reduced);
+        }
+
+        return new Report(reduced, complete, states.size(), pool.getParallelism(),
+                (System.nanoTime() - startTime) / 1_000_000,
+                firstWin == null ? -1 : firstWin.depth,
+                firstWin == null ? null : describePath(firstWin, reduced),
+                complete ? softLocks : -1,
+                softLock == null ? null : describePath(softLock, reduced),
+                complete && !start.canWin, replayProblem);
+    }
+
+    /**
+     * Estimates how many states fit in three quarters of the heap that is free.  Each state holds
+     * its own bits, so in a large world far fewer states fit than {@link #DEFAULT_MAX_STATES}.
+     *
+     * @return The number of states.
+     */
+    int affordableStates() {
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        long stateBytes = STATE_OVERHEAD + 8L * (2 * roomWords + itemWords);
+        return (int) Math.min(Integer.MAX_VALUE, free / 4 * 3 / stateBytes);
+    }
+
+    /**
+     * Gets the state bits of the start of the game: the initially locked rooms, nothing searched
+     * and nothing carried.
+     */
+    private long[] startBits() {
+        long[] bits = new long[2 * roomWords + itemWords];
+        for (int room = 0; room < roomCount; room++) {
+            if (world.isInitiallyLocked(room)) set(bits, 0, room);
+        }
+        return bits;
+    }
+
+    /**
+     * Marks every state from which a goal can still be reached.
+     *
+     * @return The soft-lock closest to the start, or {@code null} if there is none.
+     */
+    private Node findSoftLocks(Iterable<Node> states) {
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        for (Node node : states) {
+            if (node.won) {
+                node.canWin = true;
+                queue.add(node);
+            }
+            for (Node successor : node.successors) {
+                if (successor.predecessors == null) successor.predecessors = new ArrayList<>(2);
+                successor.predecessors.add(node);
+            }
+        }
+        //Walk backwards from the winning states
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            if (node.predecessors == null) continue;
+            for (Node predecessor : node.predecessors) {
+                if (!predecessor.canWin) {
+                    predecessor.canWin = true;
+                    queue.add(predecessor);
+                }
+            }
+        }
+
+        Node closest = null;
+        for (Node node : states) {
+            if (!node.canWin && (closest == null || node.depth < closest.depth
+                    || node.depth == closest.depth && comparePaths(node, closest) < 0)) {
+                closest = node;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Finds the states that follow a state.
+     */
+    private List<Node> expand(Node node, boolean reduced, Scratch work) {
+        List<Node> successors = new ArrayList<>();
+        long[] bits = node.bits;
+
+        if (!reduced) {
+            if (goals[node.room]) {
+                node.won = true;
+                return successors;
+            }
+            if (roomItems[node.room] != null && !get(bits, roomWords, node.room)) {
+                successors.add(search(node, node.room));
+            }
+            for (int exit : world.getExits(node.room)) {
+                if (!get(bits, 0, exit)) {
+                    successors.add(new Node(exit, bits, node, MOVE, exit, node.depth + 1));
+                } else if (hasItems(bits, requiredItems[exit])) {
+                    successors.add(unlock(node, exit));
+                }
+            }
+            return successors;
+        }
+
+        int reached = work.reachForward(node.room, bits);
+        for (int i = 0; i < reached; i++) {
+            if (goals[work.forwardList[i]]) {
+                node.won = true;
+                return successors;
+            }
+        }
+        int seenStamp = work.nextSeen();
+        for (int i = 0; i < reached; i++) {
+            int room = work.forwardList[i];
+            if (roomItems[room] != null && !get(bits, roomWords, room)) {
+                successors.add(search(node, room));
+            }
+            for (int exit : world.getExits(room)) {
+                if (get(bits, 0, exit) && work.seen[exit] != seenStamp && hasItems(bits, requiredItems[exit])) {
+                    work.seen[exit] = seenStamp;
+                    successors.add(unlock(node, exit));
+                }
+            }
+        }
+        //Settling uses the scratch arrays, so it is done once the reached rooms are no longer needed
+        for (int i = 0; i < successors.size(); i++) {
+            successors.set(i, settle(successors.get(i), work));
+        }
+        return successors;
+    }
+
+    private Node search(Node node, int room) {
+        long[] bits = node.bits.clone();
+        set(bits, roomWords, room);
+        addItems(bits, roomItems[room]);
+        return new Node(room, bits, node, SEARCH, room, node.depth + 1);
+    }
+
+    private Node unlock(Node node, int room) {
+        long[] bits = node.bits.clone();
+        clear(bits, 0, room);
+        removeItems(bits, requiredItems[room]);
+        return new Node(room, bits, node, UNLOCK, room, node.depth + 1);
+    }
+
+    /**
+     * Applies the steps of the reduced game that can never hurt, until there are none left:
+     * searching the rooms the player can walk to and back from, and unlocking rooms next to them
+     * that the player can walk back from, with items no other locked room needs.
+     */
+    private Node settle(Node node, Scratch work) {
+        long[] bits = node.bits.clone();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int reached = work.reachForward(node.room, bits);
+            work.reachBackward(node.room, bits);
+            for (int i = 0; i < reached; i++) {
+                int room = work.forwardList[i];
+                if (!work.canReturn(room)) continue;
+
+                if (roomItems[room] != null && !get(bits, roomWords, room)) {
+                    set(bits, roomWords, room);
+                    addItems(bits, roomItems[room]);
+                    changed = true;
+                }
+                for (int exit : world.getExits(room)) {
+                    if (get(bits, 0, exit) && hasItems(bits, requiredItems[exit])
+                            && isOnlyUse(bits, exit) && leadsBack(exit, bits, work)) {
+                        clear(bits, 0, exit);
+                        removeItems(bits, requiredItems[exit]);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return new Node(node.room, bits, node.parent, node.step, node.stepRoom, node.depth);
+    }
+
+    /**
+     * Checks that no other locked room needs any of the items that unlock a room.
+     */
+    private boolean isOnlyUse(long[] bits, int room) {
+        long[] required = requiredItems[room];
+        for (int word = 0; word < itemWords; word++) {
+            for (long w = required[word]; w != 0; w &= w - 1) {
+                int item = word * 64 + Long.numberOfTrailingZeros(w);
+                for (int other : locksNeedingItem[item]) {
+                    if (other != room && get(bits, 0, other)) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that a room has an exit back to a room the player can return from.
+     */
+    private boolean leadsBack(int room, long[] bits, Scratch work) {
+        for (int exit : world.getExits(room)) {
+            if (!get(bits, 0, exit) && work.canReturn(exit)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the steps that lead to a state, in the order they are taken.
+     */
+    private List<String> describePath(Node last, boolean reduced) {
+        List<Node> path = new ArrayList<>();
+        for (Node node = last; node != null; node = node.parent) {
+            path.add(node);
+        }
+        Collections.reverse(path);
+
+        List<String> steps = new ArrayList<>();
+        long[] before = startBits();
+        for (Node node : path) {
+            StringBuilder step = new StringBuilder();
+            switch (node.step) {
+                case MOVE:
+                    step.append("Go to ").append(roomName(node.stepRoom));
+                    break;
+                case UNLOCK:
+                    step.append("Unlock ").append(roomName(node.stepRoom)).append(" with ")
+                            .append(itemNames(requiredItems[node.stepRoom]));
+                    break;
+                case SEARCH:
+                    step.append("Search ").append(roomName(node.stepRoom)).append(" and find ")
+                            .append(itemNames(roomItems[node.stepRoom]));
+                    break;
+                default:
+                    step.append("Start in ").append(roomName(node.room));
+                    break;
+            }
+            if (reduced) {
+                //Name the steps the reduced game took on its own
+                appendSettled(step, before, node);
+                before = node.bits;
+            }
+            steps.add(step.toString());
+        }
+        if (last.won && reduced) {
+            steps.add("Walk to the goal");
+        }
+        return steps;
+    }
+
+    private void appendSettled(StringBuilder step, long[] before, Node node) {
+        List<String> unlocked = new ArrayList<>();
+        List<String> searched = new ArrayList<>();
+        for (int room = 0; room < roomCount; room++) {
+            if (room == node.stepRoom) continue;
+            if (get(before, 0, room) && !get(node.bits, 0, room)) unlocked.add(roomName(room));
+            if (!get(before, roomWords, room) && get(node.bits, roomWords, room)) searched.add(roomName(room));
+        }
+        if (!unlocked.isEmpty()) step.append(", then unlock ").append(String.join(", ", unlocked));
+        if (!searched.isEmpty()) step.append(", then search ").append(String.join(", ", searched));
+    }
+
+    /**
+     * Plays the steps that lead to a state in a {@link GameEngine}, checking after each of them
+     * that the game is in the state the analysis expects.  The rooms are walked through one exit
+     * at a time, along the shortest routes through unlocked rooms.
+     *
+     * @return {@code null} if the steps replay, otherwise what went wrong.
+     */
+    private String replay(Node last, boolean reduced) {
+        //The analysis does not follow the rules, so the game would not either
+        if (world.getRules().size() > 0) return null;
+
+        List<Node> path = new ArrayList<>();
+        for (Node node = last; node != null; node = node.parent) {
+            path.add(node);
+        }
+        Collections.reverse(path);
+
+        GameEngine engine = new GameEngine(world);
+        engine.enterRoom(world.getStartRoom());
+        long[] before = startBits();
+        for (int i = 0; i < path.size(); i++) {
+            Node node = path.get(i);
+            boolean done;
+            switch (node.step) {
+                case MOVE:
+                    done = engine.move(node.stepRoom) == GameEngine.MoveResult.OPEN && engine.enterRoom(node.stepRoom);
+                    break;
+                case UNLOCK:
+                    done = unlockInGame(engine, node.stepRoom) && engine.enterRoom(node.stepRoom);
+                    break;
+                case SEARCH:
+                    done = walkInGame(engine, node.stepRoom);
+                    engine.search();
+                    break;
+                default:
+                    done = true;
+                    break;
+            }
+            if (!done) return "step " + i + " cannot be taken in the game";
+
+            if (reduced) {
+                //The steps the reduced game took on its own, in any order that the game allows
+                List<Integer> unlocks = new ArrayList<>();
+                List<Integer> searches = new ArrayList<>();
+                for (int room = 0; room < roomCount; room++) {
+                    if (room == node.stepRoom) continue;
+                    if (get(before, 0, room) && !get(node.bits, 0, room)) unlocks.add(room);
+                    if (!get(before, roomWords, room) && get(node.bits, roomWords, room)) searches.add(room);
+                }
+                boolean progress = true;
+                while (progress && !(unlocks.isEmpty() && searches.isEmpty())) {
+                    progress = false;
+                    for (int j = searches.size() - 1; j >= 0; j--) {
+                        if (walkInGame(engine, searches.get(j))) {
+                            engine.search();
+                            searches.remove(j);
+                            progress = true;
+                        }
+                    }
+                    for (int j = unlocks.size() - 1; j >= 0; j--) {
+                        if (unlockInGame(engine, unlocks.get(j))) {
+                            unlocks.remove(j);
+                            progress = true;
+                        }
+                    }
+                }
+                if (!progress) return "step " + i + " names rooms that cannot be unlocked or searched in the game";
+                if (!walkInGame(engine, node.room)) return "step " + i + " does not end where the game can walk to";
+                before = node.bits;
+            }
+
+            String difference = compareWithGame(engine, node);
+            if (difference != null) return "after step " + i + ", " + difference;
+        }
+
+        if (last.won) {
+            boolean atGoal = goals[engine.getCurrentRoom().getId()];
+            for (int room = 0; room < roomCount && !atGoal; room++) {
+                atGoal = goals[room] && walkInGame(engine, room);
+            }
+            if (!atGoal) return "no goal can be reached in the game at the end";
+        }
+        return null;
+    }
+
+    /**
+     * Walks the player of a game to a room through unlocked rooms.
+     *
+     * @return {@code false} if there is no way to the room.
+     */
+    private static boolean walkInGame(GameEngine engine, int room) {
+        int from = engine.getCurrentRoom().getId();
+        if (from == room) return true;
+
+        int[] route = engine.getState().getRoutes().getRoute(from, room);
+        if (route == null) return false;
+        for (int next : route) {
+            if (engine.move(next) != GameEngine.MoveResult.OPEN || !engine.enterRoom(next)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Walks the player of a game next to a locked room and unlocks it, without entering it.
+     *
+     * @return {@code false} if the room cannot be reached or the player lacks the items.
+     */
+    private boolean unlockInGame(GameEngine engine, int room) {
+        if (!engine.getState().isLocked(room) || !engine.getInventory().containsAll(world.getRequiredItems(room))) {
+            return false;
+        }
+        for (int entrance : entrances[room]) {
+            if (!engine.getState().isLocked(entrance) && walkInGame(engine, entrance)) {
+                return engine.move(room) == GameEngine.MoveResult.UNLOCKED;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the locks, searched rooms and inventory of a game with a state of the analysis.
+     *
+     * @return {@code null} if they are the same, otherwise the first difference.
+     */
+    private String compareWithGame(GameEngine engine, Node node) {
+        if (engine.getCurrentRoom().getId() != node.room) {
+            return "the game is in " + roomName(engine.getCurrentRoom().getId()) + " instead of " + roomName(node.room);
+        }
+        WorldState state = engine.getState();
+        for (int room = 0; room < roomCount; room++) {
+            if (state.isLocked(room) != get(node.bits, 0, room)) {
+                return roomName(room) + (state.isLocked(room) ? " is still locked" : " is unlocked") + " in the game";
+            }
+            if (roomItems[room] != null && state.getItems(room).isEmpty() != get(node.bits, roomWords, room)) {
+                return roomName(room) + (state.getItems(room).isEmpty() ? " has been" : " has not been")
+                        + " searched in the game";
+            }
+        }
+        long[] inventory = Arrays.copyOf(engine.getInventory().toWords(), itemWords);
+        if (!Arrays.equals(inventory, Arrays.copyOfRange(node.bits, 2 * roomWords, 2 * roomWords + itemWords))) {
+            return "the game's inventory is " + itemNames(inventory);
+        }
+        return null;
+    }
+
+    private String roomName(int room) {
+        return world.getRoomName(room);
+    }
+
+    private String itemNames(long[] items) {
+        List<String> names = world.getItemNames(ItemSet.fromWords(items));
+        return names.isEmpty() ? "nothing" : String.join(", ", names);
+    }
+
+    /**
+     * Orders two states by the rooms of their paths, so the reported paths are the same on every run.
+     */
+    private static int comparePaths(Node a, Node b) {
+        if (a == b) return 0;
+        if (a.depth != b.depth) return Integer.compare(a.depth, b.depth);
+        int parents = comparePaths(a.parent, b.parent);
+        if (parents != 0) return parents;
+        if (a.step != b.step) return Integer.compare(a.step, b.step);
+        return Integer.compare(a.stepRoom, b.stepRoom);
+    }
+
+    private boolean hasItems(long[] bits, long[] items) {
+        for (int word = 0; word < itemWords; word++) {
+            if ((items[word] & ~bits[2 * roomWords + word]) != 0) return false;
+        }
+        return true;
+    }
+
+    private void addItems(long[] bits, long[] items) {
+        for (int word = 0; word < itemWords; word++) {
+            bits[2 * roomWords + word] |= items[word];
+        }
+    }
+
+    private void removeItems(long[] bits, long[] items) {
+        for (int word = 0; word < itemWords; word++) {
+            bits[2 * roomWords + word] &= ~items[word];
+        }
+    }
+
+    private static boolean get(long[] bits, int offset, int index) {
+        return (bits[offset + (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int offset, int index) {
+        bits[offset + (index >>> 6)] |= 1L << index;
+    }
+
+    private static void clear(long[] bits, int offset, int index) {
+        bits[offset + (index >>> 6)] &= ~(1L << index);
+    }
+
+    private static int[][] toArrays(List<List<Integer>> lists) {
+        int[][] arrays = new int[lists.size()][];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = lists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return arrays;
+    }
+
+    /**
+     * Analyzes a world file and prints the report.
+     * Usage: {@code WorldAnalyzer [world file] [goal room]...}.  Without a file the Haunted House
+     * is analyzed, and without goal rooms every room without exits is a goal.
+     *
+     * @param args The world file and goal rooms.
+     * @throws IOException If the world cannot be loaded.
+     */
+    public static void main(String[] args) throws IOException {
+        World world = args.length == 0 ? WorldLoader.loadDefault() : WorldLoader.load(Paths.get(args[0]));
+
+        int[] goalRooms;
+        if (args.length > 1) {
+            goalRooms = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                goalRooms[i - 1] = world.getRoomId(args[i]);
+                if (goalRooms[i - 1] < 0) {
+                    throw new IllegalArgumentException("Unknown goal room: " + args[i]);
+                }
+            }
+        } else {
+            goalRooms = findEndRooms(world);
+        }
+        if (goalRooms.length == 0) {
+            throw new IllegalArgumentException("The world has no rooms without exits, name the goal rooms");
+        }
+
+        System.out.println("World: " + (args.length == 0 ? WorldLoader.DEFAULT_WORLD : args[0]) + " ("
+                + world.getRoomCount() + " rooms, " + world.getItemCount() + " items)");
+        StringBuilder goalNames = new StringBuilder();
+        for (int goal : goalRooms) {
+            goalNames.append(goalNames.length() == 0 ? "" : ", ").append(world.getRoomName(goal));
+        }
+        System.out.println("Goal: " + goalNames);
+        if (world.getRules().size() > 0) {
+            System.out.println("Note: the world's " + world.getRules().size() + " rules are not taken into account");
+        }
+        System.out.print(new WorldAnalyzer(world, goalRooms).analyze(DEFAULT_MAX_STATES));
+    }
+
+    /**
+     * The result of an analysis.
+     */
+    public static class Report {
+        private final boolean reduced;
+        private final boolean complete;
+        private final int stateCount;
+        private final int threads;
+        private final long elapsedMillis;
+        private final int solutionLength;
+        private final List<String> shortestSolution;
+        private final int softLockCount;
+        private final List<String> softLockExample;
+        private final boolean unwinnable;
+        private final String replayProblem;
+
+        Report(boolean reduced, boolean complete, int stateCount, int threads, long elapsedMillis,
+               int solutionLength, List<String> shortestSolution, int softLockCount, List<String> softLockExample,
+               boolean unwinnable, String replayProblem) {
+            this.reduced = reduced;
+            this.complete = complete;
+            this.stateCount = stateCount;
+            this.threads = threads;
+            this.elapsedMillis = elapsedMillis;
+            this.solutionLength = solutionLength;
+            this.shortestSolution = shortestSolution;
+            this.softLockCount = softLockCount;
+            this.softLockExample = softLockExample;
+            this.unwinnable = unwinnable;
+            this.replayProblem = replayProblem;
+        }
+
+        /**
+         * Checks whether the reduced game was analyzed, where a step is a decision rather than a move.
+         *
+         * @return {@code true} for the reduced game.
+         */
+        public boolean isReduced() {
+            return reduced;
+        }
+
+        /**
+         * Checks whether every state was searched.  Soft-locks are only known for a complete search.
+         *
+         * @return {@code true} if the search was not stopped by the state limit.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * Gets the number of distinct states that were found.
+         *
+         * @return The state count.
+         */
+        public int getStateCount() {
+            return stateCount;
+        }
+
+        /**
+         * Checks whether the game can be won.
+         *
+         * @return {@code true} if a solution was found.
+         */
+        public boolean isSolvable() {
+            return shortestSolution != null;
+        }
+
+        /**
+         * Checks whether the game can never be won.  Only known for a complete search.
+         *
+         * @return {@code true} if the start of the game is already a soft-lock.
+         */
+        public boolean isUnwinnable() {
+            return unwinnable;
+        }
+
+        /**
+         * Gets the length of the shortest solution: moves and searches for the exact game,
+         * decisions for the reduced game.
+         *
+         * @return The number of steps, or -1 if no solution was found.
+         */
+        public int getSolutionLength() {
+            return solutionLength;
+        }
+
+        /**
+         * Gets the steps of the shortest solution, starting with the start room.
+         *
+         * @return The steps, or {@code null} if no solution was found.
+         */
+        public List<String> getShortestSolution() {
+            return shortestSolution;
+        }
+
+        /**
+         * Gets the number of states the player can reach but cannot win from.
+         *
+         * @return The soft-lock count, or -1 if the search was not complete.
+         */
+        public int getSoftLockCount() {
+            return softLockCount;
+        }
+
+        /**
+         * Gets the steps to the soft-lock that is reached soonest.
+         *
+         * @return The steps, or {@code null} if there are no soft-locks.
+         */
+        public List<String> getSoftLockExample() {
+            return softLockExample;
+        }
+
+        /**
+         * Gets what went wrong when the reported steps were played in a {@link GameEngine}.  The
+         * steps are not played in worlds with {@link Rule}s, which the analysis does not follow.
+         *
+         * @return The problem, or {@code null} if the steps replay in the game.
+         */
+        public String getReplayProblem() {
+            return replayProblem;
+        }
+
+        /**
+         * Gets how long the analysis took.
+         *
+         * @return The time in milliseconds.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(reduced ? "Reduced game" : "Exact game").append(": ").append(stateCount).append(" states")
+                    .append(complete ? "" : " (stopped at the state limit)")
+                    .append(" in ").append(elapsedMillis).append(" ms on ").append(threads).append(" threads\n");
+
+            if (shortestSolution != null) {
+                text.append("Solvable, the shortest solution takes ").append(solutionLength)
+                        .append(reduced ? " decisions:\n" : " moves and searches:\n");
+                appendSteps(text, shortestSolution);
+            } else {
+                text.append(unwinnable ? "UNWINNABLE: no goal can be reached\n" : "No solution found\n");
+            }
+
+            if (softLockCount > 0) {
+                text.append("Soft-locks: ").append(softLockCount).append(" reachable states cannot be won, the first after:\n");
+                appendSteps(text, softLockExample);
+            } else if (softLockCount == 0) {
+                text.append("Soft-locks: none\n");
+            }
+            if (replayProblem != null) {
+                text.append("WARNING: the steps do not replay in the game, ").append(replayProblem).append('\n');
+            }
+            return text.toString();
+        }
+
+        private static void appendSteps(StringBuilder text, List<String> steps) {
+            for (int i = 0; i < steps.size(); i++) {
+                text.append(String.format("  %3d. %s%n", i, steps.get(i)));
+            }
+        }
+    }
+
+    /**
+     * One state of the game and the step that first led to it.  Two nodes are equal when their
+     * states are, no matter how they were reached.
+     */
+    private static final class Node {
+        static final Node[] NONE = new Node[0];
+
+        final int room;
+        final long[] bits; // Locked rooms, then searched rooms, then the inventory
+        final int hash;
+        final Node parent;
+        final int step;
+        final int stepRoom;
+        final int depth;
+        Node[] successors = NONE;
+        List<Node> predecessors;
+        volatile boolean won;
+        boolean canWin;
+
+        Node(int room, long[] bits, Node parent, int step, int stepRoom, int depth) {
+            this.room = room;
+            this.bits = bits;
+            this.hash = 31 * Arrays.hashCode(bits) + room;
+            this.parent = parent;
+            this.step = step;
+            this.stepRoom = stepRoom;
+            this.depth = depth;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Node)) return false;
+            Node node = (Node) other;
+            return room == node.room && hash == node.hash && Arrays.equals(bits, node.bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Expands part of one level of the search, splitting itself while the part is large.
+     */
+    private final class ExpandTask extends RecursiveTask<List<Node>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Node> level;
+        private final int from;
+        private final int to;
+        private final boolean reduced;
+        private final ConcurrentHashMap<Node, Node> states;
+        private final AtomicInteger stateCount;
+        private final int maxStates;
+
+        ExpandTask(List<Node> level, int from, int to, boolean reduced,
+                   ConcurrentHashMap<Node, Node> states, AtomicInteger stateCount, int maxStates) {
+            this.level = level;
+            this.from = from;
+            this.to = to;
+            this.reduced = reduced;
+            this.states = states;
+            this.stateCount = stateCount;
+            this.maxStates = maxStates;
+        }
+
+        @Override
+        protected List<Node> compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                ExpandTask left = new ExpandTask(level, from, middle, reduced, states, stateCount, maxStates);
+                left.fork();
+                List<Node> right = new ExpandTask(level, middle, to, reduced, states, stateCount, maxStates).compute();
+                List<Node> next = left.join();
+                next.addAll(right);
+                return next;
+            }
+
+            List<Node> next = new ArrayList<>();
+            Scratch work = scratch.get();
+            for (int i = from; i < to; i++) {
+                //A single level can hold more states than the limit, so the search stops within it
+                if (stateCount.get() >= maxStates) break;
+                Node node = level.get(i);
+                List<Node> successors = expand(node, reduced, work);
+                Node[] known = new Node[successors.size()];
+                for (int s = 0; s < known.length; s++) {
+                    Node successor = successors.get(s);
+                    Node existing = states.putIfAbsent(successor, successor);
+                    if (existing == null) {
+                        stateCount.incrementAndGet();
+                        next.add(successor);
+                        known[s] = successor;
+                    } else {
+                        known[s] = existing;
+                    }
+                }
+                node.successors = known;
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Arrays one thread reuses for its walks through the rooms.  Marks are compared with a
+     * stamp, so the arrays never have to be cleared.
+     */
+    private final class Scratch {
+        final int[] forwardList;
+        final int[] forwardMark;
+        final int[] backwardList;
+        final int[] backwardMark;
+        final int[] seen;
+        int forwardStamp;
+        int backwardStamp;
+        int seenStamp;
+
+        Scratch(int roomCount) {
+            forwardList = new int[roomCount];
+            forwardMark = new int[roomCount];
+            backwardList = new int[roomCount];
+            backwardMark = new int[roomCount];
+            seen = new int[roomCount];
+        }
+
+        /**
+         * Finds the rooms that can be walked to from a room through unlocked rooms.
+         *
+         * @return The number of rooms put in {@code forwardList}, including the start.
+         */
+        int reachForward(int start, long[] bits) {
+            int stamp = ++forwardStamp;
+            forwardMark[start] = stamp;
+            forwardList[0] = start;
+            int count = 1;
+            for (int head = 0; head < count; head++) {
+                for (int exit : world.getExits(forwardList[head])) {
+                    if (forwardMark[exit] != stamp && !get(bits, 0, exit)) {
+                        forwardMark[exit] = stamp;
+                        forwardList[count++] = exit;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Finds the unlocked rooms the player can walk to a room from.
+         */
+        void reachBackward(int target, long[] bits) {
+            int stamp = ++backwardStamp;
+            backwardMark[target] = stamp;
+            backwardList[0] = target;
+            int count = 1;
+            for (int head = 0; head < count; head++) {
+                for (int entrance : entrances[backwardList[head]]) {
+                    if (backwardMark[entrance] != stamp && !get(bits, 0, entrance)) {
+                        backwardMark[entrance] = stamp;
+                        backwardList[count++] = entrance;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Checks whether the player can walk from a room back to the target of the last
+         * {@link #reachBackward(int, long[])}.
+         */
+        boolean canReturn(int room) {
+            return backwardMark[room] == backwardStamp;
+        }
+
+        int nextSeen() {
+            return ++seenStamp;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+Description:  This class generates large haunted houses from a seed, for testing how the game
+copes with worlds far bigger than the real one.
+ */
+
+package hauntedhouse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+
+/**
+ * The {@code WorldGenerator} class writes world definitions, in the format read by the
+ * {@link WorldLoader}, for houses of any size that can always be finished.
+ * <p>
+ * The rooms are made in order.  Every room after the first has an exit both ways to a parent
+ * room made shortly before it, and some have a second exit to another earlier room, so the house
+ * is a tree with a few loops.  A locked room needs one to three items, each hidden in a room made
+ * before it, and each item is needed by one lock at most.  The last room is the way out: locked,
+ * and with no exits of its own, which is how the {@link WorldAnalyzer} and {@link SoakTest} know
+ * it is the goal.
+ * <p>
+ * That order makes every house solvable.  The rooms made before a room are connected without it,
+ * through their parents, and they hold every item it needs, so once they are all open it can be
+ * opened too, all the way to the way out.  As each item opens one lock, using it up can never
+ * leave another lock without its items either.
+ * <p>
+ * Every parent, loop and hidden item is at most {@value #WINDOW} rooms before the room it
+ * belongs to, so the generator only keeps that many rooms' plans and writes the rooms out as it
+ * goes.  A house of a hundred thousand rooms is written, or read by {@link #openReader()},
+ * without the generator ever holding the house as a whole, though the {@link WorldLoader} still
+ * reads all of it before the house is played.  The same seed always gives the same house.
+ */
+public class WorldGenerator {
+    public static final int DEFAULT_ROOMS = 100_000;
+    public static final int DEFAULT_ITEMS = 10_000;
+    //How many rooms before a room its parent, loop and items can be
+    public static final int WINDOW = 64;
+
+    private static final double LOCK_CHANCE = 0.5; // Of the rooms that are given items
+    private static final double LOOP_CHANCE = 0.25;
+    private static final int MAX_REQUIRED = 3;
+
+    //The kinds of room, with the picture each is shown with
+    private static final String[] ROOM_KINDS = {"Parlor", "Hallway", "Study", "Bedroom", "Cellar", "Attic",
+            "Gallery", "Stairwell", "Kitchen", "Washroom", "Dining Room", "Loft"};
+    private static final String[] ROOM_IMAGES = {"Parlor.png", "Hallway.png", "LibraryRoom.png", "GuestBedroom.png",
+            "WineCellar.png", "Attic.png", "FrontHall.png", "Stairway.png", "Kitchen.png", "Washroom.png",
+            "DiningRoom.png", "Upstairs.png"};
+    private static final String[] ROOM_MOODS = {"Dusty", "Silent", "Cold", "Crooked", "Flooded", "Moonlit",
+            "Forgotten", "Whispering"};
+    private static final String[] ITEM_MATERIALS = {"Iron", "Silver", "Brass", "Bone", "Glass", "Obsidian"};
+    private static final String[] ITEM_KINDS = {"Key", "Candle", "Locket", "Crystal", "Coin", "Music Box",
+            "Mirror Shard", "Amulet"};
+
+    private final int roomCount;
+    private final int itemCount;
+    private final long seed;
+
+    /**
+     * Constructs a new {@code WorldGenerator}.
+     *
+     * @param roomCount The number of rooms, at least two: the start and the way out.
+     * @param itemCount The number of items, at least one, for the lock of the way out.
+     * @param seed The seed the house is made from.
+     */
+    public WorldGenerator(int roomCount, int itemCount, long seed) {
+        if (roomCount < 2 || itemCount < 1) {
+            throw new IllegalArgumentException("A house needs at least 2 rooms and 1 item, not " + roomCount
+                    + " rooms and " + itemCount + " items");
+        }
+        this.roomCount = roomCount;
+        this.itemCount = itemCount;
+        this.seed = seed;
+    }
+
+    /**
+     * Writes the world definition of the house.
+     *
+     * @param out Where the definition is written.  It is not closed.
+     * @throws IOException If the definition cannot be written.
+     */
+    public void write(Writer out) throws IOException {
+        Generation generation = new Generation();
+        StringBuilder block = new StringBuilder(1024);
+        while (generation.next(block)) {
+            out.append(block);
+            block.setLength(0);
+        }
+    }
+
+    /**
+     * Opens a reader of the world definition, which generates the house as it is read.  Giving
+     * it to {@link WorldLoader#load(Reader, String)} loads the house without writing it anywhere,
+     * but the loader keeps the whole definition in memory.
+     *
+     * @return The reader.
+     */
+    public Reader openReader() {
+        Generation generation = new Generation();
+        return new Reader() {
+            private final StringBuilder block = new StringBuilder(1024);
+            private int position;
+            private boolean ended;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (length == 0) return 0;
+                while (position == block.length()) {
+                    if (ended) return -1;
+                    block.setLength(0);
+                    position = 0;
+                    ended = !generation.next(block);
+                }
+                int count = Math.min(length, block.length() - position);
+                block.getChars(position, position + count, buffer, offset);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+                ended = true;
+                block.setLength(0);
+                position = 0;
+            }
+        };
+    }
+
+    /**
+     * Gets the name of a room of the house.
+     *
+     * @param roomId The number of the room, in the order it is written.
+     * @return The room name.
+     */
+    public String getRoomName(int roomId) {
+        if (roomId == roomCount - 1) return "The Way Out";
+        long hash = hash(roomId);
+        return ROOM_MOODS[(int) ((hash >>> 8) % ROOM_MOODS.length)] + " "
+                + ROOM_KINDS[(int) (hash % ROOM_KINDS.length)] + " " + roomId;
+    }
+
+    /**
+     * Gets the name of an item of the house.
+     *
+     * @param itemId The number of the item, in the order it is handed out.
+     * @return The item name.
+     */
+    public String getItemName(int itemId) {
+        return ITEM_MATERIALS[itemId % ITEM_MATERIALS.length] + " "
+                + ITEM_KINDS[(itemId / ITEM_MATERIALS.length) % ITEM_KINDS.length] + " " + (itemId + 1);
+    }
+
+    private String getRoomImage(int roomId) {
+        if (roomId == roomCount - 1) return "EndScreen.png";
+        return ROOM_IMAGES[(int) (hash(roomId) % ROOM_KINDS.length)];
+    }
+
+    /**
+     * Mixes the seed and a room's number, for the parts of a room that do not depend on the
+     * others, such as its name.
+     */
+    private long hash(int roomId) {
+        long z = seed + (roomId + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (z ^ (z >>> 31)) >>> 1;
+    }
+
+    /**
+     * One pass of writing the house.  The rooms are planned {@value #WINDOW} rooms ahead of the
+     * one being written, so the items hidden in a room and the exits to rooms made after it are
+     * known by the time it is written.  The plans are kept in rings indexed by room number.
+     */
+    private class Generation {
+        private final Random random = new Random(seed);
+        private final int[] parent = new int[WINDOW + 1];
+        private final int[] loop = new int[WINDOW + 1]; // -1 for none
+        //Each room's items: the first item's number, how many of them are needed to open it and how
+        //many more are simply found in it
+        private final int[] firstItem = new int[WINDOW + 1];
+        private final int[] keyCount = new int[WINDOW + 1];
+        private final int[] treasureCount = new int[WINDOW + 1];
+        private final int[][] keyRooms = new int[WINDOW + 1][MAX_REQUIRED]; // Where each needed item is hidden
+        private int planned; // Rooms before this one are planned
+        private int written; // Rooms before this one are written
+        private int itemsGiven;
+
+        /**
+         * Writes the next block of the definition.
+         *
+         * @param out Where the block is appended.
+         * @return {@code false} once the whole house has been written.
+         */
+        boolean next(StringBuilder out) {
+            if (written == roomCount) return false;
+            if (written == 0) {
+                out.append("# A haunted house of ").append(roomCount).append(" rooms and ").append(itemCount)
+                        .append(" items, generated from seed ").append(seed).append(" by WorldGenerator.\n")
+                        .append("# The player starts in the first room and the way out is the last.\n\n");
+            }
+            while (planned < roomCount && planned <= written + WINDOW) {
+                plan(planned++);
+            }
+            writeRoom(written++, out);
+            return true;
+        }
+
+        private void plan(int room) {
+            int slot = room % parent.length;
+            boolean wayOut = room == roomCount - 1;
+            parent[slot] = room == 0 ? -1 : earlier(room);
+            loop[slot] = -1;
+            if (room > 1 && !wayOut && random.nextDouble() < LOOP_CHANCE) {
+                int other = earlier(room);
+                if (other != parent[slot]) {
+                    loop[slot] = other;
+                }
+            }
+
+            //The items are spread evenly over every room but the way out, which keeps the last one
+            int items;
+            if (wayOut) {
+                items = itemCount - itemsGiven;
+            } else {
+                items = (int) ((long) (itemCount - 1) * (room + 1) / (roomCount - 1)) - itemsGiven;
+            }
+            int keys = 0;
+            if (wayOut) {
+                keys = Math.min(items, MAX_REQUIRED);
+            } else if (room > 0 && items > 0 && random.nextDouble() < LOCK_CHANCE) {
+                keys = Math.min(items, 1 + random.nextInt(MAX_REQUIRED));
+            }
+            for (int i = 0; i < keys; i++) {
+                keyRooms[slot][i] = earlier(room);
+            }
+            firstItem[slot] = itemsGiven;
+            keyCount[slot] = keys;
+            treasureCount[slot] = items - keys;
+            itemsGiven += items;
+        }
+
+        /**
+         * Picks a room made shortly before a room.
+         */
+        private int earlier(int room) {
+            return room - 1 - random.nextInt(Math.min(room, WINDOW));
+        }
+
+        private void writeRoom(int room, StringBuilder out) {
+            int slot = room % parent.length;
+            boolean wayOut = room == roomCount - 1;
+            String name = getRoomName(room);
+            out.append("room ").append(name).append('\n');
+            out.append("    image: ").append(getRoomImage(room)).append('\n');
+
+            //The way out has no exits back, everything else has exits both ways
+            out.append("    exits:");
+            String separator = " ";
+            int exits = 0;
+            if (!wayOut) {
+                if (parent[slot] >= 0) {
+                    out.append(separator).append(getRoomName(parent[slot]));
+                    separator = ", ";
+                    exits++;
+                }
+                if (loop[slot] >= 0) {
+                    out.append(separator).append(getRoomName(loop[slot]));
+                    separator = ", ";
+                    exits++;
+                }
+            }
+            for (int later = room + 1; later < planned; later++) {
+                int laterSlot = later % parent.length;
+                if (parent[laterSlot] == room || loop[laterSlot] == room) {
+                    out.append(separator).append(getRoomName(later));
+                    separator = ", ";
+                    exits++;
+                }
+            }
+            out.append('\n');
+
+            out.append("    locked: ").append(keyCount[slot] > 0).append('\n');
+            out.append("    items:");
+            separator = " ";
+            for (int i = 0; i < treasureCount[slot]; i++) {
+                out.append(separator).append(getItemName(firstItem[slot] + keyCount[slot] + i));
+                separator = ", ";
+            }
+            for (int later = room + 1; later < planned; later++) {
+                int laterSlot = later % parent.length;
+                for (int i = 0; i < keyCount[laterSlot]; i++) {
+                    if (keyRooms[laterSlot][i] == room) {
+                        out.append(separator).append(getItemName(firstItem[laterSlot] + i));
+                        separator = ", ";
+                    }
+                }
+            }
+            out.append('\n');
+            out.append("    requires:");
+            separator = " ";
+            for (int i = 0; i < keyCount[slot]; i++) {
+                out.append(separator).append(getItemName(firstItem[slot] + i));
+                separator = ", ";
+            }
+            out.append('\n');
+
+            if (wayOut) {
+                out.append("    initial: \\tThe last door gives way and cold night air rushes in. You are out of the house.\n");
+                out.append("    look: \\tBehind you the house stands dark and silent, as if it had never noticed you.\n\n");
+            } else {
+                String kind = name.substring(name.indexOf(' ') + 1, name.lastIndexOf(' ')).toLowerCase();
+                out.append("    initial: \\tYou enter the ").append(name.substring(0, name.indexOf(' ')).toLowerCase())
+                        .append(' ').append(kind).append(". The air is still, and the house creaks around you.\n");
+                out.append("    look: \\tThe ").append(kind).append(" has ").append(exits == 1 ? "one door" : exits + " doors")
+                        .append(". Something moved in the corner of your eye, but nothing is there.\n\n");
+            }
+        }
+    }
+
+    /**
+     * Writes a generated house to a file, or to the standard output.
+     * Usage: {@code WorldGenerator [rooms] [items] [seed] [world file]}, by default a house of
+     * {@value #DEFAULT_ROOMS} rooms and {@value #DEFAULT_ITEMS} items from seed 1.
+     *
+     * @param args The room count, item count, seed and file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROOMS;
+        int items = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITEMS;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        WorldGenerator generator = new WorldGenerator(rooms, items, seed);
+
+        if (args.length > 3) {
+            try (Writer out = Files.newBufferedWriter(Paths.get(args[3]), StandardCharsets.UTF_8)) {
+                generator.write(out);
+            }
+            System.out.println("Wrote a house of " + rooms + " rooms and " + items + " items to " + args[3]);
+        } else {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            generator.write(out);
+            out.flush();
+        }
+    }
+}
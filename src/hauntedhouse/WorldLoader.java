@@ -0,0 +1,619 @@
+/*
+Description:  This class reads a world definition file and compiles it into a World that the
+game can use.
+ */
+
+package hauntedhouse;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+
+/**
+ * The {@code WorldLoader} class loads worlds from the text format used by
+ * {@code src/resources/world/HauntedHouse.world}.
+ * <p>
+ * The file is made of "room", "item" and "rule" blocks.  A block starts with a line such as
+ * {@code room Front Hall} and its properties follow on indented {@code key: value} lines.
+ * Lines starting with {@code #} are comments.  Loading happens in two passes: the blocks are
+ * read first, then every name is interned and given an integer id, so that exits can be
+ * stored as room ids and item lists as {@link ItemSet}s.
+ * <p>
+ * A rule block starts with {@code rule <trigger> <room>}, such as {@code rule search Library},
+ * where the trigger is {@code enter}, {@code search}, {@code look} or {@code unlock}.  Its
+ * conditions are {@code has}, {@code lacks}, {@code visited}, {@code open} and {@code closed},
+ * and its actions {@code take}, {@code give}, {@code unlock}, {@code lock} and {@code message};
+ * see {@link Rule}.  The rules are compiled into the world's {@link RuleBook}.
+ */
+public class WorldLoader {
+    public static final String DEFAULT_WORLD = "/resources/world/HauntedHouse.world";
+    public static final String DEFAULT_TEXT = "/resources/text/HauntedHouse.text";
+    //A world file to play instead of the Haunted House, such as one written by the WorldGenerator
+    public static final String WORLD_PROPERTY = "hauntedhouse.world";
+    //Room images are asset paths, resolved on the classpath by the AssetManager
+    public static final String IMAGE_FOLDER = "image/";
+    public static final String AUDIO_FOLDER = "audio/";
+
+    //Names are shared between rooms, exits and items so each distinct name is kept only once
+    private final Map<String, String> names = new HashMap<>();
+    private final List<RoomDefinition> roomDefinitions = new ArrayList<>();
+    private final List<ItemDefinition> itemDefinitions = new ArrayList<>();
+    private final List<RuleDefinition> ruleDefinitions = new ArrayList<>();
+    private final String sourceName;
+    private final String text; // The whole definition, which the rooms' descriptions are read from
+
+    private WorldLoader(String sourceName, String text) {
+        this.sourceName = sourceName;
+        this.text = text;
+    }
+
+    /**
+     * Loads the default Haunted House world and its narrative text from the classpath.
+     *
+     * @return The compiled {@link World}.
+     * @throws IOException If the world cannot be read or is not a valid world definition.
+     */
+    public static World loadDefault() throws IOException {
+        InputStream in = WorldLoader.class.getResourceAsStream(DEFAULT_WORLD);
+        if (in == null) {
+            throw new FileNotFoundException("Missing world definition: " + DEFAULT_WORLD);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            World world = load(reader, DEFAULT_WORLD);
+            world.setNarrative(NarrativeText.fromResource(world, DEFAULT_TEXT));
+            return world;
+        }
+    }
+
+    /**
+     * Loads the world file named by the {@value #WORLD_PROPERTY} system property, or the default
+     * Haunted House if it is not set.
+     *
+     * @return The compiled {@link World}.
+     * @throws IOException If the world cannot be read or is not a valid world definition.
+     */
+    public static World loadSelected() throws IOException {
+        String file = System.getProperty(WORLD_PROPERTY);
+        return file == null ? loadDefault() : load(Paths.get(file));
+    }
+
+    /**
+     * Loads a world definition from a file.  A narrative text file next to it with the same name,
+     * such as {@code Castle.text} or {@code Castle.text.gz} for {@code Castle.world}, is used too.
+     *
+     * @param path The path of the world file.
+     * @return The compiled {@link World}.
+     * @throws IOException If the file cannot be read or is not a valid world definition.
+     */
+    public static World load(Path path) throws IOException {
+        World world;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            world = load(reader, path.toString());
+        }
+
+        String baseName = path.getFileName().toString().replaceFirst("\\.world$", "");
+        for (String extension : new String[]{".text", ".text.gz"}) {
+            Path textPath = path.resolveSibling(baseName + extension);
+            if (Files.isRegularFile(textPath)) {
+                world.setNarrative(NarrativeText.fromFile(world, textPath));
+                break;
+            }
+        }
+        return world;
+    }
+
+    /**
+     * Loads a world definition from a reader.  Its rooms and items use the generic messages.
+     * The whole definition is read into memory first, since the rooms' descriptions are read
+     * from it when their rooms are made.
+     *
+     * @param reader The reader the world definition is read from.
+     * @param sourceName The name of the source, used in error messages.
+     * @return The compiled {@link World}.
+     * @throws IOException If the definition cannot be read or is not valid.
+     */
+    public static World load(Reader reader, String sourceName) throws IOException {
+        StringBuilder text = new StringBuilder(8192);
+        char[] buffer = new char[8192];
+        int count;
+        while ((count = reader.read(buffer)) >= 0) {
+            text.append(buffer, 0, count);
+        }
+        StartupProfile.mark("World read");
+
+        WorldLoader loader = new WorldLoader(sourceName, text.toString());
+        loader.parse();
+        StartupProfile.mark("World parsed");
+        World world = loader.compile();
+        StartupProfile.mark("World compiled");
+        return world;
+    }
+
+    /**
+     * Reads every block of the world definition.  Room descriptions are not copied out of the
+     * text; only where they start and end is kept, until their room is made.
+     */
+    private void parse() throws IOException {
+        RoomDefinition room = null;
+        ItemDefinition item = null;
+        RuleDefinition rule = null;
+        int lineNumber = 0;
+        int next = 0;
+
+        while (next < text.length()) {
+            int lineStart = next;
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            next = lineEnd + 1;
+            lineNumber++;
+
+            //The same trimming as String.trim, without making a string of the line
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && text.charAt(start) <= ' ') start++;
+            while (end > start && text.charAt(end - 1) <= ' ') end--;
+            if (start == end || text.charAt(start) == '#') continue;
+
+            boolean indented = start > lineStart;
+            if (!indented) {
+                //A new block starts
+                String trimmed = text.substring(start, end);
+                room = null;
+                item = null;
+                rule = null;
+                if (trimmed.startsWith("room ")) {
+                    room = new RoomDefinition(intern(trimmed.substring(5).trim()), lineNumber);
+                    roomDefinitions.add(room);
+                } else if (trimmed.startsWith("item ")) {
+                    item = new ItemDefinition(intern(trimmed.substring(5).trim()), lineNumber);
+                    itemDefinitions.add(item);
+                } else if (trimmed.startsWith("rule ")) {
+                    String header = trimmed.substring(5).trim();
+                    int space = header.indexOf(' ');
+                    RuleBook.Trigger trigger = space < 0 ? null : RuleBook.Trigger.fromName(header.substring(0, space));
+                    if (trigger == null) {
+                        throw error(lineNumber, "Expected 'rule <enter|search|look|unlock> <room>' but found: " + trimmed);
+                    }
+                    rule = new RuleDefinition(trigger, intern(header.substring(space + 1).trim()), lineNumber);
+                    ruleDefinitions.add(rule);
+                } else {
+                    throw error(lineNumber, "Expected 'room <name>', 'item <name>' or 'rule <trigger> <room>' but found: "
+                            + trimmed);
+                }
+                continue;
+            }
+
+            int colon = text.indexOf(':', start);
+            if (colon < 0 || colon >= end) {
+                throw error(lineNumber, "Expected 'key: value' but found: " + text.substring(start, end));
+            }
+            String key = text.substring(start, colon).trim();
+            int valueStart = colon + 1;
+            while (valueStart < end && text.charAt(valueStart) <= ' ') valueStart++;
+
+            if (room != null && key.equals("initial")) {
+                room.initialStart = valueStart;
+                room.initialEnd = end;
+                continue;
+            } else if (room != null && key.equals("look")) {
+                room.lookStart = valueStart;
+                room.lookEnd = end;
+                continue;
+            }
+
+            String value = text.substring(valueStart, end);
+            if (room != null) {
+                setRoomProperty(room, key, value, lineNumber);
+            } else if (item != null) {
+                if (key.equals("discovery")) {
+                    item.discovery = unescape(value);
+                } else {
+                    throw error(lineNumber, "Unknown item property: " + key);
+                }
+            } else if (rule != null) {
+                setRuleProperty(rule, key, value, lineNumber);
+            } else {
+                throw error(lineNumber, "Property outside of a room, item or rule block: " + key);
+            }
+        }
+    }
+
+    /**
+     * Sets one property of a room block.
+     */
+    private void setRoomProperty(RoomDefinition room, String key, String value, int lineNumber) throws IOException {
+        switch (key) {
+            case "image":
+                room.image = value;
+                break;
+            case "exits":
+                room.exits = splitNames(value);
+                break;
+            case "locked":
+                if (!value.equals("true") && !value.equals("false")) {
+                    throw error(lineNumber, "'locked' must be true or false: " + value);
+                }
+                room.locked = Boolean.parseBoolean(value);
+                break;
+            case "items":
+                room.items = splitNames(value);
+                break;
+            case "requires":
+                room.requires = splitNames(value);
+                break;
+            case "ambient":
+                room.ambient = value;
+                break;
+            case "sound":
+                room.sound = value;
+                break;
+            default:
+                throw error(lineNumber, "Unknown room property: " + key);
+        }
+    }
+
+    /**
+     * Sets one condition or action of a rule block.
+     */
+    private void setRuleProperty(RuleDefinition rule, String key, String value, int lineNumber) throws IOException {
+        switch (key) {
+            case "has":
+                rule.has = splitNames(value);
+                break;
+            case "lacks":
+                rule.lacks = splitNames(value);
+                break;
+            case "visited":
+                rule.visited = splitNames(value);
+                break;
+            case "open":
+                rule.open = splitNames(value);
+                break;
+            case "closed":
+                rule.closed = splitNames(value);
+                break;
+            case "take":
+                rule.take = splitNames(value);
+                break;
+            case "give":
+                rule.give = splitNames(value);
+                break;
+            case "unlock":
+                rule.unlock = splitNames(value);
+                break;
+            case "lock":
+                rule.lock = splitNames(value);
+                break;
+            case "message":
+                rule.message = unescape(value);
+                break;
+            default:
+                throw error(lineNumber, "Unknown rule property: " + key);
+        }
+    }
+
+    /**
+     * Gives every room and item an id and builds the indexed tables of the world.
+     */
+    private World compile() throws IOException {
+        if (roomDefinitions.isEmpty()) {
+            throw new IOException(sourceName + ": The world does not define any rooms");
+        }
+
+        //Room ids follow the order the rooms are defined in
+        Map<String, Integer> roomIds = new HashMap<>();
+        for (RoomDefinition room : roomDefinitions) {
+            if (roomIds.putIfAbsent(room.name, roomIds.size()) != null) {
+                throw error(room.line, "Room is defined more than once: " + room.name);
+            }
+        }
+
+        //Item ids follow the order items are first mentioned in
+        Map<String, Integer> itemIds = new HashMap<>();
+        List<String> itemNames = new ArrayList<>();
+        for (RoomDefinition room : roomDefinitions) {
+            registerItems(room.items, itemIds, itemNames);
+            registerItems(room.requires, itemIds, itemNames);
+        }
+        for (ItemDefinition item : itemDefinitions) {
+            registerItems(new String[]{item.name}, itemIds, itemNames);
+        }
+        //Items that only rules hand out or ask for are items too
+        for (RuleDefinition rule : ruleDefinitions) {
+            registerItems(rule.has, itemIds, itemNames);
+            registerItems(rule.lacks, itemIds, itemNames);
+            registerItems(rule.take, itemIds, itemNames);
+            registerItems(rule.give, itemIds, itemNames);
+        }
+
+        int roomCount = roomDefinitions.size();
+        String[] roomNames = new String[roomCount];
+        String[] images = new String[roomCount];
+        String[] ambients = new String[roomCount];
+        String[] sounds = new String[roomCount];
+        int[][] exits = new int[roomCount][];
+        boolean[] locked = new boolean[roomCount];
+        ItemSet[] items = new ItemSet[roomCount];
+        ItemSet[] required = new ItemSet[roomCount];
+        int[] descriptions = new int[roomCount * 4];
+        ItemSet noItems = new ItemSet(itemIds.size()); // Shared by every room without items
+
+        for (int id = 0; id < roomCount; id++) {
+            RoomDefinition definition = roomDefinitions.get(id);
+            if (definition.image == null) {
+                throw error(definition.line, "Room has no image: " + definition.name);
+            }
+
+            exits[id] = new int[definition.exits.length];
+            for (int i = 0; i < definition.exits.length; i++) {
+                Integer exitId = roomIds.get(definition.exits[i]);
+                if (exitId == null) {
+                    throw error(definition.line, "Room " + definition.name + " has an exit to an unknown room: "
+                            + definition.exits[i]);
+                }
+                exits[id][i] = exitId;
+            }
+
+            roomNames[id] = definition.name;
+            images[id] = definition.image;
+            ambients[id] = definition.ambient;
+            sounds[id] = definition.sound;
+            locked[id] = definition.locked;
+            items[id] = definition.items.length == 0 ? noItems : toItemSet(definition.items, itemIds);
+            required[id] = definition.requires.length == 0 ? noItems : toItemSet(definition.requires, itemIds);
+            descriptions[id * 4] = definition.initialStart;
+            descriptions[id * 4 + 1] = definition.initialEnd;
+            descriptions[id * 4 + 2] = definition.lookStart;
+            descriptions[id * 4 + 3] = definition.lookEnd;
+        }
+
+        //Nothing can unlock the room the player starts in, and the game window cannot show it locked
+        if (locked[0]) {
+            throw error(roomDefinitions.get(0).line, "The first room is where the player starts and cannot be locked: "
+                    + roomNames[0]);
+        }
+
+        String[] discoveryDescriptions = new String[itemNames.size()];
+        for (ItemDefinition item : itemDefinitions) {
+            discoveryDescriptions[itemIds.get(item.name)] = item.discovery;
+        }
+
+        List<Rule> rules = new ArrayList<>(ruleDefinitions.size());
+        for (RuleDefinition rule : ruleDefinitions) {
+            Integer roomId = roomIds.get(rule.room);
+            if (roomId == null) {
+                throw error(rule.line, "Rule for an unknown room: " + rule.room);
+            }
+            ItemSet visited = new ItemSet(roomCount);
+            for (int id : toRoomIds(rule.visited, roomIds, rule.line)) {
+                visited.add(id);
+            }
+            rules.add(new Rule(roomId, rule.trigger, rule.line, toItemSet(rule.has, itemIds),
+                    toItemSet(rule.lacks, itemIds), visited, toRoomIds(rule.open, roomIds, rule.line),
+                    toRoomIds(rule.closed, roomIds, rule.line), toItemSet(rule.take, itemIds),
+                    toItemSet(rule.give, itemIds), toRoomIds(rule.unlock, roomIds, rule.line),
+                    toRoomIds(rule.lock, roomIds, rule.line), rule.message));
+        }
+
+        //Rooms are made from the tables and their region's text when they are needed.  A room's
+        //text is its two descriptions as written, so the whole definition can be let go of once
+        //every region's text is compressed, which happens after the world is loaded
+        String source = text;
+        int[] initialLengths = new int[roomCount];
+        IntFunction<String> roomText = id -> {
+            String initial = raw(source, descriptions, id * 4);
+            initialLengths[id] = initial.length();
+            return initial + raw(source, descriptions, id * 4 + 2);
+        };
+        RoomRegions.RoomMaker maker = (id, written) -> {
+            String[] exitNames = new String[exits[id].length];
+            for (int i = 0; i < exitNames.length; i++) {
+                exitNames[i] = roomNames[exits[id][i]];
+            }
+            int split = initialLengths[id];
+            return new Room(id, roomNames[id], unescape(written.substring(0, split)),
+                    unescape(written.substring(split)), IMAGE_FOLDER + images[id],
+                    audioPath(ambients[id]), audioPath(sounds[id]), exitNames, locked[id], items[id], required[id]);
+        };
+        RoomRegions regions = new RoomRegions(exits, 0, RoomRegions.DEFAULT_REGION_SIZE,
+                RoomRegions.configuredBudget(), roomText, maker);
+        regions.compressInBackground();
+
+        return new World(roomNames, exits, roomIds, locked, items, required, itemNames.toArray(new String[0]),
+                itemIds, discoveryDescriptions, 0, new RuleBook(roomCount, rules), regions);
+    }
+
+    private static String audioPath(String file) {
+        return file == null ? null : AUDIO_FOLDER + file;
+    }
+
+    private static String raw(String text, int[] bounds, int index) {
+        return bounds[index] < 0 ? "" : text.substring(bounds[index], bounds[index + 1]);
+    }
+
+    private int[] toRoomIds(String[] names, Map<String, Integer> roomIds, int lineNumber) throws IOException {
+        int[] ids = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Integer id = roomIds.get(names[i]);
+            if (id == null) {
+                throw error(lineNumber, "Rule names an unknown room: " + names[i]);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    private static void registerItems(String[] items, Map<String, Integer> itemIds, List<String> itemNames) {
+        for (String item : items) {
+            if (itemIds.putIfAbsent(item, itemNames.size()) == null) {
+                itemNames.add(item);
+            }
+        }
+    }
+
+    private static ItemSet toItemSet(String[] items, Map<String, Integer> itemIds) {
+        ItemSet set = new ItemSet(itemIds.size());
+        for (String item : items) {
+            set.add(itemIds.get(item));
+        }
+        return set;
+    }
+
+    /**
+     * Splits a comma-separated list of names, interning each one.
+     */
+    private String[] splitNames(String value) {
+        if (value.isEmpty()) return new String[0];
+
+        String[] parts = value.split(",");
+        List<String> result = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            String name = part.trim();
+            if (!name.isEmpty()) {
+                result.add(intern(name));
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    private String intern(String name) {
+        String existing = names.putIfAbsent(name, name);
+        return existing == null ? name : existing;
+    }
+
+    /**
+     * Turns tabs, line breaks and backslashes into the escape sequences \t, \n and \\, so a text
+     * fits on one line.  {@link #unescape(String)} turns them back.
+     */
+    static String escape(String value) {
+        StringBuilder builder = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escaped = c == '\t' ? "\\t" : c == '\n' ? "\\n" : c == '\\' ? "\\\\" : null;
+            if (escaped != null && builder == null) {
+                builder = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (builder != null) {
+                if (escaped != null) {
+                    builder.append(escaped);
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+        return builder == null ? value : builder.toString();
+    }
+
+    /**
+     * Turns the escape sequences \t, \n, \s and \\ back into the characters they stand for.
+     */
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) return value;
+
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 's':
+                        builder.append(' '); // Lets a value end in a space, which trimming would remove
+                        break;
+                    default:
+                        builder.append(next);
+                }
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private IOException error(int lineNumber, String message) {
+        return new IOException(sourceName + ":" + lineNumber + ": " + message);
+    }
+
+    /**
+     * The properties of a room block, before names are turned into ids.
+     */
+    private static class RoomDefinition {
+        final String name;
+        final int line;
+        String image;
+        String ambient;
+        String sound;
+        String[] exits = new String[0];
+        boolean locked;
+        String[] items = new String[0];
+        String[] requires = new String[0];
+        //Where the descriptions are in the text, or -1 for none
+        int initialStart = -1;
+        int initialEnd = -1;
+        int lookStart = -1;
+        int lookEnd = -1;
+
+        RoomDefinition(String name, int line) {
+            this.name = name;
+            this.line = line;
+        }
+    }
+
+    /**
+     * The conditions and actions of a rule block, before names are turned into ids.
+     */
+    private static class RuleDefinition {
+        final RuleBook.Trigger trigger;
+        final String room;
+        final int line;
+        String[] has = new String[0];
+        String[] lacks = new String[0];
+        String[] visited = new String[0];
+        String[] open = new String[0];
+        String[] closed = new String[0];
+        String[] take = new String[0];
+        String[] give = new String[0];
+        String[] unlock = new String[0];
+        String[] lock = new String[0];
+        String message;
+
+        RuleDefinition(RuleBook.Trigger trigger, String room, int line) {
+            this.trigger = trigger;
+            this.room = room;
+            this.line = line;
+        }
+    }
+
+    /**
+     * The properties of an item block.
+     */
+    private static class ItemDefinition {
+        final String name;
+        final int line;
+        String discovery;
+
+        ItemDefinition(String name, int line) {
+            this.name = name;
+            this.line = line;
+        }
+    }
+}
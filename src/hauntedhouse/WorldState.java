@@ -0,0 +1,252 @@
+/*
+Description:  This class holds what one game has changed in its world: the doors it has unlocked
+and the items it has taken.  The world itself is never changed, so any number of games can share it.
+ */
+
+package hauntedhouse;
+
+import java.util.Arrays;
+
+
+/**
+ * The {@code WorldState} class is one game's view of the rooms' locks and items, kept as the
+ * differences from the {@link World} it was created for.
+ * <p>
+ * A room that has not been changed costs nothing: its lock and items are read from its
+ * {@link Room} definition.  Only the rooms whose lock or items differ from the definition are
+ * kept, in two small tables sorted by room id, so a state's size follows what the player has
+ * done and not the size of the world.  Changing a room back to how it was defined, for example
+ * when a saved game is loaded, removes it from the tables again.
+ * <p>
+ * {@link #copy()} takes constant time: the copy shares the tables with the original, and
+ * whichever of the two changes a room first makes its own tables then (copy-on-write).
+ * The item sets in the tables are never changed once stored, so they are shared as well.
+ * <p>
+ * A {@code WorldState} is not thread-safe, but copies of it can be used by different threads.
+ */
+public class WorldState {
+    private static final int[] NO_ROOMS = new int[0];
+    private static final ItemSet[] NO_ITEM_SETS = new ItemSet[0];
+
+    private final World world;
+    private final ItemSet noItems;
+    //Rooms whose lock is the opposite of their definition, sorted
+    private int[] lockChanges = NO_ROOMS;
+    private int lockChangeCount;
+    //Rooms whose items differ from their definition, sorted, and the items they hold now
+    private int[] itemRooms = NO_ROOMS;
+    private ItemSet[] roomItems = NO_ITEM_SETS;
+    private int itemChangeCount;
+    private boolean shared; // The tables are shared with a copy and must be copied before a change
+    private long lockVersion;
+    private RouteIndex routes;
+
+    /**
+     * Constructs a new {@code WorldState} in which every room is as it was defined.
+     *
+     * @param world The {@link World} the state belongs to.
+     */
+    public WorldState(World world) {
+        this.world = world;
+        this.noItems = new ItemSet(world.getItemCount());
+    }
+
+    /**
+     * Gets the world this is the state of.
+     *
+     * @return The {@link World}.
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Checks whether a room is locked.
+     *
+     * @param roomId The id of the room.
+     * @return {@code true} if the room is locked.
+     */
+    public boolean isLocked(int roomId) {
+        boolean changed = lockChangeCount > 0 && Arrays.binarySearch(lockChanges, 0, lockChangeCount, roomId) >= 0;
+        return world.isInitiallyLocked(roomId) != changed;
+    }
+
+    /**
+     * Locks or unlocks a room.
+     *
+     * @param roomId The id of the room.
+     * @param locked {@code true} to lock the room.
+     */
+    public void setLocked(int roomId, boolean locked) {
+        if (isLocked(roomId) == locked) return;
+
+        unshare();
+        int index = Arrays.binarySearch(lockChanges, 0, lockChangeCount, roomId);
+        if (index >= 0) {
+            //Back to how the room was defined
+            System.arraycopy(lockChanges, index + 1, lockChanges, index, lockChangeCount - index - 1);
+            lockChangeCount--;
+        } else {
+            lockChanges = insert(lockChanges, lockChangeCount, -index - 1, roomId);
+            lockChangeCount++;
+        }
+        lockVersion++;
+    }
+
+    /**
+     * Gets a number that changes every time a room is locked or unlocked.
+     *
+     * @return The lock version.
+     */
+    public long getLockVersion() {
+        return lockVersion;
+    }
+
+    /**
+     * Gets the items that are in a room now.  The returned set may be shared with the room's
+     * definition or with other states and must not be modified.
+     *
+     * @param roomId The id of the room.
+     * @return The ids of the items in the room.
+     */
+    public ItemSet getItems(int roomId) {
+        int index = itemChangeCount == 0 ? -1 : Arrays.binarySearch(itemRooms, 0, itemChangeCount, roomId);
+        return index >= 0 ? roomItems[index] : world.getInitialItems(roomId);
+    }
+
+    /**
+     * Replaces the items in a room.
+     *
+     * @param roomId The id of the room.
+     * @param items The ids of the items the room holds from now on.  The set is copied.
+     */
+    public void setItems(int roomId, ItemSet items) {
+        ItemSet defined = world.getInitialItems(roomId);
+        store(roomId, items.equals(defined) ? null : items.isEmpty() ? noItems : items.copy());
+    }
+
+    /**
+     * Takes every item out of a room, as searching it does.
+     *
+     * @param roomId The id of the room.
+     */
+    public void clearItems(int roomId) {
+        store(roomId, world.getInitialItems(roomId).isEmpty() ? null : noItems);
+    }
+
+    /**
+     * Puts every room back as it was defined.
+     */
+    public void reset() {
+        if (lockChangeCount > 0) {
+            lockVersion++;
+        }
+        lockChanges = NO_ROOMS;
+        roomItems = NO_ITEM_SETS;
+        itemRooms = NO_ROOMS;
+        lockChangeCount = 0;
+        itemChangeCount = 0;
+        shared = false;
+    }
+
+    /**
+     * Gets the rooms whose lock differs from their definition.
+     *
+     * @return The room ids, in increasing order.
+     */
+    public int[] getLockChanges() {
+        return Arrays.copyOf(lockChanges, lockChangeCount);
+    }
+
+    /**
+     * Gets the rooms whose items differ from their definition.
+     *
+     * @return The room ids, in increasing order.
+     */
+    public int[] getItemChanges() {
+        return Arrays.copyOf(itemRooms, itemChangeCount);
+    }
+
+    /**
+     * Makes a copy of this state that can be changed independently of it.
+     * This takes constant time, see the class description.
+     *
+     * @return The copy.
+     */
+    public WorldState copy() {
+        WorldState copy = new WorldState(world);
+        copy.lockChanges = lockChanges;
+        copy.lockChangeCount = lockChangeCount;
+        copy.itemRooms = itemRooms;
+        copy.roomItems = roomItems;
+        copy.itemChangeCount = itemChangeCount;
+        copy.lockVersion = lockVersion;
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
+    /**
+     * Gets the route index of this state, which is created the first time it is needed.
+     *
+     * @return The {@link RouteIndex}, which follows this state's locks.
+     */
+    public RouteIndex getRoutes() {
+        if (routes == null) {
+            routes = new RouteIndex(this);
+        }
+        return routes;
+    }
+
+    /**
+     * Sets the items of a room, or removes its entry if {@code items} is {@code null}.
+     */
+    private void store(int roomId, ItemSet items) {
+        int index = itemChangeCount == 0 ? -1 : Arrays.binarySearch(itemRooms, 0, itemChangeCount, roomId);
+        if (index >= 0 ? roomItems[index] == items : items == null) return;
+
+        unshare();
+        if (index >= 0 && items != null) {
+            roomItems[index] = items;
+        } else if (index >= 0) {
+            System.arraycopy(itemRooms, index + 1, itemRooms, index, itemChangeCount - index - 1);
+            System.arraycopy(roomItems, index + 1, roomItems, index, itemChangeCount - index - 1);
+            itemChangeCount--;
+            roomItems[itemChangeCount] = null;
+        } else {
+            int at = -index - 1;
+            itemRooms = insert(itemRooms, itemChangeCount, at, roomId);
+            if (roomItems.length < itemRooms.length) {
+                roomItems = Arrays.copyOf(roomItems, itemRooms.length);
+            }
+            System.arraycopy(roomItems, at, roomItems, at + 1, itemChangeCount - at);
+            roomItems[at] = items;
+            itemChangeCount++;
+        }
+    }
+
+    /**
+     * Makes this state's own copy of the tables if they are shared with another state.
+     */
+    private void unshare() {
+        if (!shared) return;
+
+        lockChanges = Arrays.copyOf(lockChanges, Math.max(lockChangeCount, 4));
+        itemRooms = Arrays.copyOf(itemRooms, Math.max(itemChangeCount, 4));
+        roomItems = Arrays.copyOf(roomItems, itemRooms.length);
+        shared = false;
+    }
+
+    /**
+     * Inserts a value into the first {@code count} entries of a sorted array, growing it if needed.
+     */
+    private static int[] insert(int[] values, int count, int index, int value) {
+        int[] result = values;
+        if (count == values.length) {
+            result = Arrays.copyOf(values, Math.max(4, count * 2));
+        }
+        System.arraycopy(result, index, result, index + 1, count - index);
+        result[index] = value;
+        return result;
+    }
+}